@@ -13,6 +13,7 @@ plugins {
     id("pmd")
     id("org.jooq.jooq-codegen-gradle") version "3.19.13"
     id("com.diffplug.spotless") version "6.25.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 sourceSets {
@@ -49,10 +50,12 @@ mavenCentral()
 
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-amqp")
+    implementation("org.springframework.amqp:spring-rabbit-stream")
     testImplementation("org.springframework.amqp:spring-rabbit-test")
     testImplementation("org.testcontainers:rabbitmq:$testcontainersVersion")
     implementation("org.springframework.boot:spring-boot-starter-quartz")
     implementation("org.springframework.boot:spring-boot-starter-websocket")
+    implementation("io.projectreactor.netty:reactor-netty-core")
     implementation("org.springframework.boot:spring-boot-starter-data-redis")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("org.springframework.boot:spring-boot-starter-jooq")
@@ -71,6 +74,8 @@ dependencies {
     implementation("org.flywaydb:flyway-core:$flywayVersion")
     implementation("org.flywaydb:flyway-mysql:$flywayVersion")
     implementation("com.github.ben-manes.caffeine:caffeine:3.1.8")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
+    implementation("org.lz4:lz4-java:1.8.0")
     testImplementation("org.testcontainers:junit-jupiter:$testcontainersVersion")
     testImplementation("org.testcontainers:mysql:$testcontainersVersion")
     testImplementation("org.testcontainers:testcontainers-bom:$testcontainersVersion")
@@ -81,6 +86,7 @@ dependencies {
     testImplementation("org.springframework.boot:spring-boot-starter-webflux")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.security:spring-security-test")
+    testImplementation("com.github.fppt:jedis-mock:1.1.4")
     jooqCodegen("com.mysql:mysql-connector-j:8.2.0")
     jooqCodegen("org.jooq:jooq-codegen:$jooqVersion")
     jooqCodegen("org.jooq:jooq-meta-extensions:$jooqVersion")
@@ -97,13 +103,37 @@ tasks.withType<Test> {
 }
 
 tasks.test {
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
     finalizedBy(tasks.jacocoTestReport) // report is always generated after tests run
 }
 
+tasks.register<Test>("benchmarkTest") {
+    description = "Runs the data-volume benchmarks tagged with 'benchmark'."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    maxHeapSize = "2g"
+    testLogging {
+        showStandardStreams = true
+    }
+}
+
 tasks.jacocoTestReport {
     dependsOn(tasks.test) // tests are required to run before generating the report
 }
 
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+}
+
 jacoco {
     toolVersion = "0.8.12"
     reportsDirectory.set(layout.buildDirectory.dir("reports/jacoco"))
@@ -161,6 +191,10 @@ jooq {
                         key = "defaultNameCase"
                         value = "lower"
                     }
+                    property {
+                        key = "parseIgnoreComments"
+                        value = "true"
+                    }
                     property {
                         key = "logExecutedQueries"
                         value = "true"
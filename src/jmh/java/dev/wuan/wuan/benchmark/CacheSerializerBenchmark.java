@@ -0,0 +1,98 @@
+package dev.wuan.wuan.benchmark;
+
+import dev.wuan.wuan.config.cache.CacheSerializer;
+import dev.wuan.wuan.config.cache.Lz4RedisSerializer;
+import dev.wuan.wuan.dto.urp.PermissionDto;
+import dev.wuan.wuan.dto.urp.RoleDto;
+import dev.wuan.wuan.dto.urp.UserRolePermissionDto;
+import java.time.OffsetDateTime;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Redis缓存值序列化方式对比
+ * 对UserRolePermissionDto与RoleDto对象图比较各序列化方式的编码、解码耗时,
+ * 编码后的字节数在Setup阶段记录到日志
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheSerializerBenchmark {
+
+  private static final Logger log = LoggerFactory.getLogger(CacheSerializerBenchmark.class);
+
+  /** 序列化方式,SMILE_LZ4为Smile编码后超过阈值时LZ4压缩 */
+  @Param({"JDK", "JSON", "SMILE", "SMILE_LZ4"})
+  private String codec;
+
+  /** 对象图类型 */
+  @Param({"user", "role"})
+  private String graph;
+
+  /** 每个角色包含的权限数 */
+  @Param({"10", "100"})
+  private int permissionCount;
+
+  private RedisSerializer<Object> serializer;
+
+  private Object value;
+
+  private byte[] encoded;
+
+  @Setup
+  public void setUp() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    serializer =
+        "SMILE_LZ4".equals(codec)
+            ? new Lz4RedisSerializer(CacheSerializer.SMILE.toSerializer(classLoader), 1024)
+            : CacheSerializer.valueOf(codec).toSerializer(classLoader);
+    value = "user".equals(graph) ? buildUser(5, permissionCount) : buildRole(1, permissionCount);
+    encoded = serializer.serialize(value);
+    log.info(
+        "[payload] codec={} graph={} permissionCount={} bytes={}",
+        codec, graph, permissionCount, encoded.length);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return serializer.serialize(value);
+  }
+
+  @Benchmark
+  public Object decode() {
+    return serializer.deserialize(encoded);
+  }
+
+  private static UserRolePermissionDto buildUser(int roleCount, int permissionCount) {
+    List<RoleDto> roles = new LinkedList<>();
+    for (long roleId = 1; roleId <= roleCount; roleId++) {
+      roles.add(buildRole(roleId, permissionCount));
+    }
+    return new UserRolePermissionDto(
+        1L, "benchmarkUser", "encodedPassword", true, roles, OffsetDateTime.now());
+  }
+
+  private static RoleDto buildRole(long roleId, int permissionCount) {
+    List<PermissionDto> permissions = new LinkedList<>();
+    for (long permissionId = 1; permissionId <= permissionCount; permissionId++) {
+      permissions.add(
+          new PermissionDto(
+              roleId * 1000 + permissionId,
+              "PERMISSION_CODE_" + permissionId,
+              "permission " + permissionId));
+    }
+    return new RoleDto(roleId, "ROLE_CODE_" + roleId, "role " + roleId, permissions);
+  }
+}
@@ -0,0 +1,91 @@
+package dev.wuan.wuan.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import dev.wuan.wuan.config.security.CookieJwt;
+import dev.wuan.wuan.config.security.JwtSigningKeys;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JWT签名与验证开销对比
+ * 使用相同声明比较HS256与ES256的签名、完整验证以及已验证令牌缓存命中的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtSignVerifyBenchmark {
+
+  /** 签名算法 */
+  @Param({JwtSigningKeys.HS256, JwtSigningKeys.ES256})
+  private String algorithm;
+
+  private JwtSigningKeys signingKeys;
+
+  private JWTVerifier verifier;
+
+  private CookieJwt cookieJwt;
+
+  private Instant issuedAt;
+
+  private Instant expiresAt;
+
+  private String token;
+
+  @Setup
+  public void setUp() throws Exception {
+    if (JwtSigningKeys.ES256.equals(algorithm)) {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+      generator.initialize(new ECGenParameterSpec("secp256r1"));
+      KeyPair keyPair = generator.generateKeyPair();
+      signingKeys =
+          JwtSigningKeys.ecdsa256(
+              "bench",
+              (ECPrivateKey) keyPair.getPrivate(),
+              Map.of("bench", (ECPublicKey) keyPair.getPublic()));
+    } else {
+      signingKeys = JwtSigningKeys.hmac256("M3pIZlfyzkJ5Hi9OL");
+    }
+    verifier = signingKeys.buildVerifier();
+    cookieJwt = new CookieJwt(signingKeys, 60, "jwt", 1000);
+    issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    expiresAt = issuedAt.plus(1, ChronoUnit.HOURS);
+    token = sign();
+    cookieJwt.verifyToken(token);
+  }
+
+  @Benchmark
+  public String sign() {
+    return JWT.create()
+        .withSubject("1")
+        .withIssuedAt(issuedAt)
+        .withExpiresAt(expiresAt)
+        .sign(signingKeys.getAlgorithm());
+  }
+
+  @Benchmark
+  public DecodedJWT verify() {
+    return verifier.verify(token);
+  }
+
+  @Benchmark
+  public Boolean verifyCached() {
+    return cookieJwt.verifyToken(token);
+  }
+}
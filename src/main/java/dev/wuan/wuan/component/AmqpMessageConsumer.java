@@ -1,6 +1,7 @@
 package dev.wuan.wuan.component;
 
 import dev.wuan.wuan.dto.amqp.Message;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
@@ -26,27 +27,36 @@ public class AmqpMessageConsumer {
    * 处理工作队列消息
    * @param message 接收到的消息
    */
-  @RabbitListener(id = "handleWorkQueueMessage", queues = "queue.work.default")
+  @RabbitListener(
+      id = "handleWorkQueueMessage",
+      queues = "queue.work.default",
+      containerFactory = "workContainerFactory")
   public void handleWorkQueueMessage(Message message) {
     log.info("Received amqp message {} on queue.work.default", message);
   }
 
   /**
-   * 处理发布/订阅模式队列1的消息
-   * @param message 接收到的消息
+   * 批量处理发布/订阅模式队列1的消息
+   * @param messages 接收到的一批消息
    */
-  @RabbitListener(id = "handleDefaultPubSubQueue1", queues = "queue.pubsub.default.1")
-  public void handleDefaultPubSubQueue1(Message message) {
-    log.info("Received amqp message {} on queue.pubsub.default.1", message);
+  @RabbitListener(
+      id = "handleDefaultPubSubQueue1",
+      queues = "queue.pubsub.default.1",
+      containerFactory = "batchContainerFactory")
+  public void handleDefaultPubSubQueue1(List<Message> messages) {
+    log.info("Received {} amqp messages on queue.pubsub.default.1", messages.size());
   }
 
   /**
-   * 处理发布/订阅模式队列2的消息
-   * @param message 接收到的消息
+   * 批量处理发布/订阅模式队列2的消息
+   * @param messages 接收到的一批消息
    */
-  @RabbitListener(id = "handleDefaultPubSubQueue2", queues = "queue.pubsub.default.2")
-  public void handleDefaultPubSubQueue2(Message message) {
-    log.info("Received amqp message {} on queue.pubsub.default.2", message);
+  @RabbitListener(
+      id = "handleDefaultPubSubQueue2",
+      queues = "queue.pubsub.default.2",
+      containerFactory = "batchContainerFactory")
+  public void handleDefaultPubSubQueue2(List<Message> messages) {
+    log.info("Received {} amqp messages on queue.pubsub.default.2", messages.size());
   }
 
   /**
@@ -0,0 +1,256 @@
+package dev.wuan.wuan.component;
+
+import dev.wuan.wuan.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.batch.SimpleBatchingStrategy;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.BatchingRabbitTemplate;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+/**
+ * AMQP消息发布器
+ * 逐条发布时携带关联ID,通过发布确认异步得知broker是否接收;
+ * 未确认的消息占用有界发件箱的容量,容量用尽时在等待超时后拒绝发布,向调用方施加背压
+ *
+ * <p>合批发布由BatchingRabbitTemplate按条数、字节数与等待时间把多条消息合并为一条AMQP消息,
+ * 吞吐更高,但Spring AMQP不支持为合批消息携带关联数据,因此没有逐条的发布确认。
+ */
+@Slf4j
+@Component
+public class AmqpMessagePublisher {
+
+  private final RabbitTemplate rabbitTemplate;
+
+  private final BatchingRabbitTemplate batchingRabbitTemplate;
+
+  /** 合批发布的定时刷新调度器 */
+  private final ThreadPoolTaskScheduler batchScheduler;
+
+  /** 发件箱剩余容量,每条未确认的消息占用一个许可 */
+  private final Semaphore outboxPermits;
+
+  /** 发件箱容量 */
+  private final int outboxCapacity;
+
+  /** 发件箱已满时的最长等待时间 */
+  private final Duration offerTimeout;
+
+  /** 等待发布确认的最长时间 */
+  private final Duration confirmTimeout;
+
+  private final Counter ackCounter;
+
+  private final Counter nackCounter;
+
+  private final Counter returnedCounter;
+
+  private final Counter timeoutCounter;
+
+  private final Counter rejectedCounter;
+
+  /**
+   * 构造函数
+   * @param rabbitTemplate 启用发布确认的RabbitMQ模板
+   * @param connectionFactory RabbitMQ连接工厂
+   * @param messageConverter 消息转换器
+   * @param meterRegistry 指标注册表,未启用指标时使用内存注册表
+   * @param batchSize 合批发布每批最大消息条数
+   * @param batchBufferLimit 合批发布每批最大字节数
+   * @param lingerMillis 合批发布未满批时最长等待时间(毫秒)
+   * @param outboxCapacity 发件箱容量,即最多未确认消息条数
+   * @param offerTimeoutMillis 发件箱已满时的最长等待时间(毫秒)
+   * @param confirmTimeoutMillis 等待发布确认的最长时间(毫秒)
+   */
+  public AmqpMessagePublisher(
+      RabbitTemplate rabbitTemplate,
+      ConnectionFactory connectionFactory,
+      MessageConverter messageConverter,
+      ObjectProvider<MeterRegistry> meterRegistry,
+      @Value("${amqp.publisher.batch-size:100}") int batchSize,
+      @Value("${amqp.publisher.batch-buffer-limit:65536}") int batchBufferLimit,
+      @Value("${amqp.publisher.linger-ms:10}") long lingerMillis,
+      @Value("${amqp.publisher.outbox-capacity:10000}") int outboxCapacity,
+      @Value("${amqp.publisher.offer-timeout-ms:100}") long offerTimeoutMillis,
+      @Value("${amqp.publisher.confirm-timeout-ms:5000}") long confirmTimeoutMillis) {
+    this.rabbitTemplate = rabbitTemplate;
+    this.outboxCapacity = outboxCapacity;
+    this.outboxPermits = new Semaphore(outboxCapacity);
+    this.offerTimeout = Duration.ofMillis(offerTimeoutMillis);
+    this.confirmTimeout = Duration.ofMillis(confirmTimeoutMillis);
+
+    this.batchScheduler = new ThreadPoolTaskScheduler();
+    this.batchScheduler.setThreadNamePrefix("amqp-batch-");
+    this.batchScheduler.initialize();
+    // 不注册为Bean,否则自动配置的RabbitTemplate会因已存在RabbitOperations而不再创建
+    this.batchingRabbitTemplate =
+        new BatchingRabbitTemplate(
+            connectionFactory,
+            new SimpleBatchingStrategy(batchSize, batchBufferLimit, lingerMillis),
+            batchScheduler);
+    this.batchingRabbitTemplate.setMessageConverter(messageConverter);
+
+    MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+    this.ackCounter = confirmCounter(registry, "ack");
+    this.nackCounter = confirmCounter(registry, "nack");
+    this.returnedCounter = confirmCounter(registry, "returned");
+    this.timeoutCounter = confirmCounter(registry, "timeout");
+    this.rejectedCounter =
+        Counter.builder("amqp.publisher.rejected")
+            .description("发件箱已满被拒绝的消息条数")
+            .register(registry);
+    Gauge.builder("amqp.publisher.outbox.pending", this, AmqpMessagePublisher::getPendingCount)
+        .description("已发送但尚未确认的消息条数")
+        .register(registry);
+  }
+
+  /**
+   * 发布单条消息
+   * @param exchange 交换机
+   * @param routingKey 路由键
+   * @param message 消息内容
+   * @return broker确认接收后完成,未确认、被退回或确认超时时异常完成
+   * @throws BusinessException 发件箱已满时抛出
+   */
+  public CompletableFuture<Void> publish(String exchange, String routingKey, Object message) {
+    acquire(1);
+    return send(exchange, routingKey, message);
+  }
+
+  /**
+   * 连续发布多条消息,发送之间不等待确认
+   * @param exchange 交换机
+   * @param routingKey 路由键
+   * @param messages 消息列表
+   * @return 全部消息确认接收后完成,任一消息失败时异常完成
+   * @throws BusinessException 发件箱剩余容量不足时抛出
+   */
+  public CompletableFuture<Void> publishAll(
+      String exchange, String routingKey, List<?> messages) {
+    if (messages.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    acquire(messages.size());
+    CompletableFuture<?>[] confirms =
+        messages.stream()
+            .map(message -> send(exchange, routingKey, message))
+            .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(confirms);
+  }
+
+  /**
+   * 合批发布多条消息
+   * 消息先进入当前批次,批次满或等待时间到期后作为一条AMQP消息发送,消费端容器自动拆批
+   * @param exchange 交换机
+   * @param routingKey 路由键
+   * @param messages 消息列表
+   */
+  public void publishBatched(String exchange, String routingKey, List<?> messages) {
+    messages.forEach(
+        message -> batchingRabbitTemplate.convertAndSend(exchange, routingKey, message));
+  }
+
+  /**
+   * 获取未确认消息条数
+   * @return 未确认消息条数
+   */
+  public int getPendingCount() {
+    return outboxCapacity - outboxPermits.availablePermits();
+  }
+
+  /**
+   * 关闭前发送尚未满批的消息
+   */
+  @PreDestroy
+  public void destroy() {
+    batchingRabbitTemplate.flush();
+    batchScheduler.shutdown();
+  }
+
+  private void acquire(int permits) {
+    if (permits > outboxCapacity) {
+      throw new BusinessException("publish batch exceeds outbox capacity");
+    }
+    boolean acquired;
+    try {
+      acquired =
+          outboxPermits.tryAcquire(permits, offerTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BusinessException("interrupted while waiting for publisher outbox", e);
+    }
+    if (!acquired) {
+      rejectedCounter.increment(permits);
+      log.warn("发件箱已满, 拒绝发布, 消息条数: {}, 未确认: {}", permits, getPendingCount());
+      throw new BusinessException("publisher outbox is full");
+    }
+  }
+
+  private CompletableFuture<Void> send(String exchange, String routingKey, Object message) {
+    CorrelationData correlationData = new CorrelationData(UUID.randomUUID().toString());
+    try {
+      rabbitTemplate.convertAndSend(exchange, routingKey, message, correlationData);
+    } catch (AmqpException e) {
+      outboxPermits.release();
+      return CompletableFuture.failedFuture(e);
+    }
+    return correlationData
+        .getFuture()
+        .orTimeout(confirmTimeout.toMillis(), TimeUnit.MILLISECONDS)
+        .handle(
+            (confirm, ex) -> {
+              outboxPermits.release();
+              if (ex != null) {
+                timeoutCounter.increment();
+                throw new CompletionException(
+                    new AmqpException(
+                        "publisher confirm timed out, id: " + correlationData.getId(), ex));
+              }
+              if (!confirm.isAck()) {
+                nackCounter.increment();
+                throw new CompletionException(
+                    new AmqpException(
+                        "message nacked by broker, id: "
+                            + correlationData.getId()
+                            + ", reason: "
+                            + confirm.getReason()));
+              }
+              if (correlationData.getReturned() != null) {
+                returnedCounter.increment();
+                throw new CompletionException(
+                    new AmqpException(
+                        "message returned as unroutable, id: "
+                            + correlationData.getId()
+                            + ", reply: "
+                            + correlationData.getReturned().getReplyText()));
+              }
+              ackCounter.increment();
+              return null;
+            });
+  }
+
+  private static Counter confirmCounter(MeterRegistry registry, String result) {
+    return Counter.builder("amqp.publisher.confirms")
+        .description("发布确认结果")
+        .tag("result", result)
+        .register(registry);
+  }
+}
@@ -0,0 +1,107 @@
+package dev.wuan.wuan.component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.stream.Consumer;
+import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.MessageHandler;
+import com.rabbitmq.stream.OffsetSpecification;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 流队列消费者组件
+ * 通过流客户端订阅流队列,具名消费者的偏移量由broker保存:
+ * 首次订阅从给定位置开始,之后以同名订阅时从上次保存的偏移量之后继续
+ */
+@Slf4j
+@Component
+public class AmqpStreamConsumer {
+
+  private final Environment environment;
+
+  private final ObjectMapper objectMapper;
+
+  /** 每处理多少条消息保存一次偏移量 */
+  private final int messageCountBeforeStorage;
+
+  /** 没有新消息时保存偏移量的间隔 */
+  private final Duration flushInterval;
+
+  /**
+   * 构造函数
+   * @param environment 流客户端环境
+   * @param objectMapper JSON序列化组件
+   * @param messageCountBeforeStorage 每处理多少条消息保存一次偏移量
+   * @param flushIntervalMillis 没有新消息时保存偏移量的间隔(毫秒)
+   */
+  public AmqpStreamConsumer(
+      Environment environment,
+      ObjectMapper objectMapper,
+      @Value("${amqp.stream.tracking.message-count-before-storage:10000}")
+          int messageCountBeforeStorage,
+      @Value("${amqp.stream.tracking.flush-interval-ms:5000}") long flushIntervalMillis) {
+    this.environment = environment;
+    this.objectMapper = objectMapper;
+    this.messageCountBeforeStorage = messageCountBeforeStorage;
+    this.flushInterval = Duration.ofMillis(flushIntervalMillis);
+  }
+
+  /**
+   * 以具名消费者订阅流队列,自动保存偏移量
+   * 处理器抛出异常时不会重试,消息仍保留在流中,可按偏移量重放
+   * @param stream 流队列名称
+   * @param name 消费者名称,偏移量按 流队列+名称 保存
+   * @param offset 没有已保存的偏移量时的起始位置
+   * @param handler 消息处理器
+   * @return 消费者,调用方负责关闭,关闭时保存最后处理的偏移量
+   */
+  public Consumer subscribe(
+      String stream, String name, OffsetSpecification offset, MessageHandler handler) {
+    log.info("订阅流队列, stream: {}, consumer: {}", stream, name);
+    return environment.consumerBuilder()
+        .stream(stream)
+        .name(name)
+        .offset(offset)
+        .autoTrackingStrategy()
+        .messageCountBeforeStorage(messageCountBeforeStorage)
+        .flushInterval(flushInterval)
+        .builder()
+        .messageHandler(handler)
+        .build();
+  }
+
+  /**
+   * 以具名消费者订阅流队列,消息体按JSON反序列化
+   * @param stream 流队列名称
+   * @param name 消费者名称
+   * @param offset 没有已保存的偏移量时的起始位置
+   * @param type 消息体类型
+   * @param handler 消息处理器
+   * @param <T> 消息体类型
+   * @return 消费者,调用方负责关闭
+   */
+  public <T> Consumer subscribe(
+      String stream,
+      String name,
+      OffsetSpecification offset,
+      Class<T> type,
+      java.util.function.Consumer<T> handler) {
+    return subscribe(
+        stream,
+        name,
+        offset,
+        (context, message) -> handler.accept(readBody(message.getBodyAsBinary(), type)));
+  }
+
+  private <T> T readBody(byte[] body, Class<T> type) {
+    try {
+      return objectMapper.readValue(body, type);
+    } catch (IOException e) {
+      throw new UncheckedIOException("stream message is not readable as " + type.getName(), e);
+    }
+  }
+}
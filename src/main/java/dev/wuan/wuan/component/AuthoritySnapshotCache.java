@@ -0,0 +1,238 @@
+package dev.wuan.wuan.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.wuan.wuan.dto.urp.AuthoritySnapshot;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 用户权限快照两级缓存
+ * 本地Caffeine作为一级缓存,Redis作为二级缓存,权限绑定变更时按用户精确失效。
+ * 失效时同时更新用户的快照版本,回填Redis前校验版本未变,
+ * 避免在事务提交前从数据库读到旧权限的请求在失效之后把旧快照写回
+ */
+@Slf4j
+@Component
+public class AuthoritySnapshotCache implements MessageListener {
+
+  /** Redis中快照的键前缀 */
+  public static final String KEY_PREFIX = "urp:authority:";
+
+  /** 跨节点失效通知频道 */
+  public static final String EVICT_CHANNEL = "urp:authority:evict";
+
+  /** Redis中快照版本的键前缀 */
+  public static final String VERSION_KEY_PREFIX = "urp:authority:version:";
+
+  /** 版本与加载前读取的一致时才写入快照,版本不存在时视为空字符串 */
+  private static final RedisScript<Long> WRITE_IF_VERSION_SCRIPT =
+      new DefaultRedisScript<>(
+          "if (redis.call('get', KEYS[2]) or '') == ARGV[1] then "
+              + "redis.call('set', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1 "
+              + "else return 0 end",
+          Long.class);
+
+  /** 失效通知中用户ID的分隔符 */
+  private static final String ID_DELIMITER = ",";
+
+  private final StringRedisTemplate stringRedisTemplate;
+
+  private final ObjectMapper objectMapper;
+
+  private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+  /** Redis中快照的过期时间,也是快照版本的过期时间 */
+  private final Duration remoteTtl;
+
+  /** 本地一级缓存 */
+  private final Cache<Long, AuthoritySnapshot> localCache;
+
+  /**
+   * 构造函数
+   * @param stringRedisTemplate Redis模板
+   * @param objectMapper JSON序列化器
+   * @param redisMessageListenerContainer Redis消息监听容器
+   * @param localTtlSeconds 本地缓存过期时间(秒)
+   * @param localMaxSize 本地缓存最大条目数
+   * @param remoteTtlSeconds Redis缓存过期时间(秒)
+   */
+  public AuthoritySnapshotCache(
+      StringRedisTemplate stringRedisTemplate,
+      ObjectMapper objectMapper,
+      RedisMessageListenerContainer redisMessageListenerContainer,
+      @Value("${urp.authority-cache.local-ttl-seconds:30}") long localTtlSeconds,
+      @Value("${urp.authority-cache.local-max-size:10000}") long localMaxSize,
+      @Value("${urp.authority-cache.remote-ttl-seconds:600}") long remoteTtlSeconds) {
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.objectMapper = objectMapper;
+    this.redisMessageListenerContainer = redisMessageListenerContainer;
+    this.remoteTtl = Duration.ofSeconds(remoteTtlSeconds);
+    this.localCache =
+        Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+            .build();
+  }
+
+  /**
+   * 订阅跨节点失效通知
+   */
+  @PostConstruct
+  public void subscribeEviction() {
+    redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(EVICT_CHANNEL));
+  }
+
+  /**
+   * 获取用户权限快照
+   * 依次查询本地缓存、Redis缓存,均未命中时调用加载函数并回填两级缓存
+   * @param userId 用户ID
+   * @param loader 数据库加载函数
+   * @return 权限快照,用户不存在时返回空
+   */
+  public Optional<AuthoritySnapshot> get(
+      Long userId, Function<Long, Optional<AuthoritySnapshot>> loader) {
+    return Optional.ofNullable(localCache.get(userId, id -> loadThroughRemote(id, loader)));
+  }
+
+  /**
+   * 失效指定用户的权限快照
+   * 存在事务时在事务提交后执行,避免并发请求读到旧数据后重新回填
+   * @param userIds 用户ID集合
+   */
+  public void evict(Collection<Long> userIds) {
+    if (userIds == null || userIds.isEmpty()) {
+      return;
+    }
+    List<Long> evictUserIds = List.copyOf(userIds);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              doEvict(evictUserIds);
+            }
+          });
+    } else {
+      doEvict(evictUserIds);
+    }
+  }
+
+  /**
+   * 处理其他节点发布的失效通知,仅清理本地缓存
+   * @param message 消息内容,逗号分隔的用户ID
+   * @param pattern 订阅模式
+   */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    List<Long> userIds =
+        Arrays.stream(body.split(ID_DELIMITER))
+            .filter(id -> !id.isBlank())
+            .map(Long::valueOf)
+            .toList();
+    localCache.invalidateAll(userIds);
+  }
+
+  private AuthoritySnapshot loadThroughRemote(
+      Long userId, Function<Long, Optional<AuthoritySnapshot>> loader) {
+    String key = KEY_PREFIX + userId;
+    AuthoritySnapshot remoteSnapshot = readRemote(key);
+    if (remoteSnapshot != null) {
+      return remoteSnapshot;
+    }
+    // 加载前读取版本,加载期间发生失效时版本改变,回填被拒绝
+    String versionKey = VERSION_KEY_PREFIX + userId;
+    String version = readVersion(versionKey);
+    AuthoritySnapshot snapshot = loader.apply(userId).orElse(null);
+    if (snapshot != null && version != null) {
+      writeRemote(key, versionKey, version, snapshot);
+    }
+    return snapshot;
+  }
+
+  private AuthoritySnapshot readRemote(String key) {
+    try {
+      String json = stringRedisTemplate.opsForValue().get(key);
+      return json == null ? null : objectMapper.readValue(json, AuthoritySnapshot.class);
+    } catch (JsonProcessingException e) {
+      log.warn("权限快照反序列化失败, key: {}", key, e);
+      return null;
+    } catch (RuntimeException e) {
+      // Redis不可用时降级为直接查询数据库
+      log.warn("读取Redis权限快照失败, key: {}", key, e);
+      return null;
+    }
+  }
+
+  /**
+   * 读取快照版本
+   * @return 版本,不存在时为空字符串,Redis不可用时为null
+   */
+  private String readVersion(String versionKey) {
+    try {
+      return Objects.toString(stringRedisTemplate.opsForValue().get(versionKey), "");
+    } catch (RuntimeException e) {
+      log.warn("读取Redis权限快照版本失败, key: {}", versionKey, e);
+      return null;
+    }
+  }
+
+  private void writeRemote(
+      String key, String versionKey, String version, AuthoritySnapshot snapshot) {
+    try {
+      Long written =
+          stringRedisTemplate.execute(
+              WRITE_IF_VERSION_SCRIPT,
+              List.of(key, versionKey),
+              version,
+              objectMapper.writeValueAsString(snapshot),
+              String.valueOf(remoteTtl.toMillis()));
+      if (written == null || written == 0) {
+        log.debug("权限快照加载期间已失效, 跳过回填, key: {}", key);
+      }
+    } catch (JsonProcessingException | RuntimeException e) {
+      log.warn("写入Redis权限快照失败, key: {}", key, e);
+    }
+  }
+
+  private void doEvict(List<Long> userIds) {
+    localCache.invalidateAll(userIds);
+    try {
+      // 先更新版本再删除快照,加载中的请求随后回填时版本不一致
+      String version = UUID.randomUUID().toString();
+      for (Long userId : userIds) {
+        stringRedisTemplate.opsForValue().set(VERSION_KEY_PREFIX + userId, version, remoteTtl);
+      }
+      stringRedisTemplate.delete(userIds.stream().map(id -> KEY_PREFIX + id).toList());
+      stringRedisTemplate.convertAndSend(
+          EVICT_CHANNEL,
+          userIds.stream().map(String::valueOf).collect(Collectors.joining(ID_DELIMITER)));
+    } catch (RuntimeException e) {
+      log.warn("失效权限快照失败, userIds: {}", userIds, e);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package dev.wuan.wuan.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * 合批广播组件
+ * 同一目的地在时间窗口内的广播合并为一帧,消息体为JSON数组;
+ * 整批只做一次JSON序列化,代理向各订阅者分发时仍会为每个会话编码一帧STOMP帧。
+ * 未启用时不创建发送线程,广播直接逐条发送
+ */
+@Slf4j
+@Component
+public class BatchingBroadcaster {
+
+  /** 合批帧中的消息条数 */
+  public static final String HEADER_BATCH_SIZE = "batch-size";
+
+  private final SimpMessageSendingOperations messagingTemplate;
+
+  private final ObjectMapper objectMapper;
+
+  /** 是否启用合批广播 */
+  private final boolean enabled;
+
+  /** 合批时间窗口 */
+  private final Duration window;
+
+  /** 每帧最大消息条数,达到后立即发送 */
+  private final int maxBatchSize;
+
+  private final DistributionSummary batchSizeSummary;
+
+  /** 合批发送线程,仅在启用合批广播时创建 */
+  private final ThreadPoolTaskScheduler flushScheduler;
+
+  private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+  /**
+   * 构造函数
+   * @param messagingTemplate 消息模板
+   * @param objectMapper JSON序列化组件
+   * @param meterRegistry 指标注册表
+   * @param enabled 是否启用合批广播
+   * @param windowMillis 合批时间窗口(毫秒)
+   * @param maxBatchSize 每帧最大消息条数
+   */
+  public BatchingBroadcaster(
+      SimpMessageSendingOperations messagingTemplate,
+      ObjectMapper objectMapper,
+      ObjectProvider<MeterRegistry> meterRegistry,
+      @Value("${websocket.broadcast.batching.enabled:false}") boolean enabled,
+      @Value("${websocket.broadcast.batching.window-ms:50}") long windowMillis,
+      @Value("${websocket.broadcast.batching.max-batch-size:100}") int maxBatchSize) {
+    this.messagingTemplate = messagingTemplate;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.window = Duration.ofMillis(windowMillis);
+    this.maxBatchSize = maxBatchSize;
+    this.batchSizeSummary =
+        DistributionSummary.builder("websocket.broadcast.batch.size")
+            .description("每个合批广播帧中的消息条数")
+            .register(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    this.flushScheduler = enabled ? createFlushScheduler() : null;
+  }
+
+  /**
+   * 是否启用合批广播
+   * @return 未启用时调用方应逐条发送
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * 广播消息,在时间窗口结束或达到最大条数时与同一目的地的其他消息合并发送;
+   * 未启用合批广播时直接发送
+   * @param destination 目的地
+   * @param payload 消息内容
+   */
+  public void broadcast(String destination, Object payload) {
+    if (!enabled) {
+      messagingTemplate.convertAndSend(destination, payload);
+      return;
+    }
+    Batch batch = batches.computeIfAbsent(destination, key -> new Batch());
+    batch.payloads.add(payload);
+    if (batch.size.incrementAndGet() >= maxBatchSize) {
+      flushScheduler.execute(() -> flush(destination, batch));
+    } else if (batch.scheduled.compareAndSet(false, true)) {
+      flushScheduler.schedule(
+          () -> flush(destination, batch), flushScheduler.getClock().instant().plus(window));
+    }
+  }
+
+  /**
+   * 关闭前发送尚未发出的消息
+   */
+  @PreDestroy
+  public void destroy() {
+    if (flushScheduler == null) {
+      return;
+    }
+    batches.forEach(this::flush);
+    flushScheduler.shutdown();
+  }
+
+  private static ThreadPoolTaskScheduler createFlushScheduler() {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setThreadNamePrefix("ws-broadcast-");
+    scheduler.initialize();
+    return scheduler;
+  }
+
+  private void flush(String destination, Batch batch) {
+    batch.scheduled.set(false);
+    List<Object> payloads = new ArrayList<>(Math.min(batch.size.get(), maxBatchSize));
+    Object payload;
+    while (payloads.size() < maxBatchSize && (payload = batch.payloads.poll()) != null) {
+      payloads.add(payload);
+    }
+    if (payloads.isEmpty()) {
+      return;
+    }
+    batch.size.addAndGet(-payloads.size());
+    // 仍有剩余时继续安排下一帧
+    if (batch.size.get() > 0 && batch.scheduled.compareAndSet(false, true)) {
+      flushScheduler.execute(() -> flush(destination, batch));
+    }
+    messagingTemplate.send(destination, toMessage(payloads));
+    batchSizeSummary.record(payloads.size());
+  }
+
+  private Message<byte[]> toMessage(List<Object> payloads) {
+    byte[] body;
+    try {
+      body = objectMapper.writeValueAsBytes(payloads);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("broadcast payload is not serializable", e);
+    }
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+    accessor.setNativeHeader(HEADER_BATCH_SIZE, String.valueOf(payloads.size()));
+    accessor.setLeaveMutable(true);
+    return MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+  }
+
+  /**
+   * 单个目的地待发送的消息
+   */
+  private static class Batch {
+
+    private final Queue<Object> payloads = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** 是否已安排发送 */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+  }
+}
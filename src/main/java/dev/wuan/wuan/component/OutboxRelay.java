@@ -0,0 +1,227 @@
+package dev.wuan.wuan.component;
+
+import dev.wuan.wuan.repository.OutboxEventRepository;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.generated.wuan.tables.pojos.OutboxEvent;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 发件箱中继
+ * 在后台线程中轮询发件箱,按批认领事件发布到主题交换机,全部得到发布确认后删除;
+ * 发布失败时事务回滚,事件留在发件箱中等待下次重试,因此投递语义为至少一次
+ *
+ * <p>同一聚合的事件只会被一个中继认领,并按id顺序在同一信道上发布,保证单个聚合内的顺序。
+ * 消费方可根据消息ID(即事件ID)去重。
+ */
+@Slf4j
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+  /** 事件发布的目标交换机 */
+  public static final String EXCHANGE = "exchange.topic.default";
+
+  /** 聚合类型消息头 */
+  public static final String HEADER_AGGREGATE_TYPE = "x-aggregate-type";
+
+  /** 聚合ID消息头 */
+  public static final String HEADER_AGGREGATE_ID = "x-aggregate-id";
+
+  private final OutboxEventRepository outboxEventRepository;
+
+  private final RabbitTemplate rabbitTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  /** 是否启动中继 */
+  private final boolean enabled;
+
+  /** 每批最多发布的事件数 */
+  private final int batchSize;
+
+  /** 发件箱未满一批时的轮询间隔 */
+  private final Duration pollInterval;
+
+  /** 等待一批发布确认的最长时间 */
+  private final Duration confirmTimeout;
+
+  /** 发布失败后的等待时间 */
+  private final Duration errorBackoff;
+
+  private volatile boolean running;
+
+  private volatile Thread worker;
+
+  /**
+   * 构造函数
+   * @param outboxEventRepository 发件箱仓储
+   * @param rabbitTemplate 启用发布确认的RabbitMQ模板
+   * @param transactionTemplate 事务模板
+   * @param enabled 是否启动中继
+   * @param batchSize 每批最多发布的事件数
+   * @param pollIntervalMillis 发件箱未满一批时的轮询间隔(毫秒)
+   * @param confirmTimeoutMillis 等待一批发布确认的最长时间(毫秒)
+   * @param errorBackoffMillis 发布失败后的等待时间(毫秒)
+   */
+  public OutboxRelay(
+      OutboxEventRepository outboxEventRepository,
+      RabbitTemplate rabbitTemplate,
+      TransactionTemplate transactionTemplate,
+      @Value("${outbox.relay.enabled:true}") boolean enabled,
+      @Value("${outbox.relay.batch-size:200}") int batchSize,
+      @Value("${outbox.relay.poll-interval-ms:200}") long pollIntervalMillis,
+      @Value("${outbox.relay.confirm-timeout-ms:5000}") long confirmTimeoutMillis,
+      @Value("${outbox.relay.error-backoff-ms:5000}") long errorBackoffMillis) {
+    this.outboxEventRepository = outboxEventRepository;
+    this.rabbitTemplate = rabbitTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.pollInterval = Duration.ofMillis(pollIntervalMillis);
+    this.confirmTimeout = Duration.ofMillis(confirmTimeoutMillis);
+    this.errorBackoff = Duration.ofMillis(errorBackoffMillis);
+  }
+
+  @Override
+  public void start() {
+    if (!enabled || running) {
+      return;
+    }
+    running = true;
+    worker = Thread.ofVirtual().name("outbox-relay").start(this::loop);
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    Thread current = worker;
+    if (current != null) {
+      current.interrupt();
+      try {
+        current.join(confirmTimeout.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * 认领并发布一批事件
+   * @return 发布的事件数
+   */
+  public int relayBatch() {
+    Integer relayed =
+        transactionTemplate.execute(
+            status -> {
+              List<OutboxEvent> heads = outboxEventRepository.claimAggregateHeads(batchSize);
+              if (heads.isEmpty()) {
+                return 0;
+              }
+              List<OutboxEvent> events =
+                  outboxEventRepository.lockByAggregateIn(heads, batchSize);
+              publish(events);
+              outboxEventRepository.deleteByIdIn(
+                  events.stream().map(OutboxEvent::getId).toList());
+              return events.size();
+            });
+    return relayed == null ? 0 : relayed;
+  }
+
+  private void loop() {
+    while (running) {
+      try {
+        if (relayBatch() < batchSize) {
+          Thread.sleep(pollInterval.toMillis());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        log.warn("发件箱事件发布失败, {}ms后重试", errorBackoff.toMillis(), e);
+        try {
+          Thread.sleep(errorBackoff.toMillis());
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * 在同一信道上按顺序发布,并等待全部发布确认
+   */
+  private void publish(List<OutboxEvent> events) {
+    List<CorrelationData> confirms =
+        rabbitTemplate.invoke(
+            operations -> {
+              List<CorrelationData> sent = new ArrayList<>(events.size());
+              for (OutboxEvent event : events) {
+                CorrelationData correlationData =
+                    new CorrelationData(String.valueOf(event.getId()));
+                operations.send(EXCHANGE, event.getEventType(), toMessage(event), correlationData);
+                sent.add(correlationData);
+              }
+              return sent;
+            });
+    long deadline = System.nanoTime() + confirmTimeout.toNanos();
+    for (CorrelationData correlationData : confirms) {
+      CorrelationData.Confirm confirm;
+      try {
+        confirm =
+            correlationData
+                .getFuture()
+                .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AmqpException("interrupted while waiting for outbox publisher confirms", e);
+      } catch (ExecutionException | TimeoutException e) {
+        throw new AmqpException(
+            "outbox event not confirmed, id: " + correlationData.getId(), e);
+      }
+      // 没有队列绑定该路由键时消息被退回,但broker仍会确认,视为发布成功
+      if (!confirm.isAck()) {
+        throw new AmqpException(
+            "outbox event nacked by broker, id: "
+                + correlationData.getId()
+                + ", reason: "
+                + confirm.getReason());
+      }
+    }
+  }
+
+  private static Message toMessage(OutboxEvent event) {
+    return MessageBuilder.withBody(event.getPayload().getBytes(StandardCharsets.UTF_8))
+        .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+        .setContentEncoding(StandardCharsets.UTF_8.name())
+        .setMessageId(String.valueOf(event.getId()))
+        .setType(event.getEventType())
+        .setTimestamp(Date.from(event.getCreateTime().toInstant()))
+        .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+        .setHeader(HEADER_AGGREGATE_TYPE, event.getAggregateType())
+        .setHeader(HEADER_AGGREGATE_ID, event.getAggregateId())
+        .build();
+  }
+}
@@ -0,0 +1,44 @@
+package dev.wuan.wuan.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 分页总数估算组件
+ * 按查询条件缓存计数结果,过期前的分页请求直接复用,避免每页都统计整个过滤结果集
+ */
+@Component
+public class PageTotalEstimator {
+
+  /** 查询条件到计数结果的缓存 */
+  private final Cache<String, Long> totalCache;
+
+  /**
+   * 构造函数
+   * @param ttlSeconds 计数缓存过期时间(秒)
+   * @param maxSize 计数缓存最大条目数
+   */
+  public PageTotalEstimator(
+      @Value("${page.estimated-total.ttl-seconds:60}") long ttlSeconds,
+      @Value("${page.estimated-total.max-size:1000}") long maxSize) {
+    this.totalCache =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .build();
+  }
+
+  /**
+   * 获取估算总数
+   * @param key 查询条件标识,相同条件应生成相同标识
+   * @param counter 缓存未命中时执行的精确计数
+   * @return 缓存中的计数,未命中时为本次精确计数
+   */
+  public long estimate(String key, LongSupplier counter) {
+    return totalCache.get(key, ignored -> counter.getAsLong());
+  }
+}
@@ -0,0 +1,185 @@
+package dev.wuan.wuan.component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.cache.BatchStrategy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 验证码存储
+ * 签发与校验各通过一个Lua脚本原子完成,每次操作只有一次Redis往返;
+ * 按标识限制窗口内的签发次数与单个验证码的校验尝试次数
+ */
+@Component
+public class VerifyCodeStore {
+
+  /** 验证码相关键的前缀 */
+  public static final String KEY_PREFIX = "verify-code:";
+
+  /** 校验结果 */
+  public enum VerifyResult {
+    /** 验证码匹配,已删除 */
+    MATCHED,
+    /** 验证码不匹配 */
+    MISMATCHED,
+    /** 验证码不存在或已过期 */
+    NOT_FOUND,
+    /** 尝试次数用尽,验证码已删除 */
+    LOCKED
+  }
+
+  private static final RedisScript<Long> ISSUE_SCRIPT =
+      loadScript("scripts/verify-code-issue.lua");
+
+  private static final RedisScript<Long> VERIFY_SCRIPT =
+      loadScript("scripts/verify-code-verify.lua");
+
+  /** 清除指标中使用的名称 */
+  private static final String EVICTION_NAME = "verifyCode";
+
+  private final StringRedisTemplate stringRedisTemplate;
+
+  /** 批量清除策略 */
+  private final BatchStrategy batchStrategy;
+
+  /** 验证码有效期 */
+  private final Duration ttl;
+
+  /** 单个验证码最大校验尝试次数 */
+  private final int maxAttempts;
+
+  /** 签发窗口内最大签发次数 */
+  private final int issueLimit;
+
+  /** 签发次数统计窗口 */
+  private final Duration issueWindow;
+
+  /**
+   * 构造函数
+   * @param stringRedisTemplate Redis模板
+   * @param batchStrategy 批量清除策略
+   * @param ttlSeconds 验证码有效期(秒)
+   * @param maxAttempts 单个验证码最大校验尝试次数
+   * @param issueLimit 签发窗口内最大签发次数
+   * @param issueWindowSeconds 签发次数统计窗口(秒)
+   */
+  public VerifyCodeStore(
+      StringRedisTemplate stringRedisTemplate,
+      BatchStrategy batchStrategy,
+      @Value("${verify-code.ttl-seconds:60}") long ttlSeconds,
+      @Value("${verify-code.max-attempts:5}") int maxAttempts,
+      @Value("${verify-code.issue-limit:5}") int issueLimit,
+      @Value("${verify-code.issue-window-seconds:600}") long issueWindowSeconds) {
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.batchStrategy = batchStrategy;
+    this.ttl = Duration.ofSeconds(ttlSeconds);
+    this.maxAttempts = maxAttempts;
+    this.issueLimit = issueLimit;
+    this.issueWindow = Duration.ofSeconds(issueWindowSeconds);
+  }
+
+  /**
+   * 签发验证码,覆盖旧验证码并重置尝试次数
+   * @param identify 标识
+   * @param code 验证码
+   * @return 签发成功返回true,窗口内签发次数超限返回false
+   */
+  public boolean issue(String identify, String code) {
+    Long result =
+        stringRedisTemplate.execute(
+            ISSUE_SCRIPT,
+            List.of(codeKey(identify), attemptsKey(identify), issuesKey(identify)),
+            code,
+            String.valueOf(ttl.toMillis()),
+            String.valueOf(issueLimit),
+            String.valueOf(issueWindow.toMillis()));
+    return result != null && result == 1L;
+  }
+
+  /**
+   * 校验验证码,匹配时删除,连续不匹配达到上限时同样删除
+   * @param identify 标识
+   * @param code 待校验验证码
+   * @return 校验结果
+   */
+  public VerifyResult verify(String identify, String code) {
+    Long result =
+        stringRedisTemplate.execute(
+            VERIFY_SCRIPT,
+            List.of(codeKey(identify), attemptsKey(identify)),
+            code,
+            String.valueOf(maxAttempts),
+            String.valueOf(ttl.toMillis()));
+    if (result == null) {
+      return VerifyResult.NOT_FOUND;
+    }
+    return switch (result.intValue()) {
+      case 1 -> VerifyResult.MATCHED;
+      case 0 -> VerifyResult.MISMATCHED;
+      case -2 -> VerifyResult.LOCKED;
+      default -> VerifyResult.NOT_FOUND;
+    };
+  }
+
+  /**
+   * 获取当前验证码
+   * @param identify 标识
+   * @return 验证码,不存在时返回null
+   */
+  public String get(String identify) {
+    return stringRedisTemplate.opsForValue().get(codeKey(identify));
+  }
+
+  /**
+   * 删除验证码及其尝试次数,签发次数保留以继续限流
+   * @param identify 标识
+   */
+  public void remove(String identify) {
+    stringRedisTemplate.delete(List.of(codeKey(identify), attemptsKey(identify)));
+  }
+
+  /**
+   * 删除所有验证码及尝试次数,签发次数保留以继续限流
+   * 通过批量清除策略以SCAN分批遍历并UNLINK删除,避免阻塞Redis
+   * @return 删除的键数
+   */
+  public long clear() {
+    return stringRedisTemplate.execute(
+        connection ->
+            batchStrategy.cleanCache(connection, EVICTION_NAME, pattern("code"))
+                + batchStrategy.cleanCache(connection, EVICTION_NAME, pattern("attempts")),
+        true);
+  }
+
+  // 同一标识的键使用相同的hash tag,集群模式下落在同一槽位以便在一个脚本中操作
+
+  private static String codeKey(String identify) {
+    return KEY_PREFIX + "{" + identify + "}:code";
+  }
+
+  private static String attemptsKey(String identify) {
+    return KEY_PREFIX + "{" + identify + "}:attempts";
+  }
+
+  private static String issuesKey(String identify) {
+    return KEY_PREFIX + "{" + identify + "}:issues";
+  }
+
+  private static byte[] pattern(String suffix) {
+    return (KEY_PREFIX + "*:" + suffix).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static RedisScript<Long> loadScript(String path) {
+    DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+    script.setScriptSource(new ResourceScriptSource(new ClassPathResource(path)));
+    script.setResultType(Long.class);
+    return script;
+  }
+}
@@ -1,18 +1,60 @@
 package dev.wuan.wuan.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+import org.springframework.retry.support.RetryTemplate;
 
 /**
  * AMQP配置类
- * 用于配置RabbitMQ的交换机、队列、绑定关系等
+ * 用于配置RabbitMQ的交换机、队列、绑定关系与监听容器工厂等
+ *
+ * <p>监听失败的消息先就地重试,仍失败时投递到重试交换机,按层级进入TTL递增的延迟队列,
+ * TTL到期后经重新入队交换机回到原队列;层级用尽或被拒绝的消息经死信交换机进入停车场队列,等待人工处理。
+ *
+ * <p>主题与发布/订阅队列的类型由{@link AmqpQueueProperties}配置,可声明为经典、仲裁或流队列。
  */
+@Slf4j
 @Configuration
+@EnableConfigurationProperties({AmqpListenerProperties.class, AmqpQueueProperties.class})
 public class AmqpConfig {
 
+  /** 死信交换机,投递到停车场队列 */
+  public static final String DEAD_LETTER_EXCHANGE = "exchange.dlx.default";
+
+  /** 停车场队列 */
+  public static final String PARKING_LOT_QUEUE = "queue.parking-lot.default";
+
+  /** 重试交换机,按重试层级消息头路由到延迟队列 */
+  public static final String RETRY_EXCHANGE = "exchange.retry.default";
+
+  /** 延迟队列名称前缀,后接层级 */
+  public static final String RETRY_QUEUE_PREFIX = "queue.retry.default.";
+
+  /** 重新入队交换机,以队列名为路由键将延迟到期的消息路由回原队列 */
+  public static final String REQUEUE_EXCHANGE = "exchange.requeue.default";
+
   /**
    * 配置默认直连交换机
    * @return DirectExchange实例
@@ -42,38 +84,42 @@ public class AmqpConfig {
 
   /**
    * 配置主题模式队列1
+   * @param properties 队列声明配置
    * @return Queue实例
    */
   @Bean
-  Queue defaultTopicQueue1() {
-    return new Queue("queue.topic.default.1");
+  Queue defaultTopicQueue1(AmqpQueueProperties properties) {
+    return properties.getTopic().toQueue("queue.topic.default.1", DEAD_LETTER_EXCHANGE);
   }
 
   /**
    * 配置主题模式队列2
+   * @param properties 队列声明配置
    * @return Queue实例
    */
   @Bean
-  Queue defaultTopicQueue2() {
-    return new Queue("queue.topic.default.2");
+  Queue defaultTopicQueue2(AmqpQueueProperties properties) {
+    return properties.getTopic().toQueue("queue.topic.default.2", DEAD_LETTER_EXCHANGE);
   }
 
   /**
    * 配置发布/订阅模式队列1
+   * @param properties 队列声明配置
    * @return Queue实例
    */
   @Bean
-  Queue defaultPubSubQueue1() {
-    return new Queue("queue.pubsub.default.1");
+  Queue defaultPubSubQueue1(AmqpQueueProperties properties) {
+    return properties.getPubsub().toQueue("queue.pubsub.default.1", DEAD_LETTER_EXCHANGE);
   }
 
   /**
    * 配置发布/订阅模式队列2
+   * @param properties 队列声明配置
    * @return Queue实例
    */
   @Bean
-  Queue defaultPubSubQueue2() {
-    return new Queue("queue.pubsub.default.2");
+  Queue defaultPubSubQueue2(AmqpQueueProperties properties) {
+    return properties.getPubsub().toQueue("queue.pubsub.default.2", DEAD_LETTER_EXCHANGE);
   }
 
   /**
@@ -82,7 +128,7 @@ public class AmqpConfig {
    */
   @Bean
   Queue defaultSimpleQueue() {
-    return new Queue("queue.simple.default");
+    return durableQueue("queue.simple.default");
   }
 
   /**
@@ -91,7 +137,7 @@ public class AmqpConfig {
    */
   @Bean
   Queue defaultWorkQueue() {
-    return new Queue("queue.work.default");
+    return durableQueue("queue.work.default");
   }
 
   /**
@@ -172,6 +218,106 @@ public class AmqpConfig {
         .to(defaultPubSubExchange);
   }
 
+  /**
+   * 配置死信、延迟重试与停车场拓扑
+   * 为每个业务队列绑定重新入队交换机,并按重试层级声明延迟队列
+   * @param queues 业务队列
+   * @param properties 监听容器配置
+   * @return Declarables实例
+   */
+  @Bean
+  Declarables retryDeclarables(List<Queue> queues, AmqpListenerProperties properties) {
+    List<Declarable> declarables = new ArrayList<>();
+    FanoutExchange deadLetterExchange = new FanoutExchange(DEAD_LETTER_EXCHANGE);
+    Queue parkingLotQueue = QueueBuilder.durable(PARKING_LOT_QUEUE).build();
+    declarables.add(deadLetterExchange);
+    declarables.add(parkingLotQueue);
+    declarables.add(BindingBuilder.bind(parkingLotQueue).to(deadLetterExchange));
+
+    DirectExchange requeueExchange = new DirectExchange(REQUEUE_EXCHANGE);
+    declarables.add(requeueExchange);
+    for (Queue queue : queues) {
+      // 流队列是共享的日志,重新追加会被所有消费者再次读到,延迟到期的消息改为进入停车场队列
+      Queue target = AmqpQueueProperties.isStream(queue) ? parkingLotQueue : queue;
+      declarables.add(BindingBuilder.bind(target).to(requeueExchange).with(queue.getName()));
+    }
+
+    HeadersExchange retryExchange = new HeadersExchange(RETRY_EXCHANGE);
+    declarables.add(retryExchange);
+    AmqpListenerProperties.Retry retry = properties.getRetry();
+    for (int tier = 1; tier <= retry.getTiers(); tier++) {
+      // 延迟队列没有消费者,消息TTL到期后以原路由键(即原队列名)死信到重新入队交换机
+      Queue retryQueue =
+          QueueBuilder.durable(RETRY_QUEUE_PREFIX + tier)
+              .ttl((int) retry.tierTtl(tier).toMillis())
+              .deadLetterExchange(REQUEUE_EXCHANGE)
+              .build();
+      declarables.add(retryQueue);
+      declarables.add(
+          BindingBuilder.bind(retryQueue)
+              .to(retryExchange)
+              .where(RetryTierRecoverer.HEADER_RETRY_TIER)
+              .matches(tier));
+    }
+    return new Declarables(declarables);
+  }
+
+  /**
+   * 配置监听重试拦截器
+   * 无状态重试,在监听线程内按指数退避重试,用尽后交给延迟重试层级恢复器
+   * @param rabbitTemplate RabbitMQ模板
+   * @param properties 监听容器配置
+   * @param meterRegistry 指标注册表
+   * @return RetryOperationsInterceptor实例
+   */
+  @Bean
+  RetryOperationsInterceptor listenerRetryInterceptor(
+      RabbitTemplate rabbitTemplate,
+      AmqpListenerProperties properties,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    AmqpListenerProperties.Retry retry = properties.getRetry();
+    MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+    Counter failedAttempts =
+        Counter.builder("amqp.listener.attempts.failed")
+            .description("监听就地重试中失败的尝试次数")
+            .register(registry);
+    RetryTemplate retryTemplate =
+        RetryTemplate.builder()
+            .maxAttempts(retry.getMaxAttempts())
+            .exponentialBackoff(
+                retry.getInitialInterval().toMillis(),
+                retry.getMultiplier(),
+                retry.getMaxInterval().toMillis())
+            .withListener(
+                new RetryListener() {
+                  @Override
+                  public <T, E extends Throwable> void onError(
+                      RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+                    failedAttempts.increment();
+                  }
+                })
+            .build();
+    return RetryInterceptorBuilder.stateless()
+        .retryOperations(retryTemplate)
+        .recoverer(new RetryTierRecoverer(rabbitTemplate, retry.getTiers(), registry))
+        .build();
+  }
+
+  /**
+   * 配置停车场队列深度指标
+   * 每次采集时查询broker,队列不可用时返回NaN
+   * @param amqpAdmin AMQP管理组件
+   * @return MeterBinder实例
+   */
+  @Bean
+  MeterBinder parkingLotMetrics(AmqpAdmin amqpAdmin) {
+    return registry ->
+        Gauge.builder("amqp.parking-lot.depth", amqpAdmin, AmqpConfig::parkingLotDepth)
+            .description("停车场队列中的消息数")
+            .tag("queue", PARKING_LOT_QUEUE)
+            .register(registry);
+  }
+
   /**
    * 配置消息转换器
    * 使用Jackson2JsonMessageConverter进行消息的JSON序列化和反序列化
@@ -181,4 +327,98 @@ public class AmqpConfig {
   public MessageConverter messageConverter() {
     return new Jackson2JsonMessageConverter();
   }
+
+  /**
+   * 配置默认监听容器工厂
+   * 与自动配置的工厂同名以替换之,未指定containerFactory的监听器使用该工厂
+   * @param configurer 自动配置的工厂配置器,应用spring.rabbitmq.listener.simple配置
+   * @param connectionFactory 连接工厂
+   * @param properties 监听容器配置
+   * @param listenerRetryInterceptor 监听重试拦截器
+   * @return 容器工厂实例
+   */
+  @Bean
+  public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+      SimpleRabbitListenerContainerFactoryConfigurer configurer,
+      ConnectionFactory connectionFactory,
+      AmqpListenerProperties properties,
+      RetryOperationsInterceptor listenerRetryInterceptor) {
+    return createContainerFactory(
+        configurer,
+        connectionFactory,
+        properties.resolve(AmqpListenerProperties.DEFAULT),
+        listenerRetryInterceptor);
+  }
+
+  /**
+   * 配置工作队列监听容器工厂
+   * 多个消费者竞争消费同一队列,积压时按需扩容
+   * @param configurer 自动配置的工厂配置器
+   * @param connectionFactory 连接工厂
+   * @param properties 监听容器配置
+   * @param listenerRetryInterceptor 监听重试拦截器
+   * @return 容器工厂实例
+   */
+  @Bean
+  public SimpleRabbitListenerContainerFactory workContainerFactory(
+      SimpleRabbitListenerContainerFactoryConfigurer configurer,
+      ConnectionFactory connectionFactory,
+      AmqpListenerProperties properties,
+      RetryOperationsInterceptor listenerRetryInterceptor) {
+    return createContainerFactory(
+        configurer,
+        connectionFactory,
+        properties.resolve(AmqpListenerProperties.WORK),
+        listenerRetryInterceptor);
+  }
+
+  /**
+   * 配置批量消费监听容器工厂
+   * 监听方法接收消息列表,每批确认一次
+   * @param configurer 自动配置的工厂配置器
+   * @param connectionFactory 连接工厂
+   * @param properties 监听容器配置
+   * @param listenerRetryInterceptor 监听重试拦截器
+   * @return 容器工厂实例
+   */
+  @Bean
+  public SimpleRabbitListenerContainerFactory batchContainerFactory(
+      SimpleRabbitListenerContainerFactoryConfigurer configurer,
+      ConnectionFactory connectionFactory,
+      AmqpListenerProperties properties,
+      RetryOperationsInterceptor listenerRetryInterceptor) {
+    return createContainerFactory(
+        configurer,
+        connectionFactory,
+        properties.resolve(AmqpListenerProperties.BATCH),
+        listenerRetryInterceptor);
+  }
+
+  private static SimpleRabbitListenerContainerFactory createContainerFactory(
+      SimpleRabbitListenerContainerFactoryConfigurer configurer,
+      ConnectionFactory connectionFactory,
+      AmqpListenerProperties.Spec spec,
+      RetryOperationsInterceptor retryInterceptor) {
+    SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+    configurer.configure(factory, connectionFactory);
+    spec.applyTo(factory);
+    // 重试用尽的消息已由恢复器转投,其余异常直接拒绝进入死信交换机,避免立即重新入队的空转
+    factory.setAdviceChain(retryInterceptor);
+    factory.setDefaultRequeueRejected(false);
+    return factory;
+  }
+
+  private static Queue durableQueue(String name) {
+    return QueueBuilder.durable(name).deadLetterExchange(DEAD_LETTER_EXCHANGE).build();
+  }
+
+  private static double parkingLotDepth(AmqpAdmin amqpAdmin) {
+    try {
+      QueueInformation info = amqpAdmin.getQueueInfo(PARKING_LOT_QUEUE);
+      return info == null ? Double.NaN : info.getMessageCount();
+    } catch (RuntimeException e) {
+      log.debug("停车场队列深度查询失败", e);
+      return Double.NaN;
+    }
+  }
 }
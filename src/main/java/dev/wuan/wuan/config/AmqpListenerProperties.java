@@ -0,0 +1,157 @@
+package dev.wuan.wuan.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * AMQP监听容器配置
+ * 按容器工厂名称配置消费者并发数、预取数量、批量消费与虚拟线程,
+ * 只覆盖设置了的项,未设置的项沿用spring.rabbitmq.listener.simple的配置
+ */
+@Data
+@ConfigurationProperties(prefix = "amqp.listener")
+public class AmqpListenerProperties {
+
+  /** 默认容器工厂名称 */
+  public static final String DEFAULT = "default";
+
+  /** 工作队列容器工厂名称 */
+  public static final String WORK = "work";
+
+  /** 批量消费容器工厂名称 */
+  public static final String BATCH = "batch";
+
+  /** 按容器工厂名称的配置,监听方法签名依赖批量消费,因此批量工厂默认即启用批量 */
+  private Map<String, Spec> factories =
+      new LinkedHashMap<>(Map.of(WORK, workDefaults(), BATCH, batchDefaults()));
+
+  /** 监听失败时的重试配置,所有容器工厂共用 */
+  private Retry retry = new Retry();
+
+  /**
+   * 获取容器工厂的配置
+   * @param name 容器工厂名称
+   * @return 配置,未配置时返回不覆盖任何项的空配置
+   */
+  public Spec resolve(String name) {
+    return factories.getOrDefault(name, new Spec());
+  }
+
+  private static Spec workDefaults() {
+    Spec spec = new Spec();
+    spec.setConcurrency(4);
+    spec.setMaxConcurrency(16);
+    spec.setVirtualThreads(true);
+    return spec;
+  }
+
+  private static Spec batchDefaults() {
+    Spec spec = new Spec();
+    spec.setConcurrency(2);
+    spec.setMaxConcurrency(2);
+    spec.setPrefetch(500);
+    spec.setBatchSize(100);
+    return spec;
+  }
+
+  /**
+   * 单个容器工厂的配置
+   * 各项为null时不覆盖spring.rabbitmq.listener.simple的对应配置
+   */
+  @Data
+  public static class Spec {
+
+    /** 初始消费者数 */
+    private Integer concurrency;
+
+    /** 最大消费者数,积压时按需增加 */
+    private Integer maxConcurrency;
+
+    /** 每个消费者未确认消息的最大预取数量 */
+    private Integer prefetch;
+
+    /** 大于1时启用批量消费,监听方法接收List,每批确认一次 */
+    private Integer batchSize;
+
+    /** 批量消费时未凑满一批的最长等待时间 */
+    private Duration receiveTimeout;
+
+    /** 是否在虚拟线程中运行消费者 */
+    private Boolean virtualThreads;
+
+    /**
+     * 将设置了的项应用到容器工厂
+     * @param factory 已按spring.rabbitmq.listener.simple配置的容器工厂
+     */
+    public void applyTo(SimpleRabbitListenerContainerFactory factory) {
+      if (concurrency != null) {
+        factory.setConcurrentConsumers(concurrency);
+      }
+      if (maxConcurrency != null) {
+        factory.setMaxConcurrentConsumers(
+            concurrency == null ? maxConcurrency : Math.max(concurrency, maxConcurrency));
+      }
+      boolean batch = batchSize != null && batchSize > 1;
+      if (prefetch != null) {
+        factory.setPrefetchCount(batch ? Math.max(prefetch, batchSize) : prefetch);
+      }
+      if (batch) {
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        if (receiveTimeout != null) {
+          factory.setReceiveTimeout(receiveTimeout.toMillis());
+        }
+      }
+      if (Boolean.TRUE.equals(virtualThreads)) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("amqp-listener-");
+        executor.setVirtualThreads(true);
+        factory.setTaskExecutor(executor);
+      }
+    }
+  }
+
+  /**
+   * 重试配置
+   * 先在监听线程内按指数退避就地重试,仍失败时依次投递到各延迟重试层级,层级用尽后进入停车场队列
+   */
+  @Data
+  public static class Retry {
+
+    /** 就地重试的最大尝试次数,包含首次投递 */
+    private int maxAttempts = 3;
+
+    /** 就地重试的初始退避时间 */
+    private Duration initialInterval = Duration.ofMillis(100);
+
+    /** 就地重试的退避倍数 */
+    private double multiplier = 2.0;
+
+    /** 就地重试的最大退避时间 */
+    private Duration maxInterval = Duration.ofSeconds(1);
+
+    /** 延迟重试层级数 */
+    private int tiers = 3;
+
+    /** 第一层延迟重试的消息TTL */
+    private Duration tierInitialTtl = Duration.ofSeconds(1);
+
+    /** 相邻延迟重试层级TTL的倍数 */
+    private double tierMultiplier = 5.0;
+
+    /**
+     * 计算延迟重试层级的消息TTL
+     * @param tier 层级,从1开始
+     * @return 消息TTL
+     */
+    public Duration tierTtl(int tier) {
+      return Duration.ofMillis(
+          (long) (tierInitialTtl.toMillis() * Math.pow(tierMultiplier, tier - 1)));
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package dev.wuan.wuan.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * AMQP队列声明配置
+ * 按队列分组配置队列类型及其参数,切换类型只需修改配置。
+ * 队列参数在broker上不可修改,已声明的队列需要先删除或迁移后才能以新类型重新声明
+ */
+@Data
+@ConfigurationProperties(prefix = "amqp.queue")
+public class AmqpQueueProperties {
+
+  /** 流队列的队列类型参数值 */
+  public static final String STREAM_TYPE = "stream";
+
+  /** 主题模式队列 */
+  private Spec topic = new Spec();
+
+  /** 发布/订阅模式队列 */
+  private Spec pubsub = new Spec();
+
+  /**
+   * 判断队列是否为流队列
+   * @param queue 队列
+   * @return 是否为流队列
+   */
+  public static boolean isStream(Queue queue) {
+    return STREAM_TYPE.equals(queue.getArguments().get("x-queue-type"));
+  }
+
+  /**
+   * 队列类型
+   */
+  public enum Type {
+    /** 经典队列 */
+    CLASSIC,
+    /** 仲裁队列,多副本复制,适合要求高可用的队列 */
+    QUORUM,
+    /** 流队列,只追加的日志,消费不删除消息,可按偏移量重放 */
+    STREAM
+  }
+
+  /**
+   * 一组队列的声明配置
+   */
+  @Data
+  public static class Spec {
+
+    /** 队列类型 */
+    private Type type = Type.CLASSIC;
+
+    /** 经典队列是否使用惰性模式,消息直接写入磁盘;RabbitMQ 3.12起经典队列总是如此,该参数被忽略 */
+    private boolean lazy = false;
+
+    /** 仲裁队列的最大投递次数,超过后进入死信交换机,为空时使用broker默认值 */
+    private Integer deliveryLimit;
+
+    /** 队列最大字节数,流队列超出后按段删除最旧的消息,为空时不限制 */
+    private Long maxLengthBytes;
+
+    /** 流队列消息的最长保留时间,为空时不限制 */
+    private Duration maxAge;
+
+    /**
+     * 按配置构建持久化队列
+     * 流队列不支持死信,不设置死信交换机
+     * @param name 队列名称
+     * @param deadLetterExchange 死信交换机
+     * @return Queue实例
+     */
+    public Queue toQueue(String name, String deadLetterExchange) {
+      QueueBuilder builder = QueueBuilder.durable(name);
+      switch (type) {
+        case CLASSIC -> {
+          builder.deadLetterExchange(deadLetterExchange);
+          if (lazy) {
+            builder.lazy();
+          }
+        }
+        case QUORUM -> {
+          builder.quorum().deadLetterExchange(deadLetterExchange);
+          if (deliveryLimit != null) {
+            builder.deliveryLimit(deliveryLimit);
+          }
+        }
+        case STREAM -> {
+          builder.stream();
+          if (maxAge != null) {
+            builder.withArgument("x-max-age", maxAge.toSeconds() + "s");
+          }
+        }
+      }
+      if (maxLengthBytes != null) {
+        builder.maxLengthBytes(maxLengthBytes);
+      }
+      return builder.build();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package dev.wuan.wuan.config;
+
+import io.micrometer.core.instrument.Counter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+/**
+ * 丢弃式慢消费者会话装饰器
+ * 发送只写入缓冲并立即返回,由单独的任务按顺序写出,出站线程不会被慢客户端阻塞;
+ * 缓冲超出上限时丢弃新的STOMP MESSAGE帧,其余协议帧照常发送,单次写出超时时断开会话
+ */
+@Slf4j
+public class DroppingWebSocketSessionDecorator extends WebSocketSessionDecorator {
+
+  private static final byte[] MESSAGE_FRAME = "MESSAGE".getBytes(StandardCharsets.US_ASCII);
+
+  private final Executor flushExecutor;
+
+  private final long sendTimeLimitNanos;
+
+  private final int bufferSizeLimit;
+
+  private final Counter droppedCounter;
+
+  private final Queue<WebSocketMessage<?>> buffer = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger bufferSize = new AtomicInteger();
+
+  private final AtomicBoolean flushing = new AtomicBoolean();
+
+  /** 当前写出开始的时间,未在写出时为0 */
+  private volatile long flushStartNanos;
+
+  /**
+   * 构造函数
+   * @param session 被装饰的会话
+   * @param flushExecutor 写出任务的执行器
+   * @param sendTimeLimit 单次写出允许的最长时间
+   * @param bufferSizeLimit 发送缓冲的最大字节数
+   * @param droppedCounter 丢弃消息计数器
+   */
+  public DroppingWebSocketSessionDecorator(
+      WebSocketSession session,
+      Executor flushExecutor,
+      Duration sendTimeLimit,
+      int bufferSizeLimit,
+      Counter droppedCounter) {
+    super(session);
+    this.flushExecutor = flushExecutor;
+    this.sendTimeLimitNanos = sendTimeLimit.toNanos();
+    this.bufferSizeLimit = bufferSizeLimit;
+    this.droppedCounter = droppedCounter;
+  }
+
+  @Override
+  public void sendMessage(WebSocketMessage<?> message) throws IOException {
+    if (!isOpen()) {
+      return;
+    }
+    long startedAt = flushStartNanos;
+    if (startedAt != 0 && System.nanoTime() - startedAt > sendTimeLimitNanos) {
+      log.warn("WebSocket会话发送超时, 断开连接, sessionId: {}", getId());
+      getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+      return;
+    }
+    int size = message.getPayloadLength();
+    if (bufferSize.get() + size > bufferSizeLimit && isMessageFrame(message)) {
+      droppedCounter.increment();
+      return;
+    }
+    buffer.add(message);
+    bufferSize.addAndGet(size);
+    scheduleFlush();
+  }
+
+  private void scheduleFlush() {
+    if (flushing.compareAndSet(false, true)) {
+      flushExecutor.execute(this::flush);
+    }
+  }
+
+  private void flush() {
+    try {
+      WebSocketMessage<?> message;
+      while ((message = buffer.poll()) != null) {
+        bufferSize.addAndGet(-message.getPayloadLength());
+        flushStartNanos = System.nanoTime();
+        getDelegate().sendMessage(message);
+        flushStartNanos = 0;
+      }
+    } catch (IOException | RuntimeException e) {
+      log.debug("WebSocket会话写出失败, sessionId: {}", getId(), e);
+      buffer.clear();
+      bufferSize.set(0);
+    } finally {
+      flushStartNanos = 0;
+      flushing.set(false);
+    }
+    if (!buffer.isEmpty() && isOpen()) {
+      scheduleFlush();
+    }
+  }
+
+  private static boolean isMessageFrame(WebSocketMessage<?> message) {
+    if (message instanceof TextMessage textMessage) {
+      return textMessage.getPayload().startsWith("MESSAGE");
+    }
+    if (message instanceof BinaryMessage binaryMessage) {
+      ByteBuffer payload = binaryMessage.getPayload();
+      if (payload.remaining() < MESSAGE_FRAME.length) {
+        return false;
+      }
+      for (int i = 0; i < MESSAGE_FRAME.length; i++) {
+        if (payload.get(payload.position() + i) != MESSAGE_FRAME[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+}
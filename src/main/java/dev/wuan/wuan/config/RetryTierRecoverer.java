@@ -0,0 +1,96 @@
+package dev.wuan.wuan.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+
+/**
+ * 延迟重试层级恢复器
+ * 就地重试用尽后,将消息投递到下一个延迟重试层级,TTL到期后由broker路由回原队列;
+ * 层级用尽后投递到死信交换机进入停车场队列。两种情况原消息都会被确认,不会立即重新入队
+ */
+@Slf4j
+public class RetryTierRecoverer implements MessageBatchRecoverer {
+
+  /** 消息已经历的延迟重试层级 */
+  public static final String HEADER_RETRY_TIER = "x-retry-tier";
+
+  /** 最近一次失败的异常信息 */
+  public static final String HEADER_LAST_EXCEPTION = "x-last-exception";
+
+  /** 异常信息消息头的最大长度 */
+  private static final int MAX_EXCEPTION_LENGTH = 256;
+
+  private final RabbitTemplate rabbitTemplate;
+
+  /** 延迟重试层级数 */
+  private final int tiers;
+
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * 构造函数
+   * @param rabbitTemplate RabbitMQ模板
+   * @param tiers 延迟重试层级数
+   * @param meterRegistry 指标注册表
+   */
+  public RetryTierRecoverer(RabbitTemplate rabbitTemplate, int tiers, MeterRegistry meterRegistry) {
+    this.rabbitTemplate = rabbitTemplate;
+    this.tiers = tiers;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public void recover(Message message, Throwable cause) {
+    MessageProperties properties = message.getMessageProperties();
+    String queue = properties.getConsumerQueue();
+    int nextTier = currentTier(properties) + 1;
+    properties.setHeader(
+        HEADER_LAST_EXCEPTION,
+        StringUtils.abbreviate(String.valueOf(rootCause(cause).getMessage()), MAX_EXCEPTION_LENGTH));
+    if (nextTier > tiers) {
+      log.warn("消息重试次数用尽, 进入停车场队列, queue: {}", queue, cause);
+      rabbitTemplate.send(AmqpConfig.DEAD_LETTER_EXCHANGE, queue, message);
+      Counter.builder("amqp.listener.parked")
+          .description("重试用尽进入停车场队列的消息数")
+          .tag("queue", String.valueOf(queue))
+          .register(meterRegistry)
+          .increment();
+      return;
+    }
+    log.info("消息处理失败, 进入第{}层延迟重试, queue: {}", nextTier, queue);
+    properties.setHeader(HEADER_RETRY_TIER, nextTier);
+    rabbitTemplate.send(AmqpConfig.RETRY_EXCHANGE, queue, message);
+    Counter.builder("amqp.listener.retries")
+        .description("投递到延迟重试层级的消息数")
+        .tag("queue", String.valueOf(queue))
+        .tag("tier", String.valueOf(nextTier))
+        .register(meterRegistry)
+        .increment();
+  }
+
+  @Override
+  public void recover(List<Message> messages, Throwable cause) {
+    // 批量消费时整批一起失败,逐条进入各自的下一层级
+    messages.forEach(message -> recover(message, cause));
+  }
+
+  private static int currentTier(MessageProperties properties) {
+    Object tier = properties.getHeaders().get(HEADER_RETRY_TIER);
+    return tier instanceof Number number ? number.intValue() : 0;
+  }
+
+  private static Throwable rootCause(Throwable cause) {
+    Throwable root = cause;
+    while (root.getCause() != null && root.getCause() != root) {
+      root = root.getCause();
+    }
+    return root;
+  }
+}
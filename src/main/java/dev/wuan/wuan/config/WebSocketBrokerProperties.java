@@ -0,0 +1,69 @@
+package dev.wuan.wuan.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * WebSocket消息代理配置
+ * 默认使用进程内的简单代理;启用中继后由RabbitMQ STOMP插件作为外部代理,订阅与广播在所有节点间共享
+ */
+@Data
+@ConfigurationProperties(prefix = "websocket.broker")
+public class WebSocketBrokerProperties {
+
+  /** 与客户端之间的心跳间隔,发送与接收相同,为0时不启用 */
+  private Duration heartbeat = Duration.ofSeconds(10);
+
+  /** 外部代理中继配置 */
+  private Relay relay = new Relay();
+
+  /**
+   * 外部代理中继配置
+   */
+  @Data
+  public static class Relay {
+
+    /** 是否启用外部代理中继 */
+    private boolean enabled = false;
+
+    /** STOMP代理地址 */
+    private String host = "localhost";
+
+    /** STOMP代理端口 */
+    private int port = 61613;
+
+    /** 虚拟主机 */
+    private String virtualHost = "/";
+
+    /** 代替客户端连接代理时使用的用户名 */
+    private String clientLogin = "guest";
+
+    /** 代替客户端连接代理时使用的密码 */
+    private String clientPasscode = "guest";
+
+    /** 服务端共享系统连接使用的用户名 */
+    private String systemLogin = "guest";
+
+    /** 服务端共享系统连接使用的密码 */
+    private String systemPasscode = "guest";
+
+    /** 系统连接向代理发送心跳的间隔 */
+    private Duration systemHeartbeatSendInterval = Duration.ofSeconds(10);
+
+    /** 系统连接期望代理发送心跳的间隔 */
+    private Duration systemHeartbeatReceiveInterval = Duration.ofSeconds(10);
+
+    /** 到代理的最大TCP连接数,每个WebSocket会话占用一个连接 */
+    private int maxConnections = 10000;
+
+    /** 连接数用尽时等待空闲连接的最长时间 */
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+    /** 建立TCP连接的超时时间 */
+    private Duration connectTimeout = Duration.ofSeconds(3);
+
+    /** 处理到代理连接的IO线程数,为0时等于CPU核数 */
+    private int ioWorkerCount = 0;
+  }
+}
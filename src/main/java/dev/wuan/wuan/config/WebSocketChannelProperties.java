@@ -0,0 +1,70 @@
+package dev.wuan.wuan.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * WebSocket消息通道配置
+ * 分别配置客户端入站、客户端出站与代理通道的线程池,队列有界,积压超出容量时拒绝新消息
+ */
+@Data
+@ConfigurationProperties(prefix = "websocket.channel")
+public class WebSocketChannelProperties {
+
+  /** 客户端入站通道,处理客户端发来的帧 */
+  private Spec inbound = new Spec();
+
+  /** 客户端出站通道,向客户端发送帧 */
+  private Spec outbound = new Spec();
+
+  /** 代理通道,应用发往代理的消息 */
+  private Spec broker = brokerDefaults();
+
+  private static Spec brokerDefaults() {
+    Spec spec = new Spec();
+    spec.setCorePoolSize(4);
+    spec.setMaxPoolSize(16);
+    return spec;
+  }
+
+  /**
+   * 单个通道的线程池配置
+   */
+  @Data
+  public static class Spec {
+
+    /** 核心线程数 */
+    private int corePoolSize = 8;
+
+    /** 最大线程数,队列满后才会超出核心线程数 */
+    private int maxPoolSize = 32;
+
+    /** 等待队列容量 */
+    private int queueCapacity = 10000;
+
+    /** 超出核心线程数的线程空闲回收时间 */
+    private Duration keepAlive = Duration.ofSeconds(60);
+
+    /** 是否使用虚拟线程 */
+    private boolean virtualThreads = false;
+
+    /**
+     * 按配置创建线程池
+     * @param threadNamePrefix 线程名前缀
+     * @return 未初始化的线程池,由消息通道配置负责初始化
+     */
+    public ThreadPoolTaskExecutor createExecutor(String threadNamePrefix) {
+      ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+      executor.setThreadNamePrefix(threadNamePrefix);
+      executor.setCorePoolSize(corePoolSize);
+      executor.setMaxPoolSize(Math.max(corePoolSize, maxPoolSize));
+      executor.setQueueCapacity(queueCapacity);
+      executor.setKeepAliveSeconds((int) keepAlive.toSeconds());
+      executor.setAllowCoreThreadTimeOut(true);
+      executor.setVirtualThreads(virtualThreads);
+      return executor;
+    }
+  }
+}
@@ -1,18 +1,64 @@
 package dev.wuan.wuan.config;
 
+import dev.wuan.wuan.config.security.CookieJwtWebSocketInterceptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToDoubleFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.StompWebSocketEndpointRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpClient;
 
 /**
  * WebSocket配置类
  * 用于配置WebSocket消息代理和STOMP端点
+ *
+ * <p>目的地前缀与RabbitMQ STOMP插件的目的地格式一致,简单代理与外部代理中继两种模式下客户端使用相同的目的地。
+ * 中继模式下广播经amq.topic交换机投递到所有节点的订阅者,用户目的地的会话注册表在节点间广播,
+ * 发往其他节点上用户的消息由该节点转发。
+ *
+ * <p>入站、出站与代理通道各自使用有界线程池,每个会话的发送缓冲与发送耗时受限,
+ * 慢客户端按配置的策略被丢弃消息或断开,不会拖慢其他会话。
  */
+@Slf4j
 @Configuration
 @EnableWebSocketMessageBroker
+@EnableConfigurationProperties({
+  WebSocketBrokerProperties.class,
+  WebSocketChannelProperties.class,
+  WebSocketTransportProperties.class
+})
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
   /** 允许的源域名,用于CORS配置 */
@@ -21,14 +67,85 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
   /** WebSocket根路径 */
   public static final String ROOT_PATH = "/chat-room";
-  /** 广播消息主题前缀 */
-  public static final String TOPIC = "/notice";
-  /** 点对点消息队列前缀 */
-  public static final String QUEUE = "/message";
+  /** 代理广播目的地前缀 */
+  public static final String TOPIC_PREFIX = "/topic";
+  /** 代理点对点目的地前缀 */
+  public static final String QUEUE_PREFIX = "/queue";
+  /** 广播消息主题 */
+  public static final String TOPIC = TOPIC_PREFIX + "/notice";
+  /** 点对点消息队列 */
+  public static final String QUEUE = QUEUE_PREFIX + "/message";
   /** 客户端发送消息的端点前缀 */
   public static final String RECEIVE_ENDPOINT_PREFIXES = "/app";
   /** 用户相关消息的前缀 */
   public static final String USER_PREFIXES = "/user";
+  /** 中继模式下目标用户不在本节点时,消息广播到该目的地由其他节点转发 */
+  public static final String UNRESOLVED_USER_DESTINATION = TOPIC_PREFIX + "/unresolved-user";
+  /** 中继模式下各节点广播本地用户会话的目的地 */
+  public static final String USER_REGISTRY_DESTINATION = TOPIC_PREFIX + "/user-registry";
+
+  /** 客户端入站通道名称 */
+  public static final String INBOUND_CHANNEL = "inbound";
+  /** 客户端出站通道名称 */
+  public static final String OUTBOUND_CHANNEL = "outbound";
+  /** 代理通道名称 */
+  public static final String BROKER_CHANNEL = "broker";
+
+  private final WebSocketBrokerProperties properties;
+
+  private final WebSocketChannelProperties channelProperties;
+
+  private final WebSocketTransportProperties transportProperties;
+
+  private final ObjectProvider<MeterRegistry> meterRegistry;
+
+  /** 握手与入站帧的JWT认证拦截器,未启用安全配置时不存在 */
+  private final ObjectProvider<CookieJwtWebSocketInterceptor> authenticationInterceptor;
+
+  private TaskScheduler messageBrokerTaskScheduler;
+
+  /** 按通道名称的线程池,用于队列深度指标 */
+  private final Map<String, ThreadPoolTaskExecutor> channelExecutors = new ConcurrentHashMap<>();
+
+  /** 丢弃策略下写出会话缓冲的虚拟线程 */
+  private final ExecutorService sessionFlushExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+  /** 中继模式下到代理的连接池,随配置类销毁释放 */
+  private ConnectionProvider relayConnectionProvider;
+
+  /** 中继模式下到代理连接的IO线程,随配置类销毁释放 */
+  private LoopResources relayLoopResources;
+
+  /**
+   * 构造函数
+   * @param properties WebSocket消息代理配置
+   * @param channelProperties WebSocket消息通道配置
+   * @param transportProperties WebSocket传输配置
+   * @param meterRegistry 指标注册表
+   * @param authenticationInterceptor JWT认证拦截器
+   */
+  public WebSocketConfig(
+      WebSocketBrokerProperties properties,
+      WebSocketChannelProperties channelProperties,
+      WebSocketTransportProperties transportProperties,
+      ObjectProvider<MeterRegistry> meterRegistry,
+      ObjectProvider<CookieJwtWebSocketInterceptor> authenticationInterceptor) {
+    this.properties = properties;
+    this.channelProperties = channelProperties;
+    this.transportProperties = transportProperties;
+    this.meterRegistry = meterRegistry;
+    this.authenticationInterceptor = authenticationInterceptor;
+  }
+
+  /**
+   * 注入消息代理的任务调度器,简单代理使用它发送心跳
+   * @param messageBrokerTaskScheduler 消息代理任务调度器
+   */
+  @Autowired
+  public void setMessageBrokerTaskScheduler(
+      @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler) {
+    this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+  }
 
   /**
    * 配置消息代理
@@ -37,8 +154,33 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
    */
   @Override
   public void configureMessageBroker(MessageBrokerRegistry config) {
-    // 启用简单消息代理,支持广播和点对点消息
-    config.enableSimpleBroker(TOPIC, QUEUE);
+    long heartbeat = properties.getHeartbeat().toMillis();
+    WebSocketBrokerProperties.Relay relay = properties.getRelay();
+    if (relay.isEnabled()) {
+      // 启用外部代理中继,客户端心跳由客户端与代理直接协商
+      config
+          .enableStompBrokerRelay(TOPIC_PREFIX, QUEUE_PREFIX)
+          .setVirtualHost(relay.getVirtualHost())
+          .setClientLogin(relay.getClientLogin())
+          .setClientPasscode(relay.getClientPasscode())
+          .setSystemLogin(relay.getSystemLogin())
+          .setSystemPasscode(relay.getSystemPasscode())
+          .setSystemHeartbeatSendInterval(relay.getSystemHeartbeatSendInterval().toMillis())
+          .setSystemHeartbeatReceiveInterval(relay.getSystemHeartbeatReceiveInterval().toMillis())
+          .setTcpClient(createRelayTcpClient(relay))
+          .setUserDestinationBroadcast(UNRESOLVED_USER_DESTINATION)
+          .setUserRegistryBroadcast(USER_REGISTRY_DESTINATION);
+      log.info("WebSocket使用外部代理中继, {}:{}", relay.getHost(), relay.getPort());
+    } else {
+      // 启用简单消息代理,支持广播和点对点消息
+      config
+          .enableSimpleBroker(TOPIC_PREFIX, QUEUE_PREFIX)
+          .setHeartbeatValue(new long[] {heartbeat, heartbeat})
+          .setTaskScheduler(messageBrokerTaskScheduler);
+    }
+    config
+        .configureBrokerChannel()
+        .taskExecutor(channelExecutor(BROKER_CHANNEL, channelProperties.getBroker()));
     // 设置客户端发送消息的前缀
     config.setApplicationDestinationPrefixes(RECEIVE_ENDPOINT_PREFIXES);
     // 设置用户消息前缀
@@ -47,12 +189,159 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
   /**
    * 注册STOMP端点
-   * 配置WebSocket连接端点
+   * 配置WebSocket连接端点,握手时根据JWT Cookie认证一次
    * @param registry STOMP端点注册表
    */
   @Override
   public void registerStompEndpoints(StompEndpointRegistry registry) {
     // 添加WebSocket端点并配置允许的源
-    registry.addEndpoint(ROOT_PATH).setAllowedOrigins(allowedOrigins);
+    StompWebSocketEndpointRegistration endpoint =
+        registry.addEndpoint(ROOT_PATH).setAllowedOrigins(allowedOrigins);
+    authenticationInterceptor.ifAvailable(endpoint::addInterceptors);
+  }
+
+  /**
+   * 配置客户端入站通道线程池,入站帧使用握手时缓存的认证主体
+   * @param registration 通道注册
+   */
+  @Override
+  public void configureClientInboundChannel(ChannelRegistration registration) {
+    registration.taskExecutor(channelExecutor(INBOUND_CHANNEL, channelProperties.getInbound()));
+    authenticationInterceptor.ifAvailable(registration::interceptors);
+  }
+
+  /**
+   * 配置客户端出站通道线程池
+   * @param registration 通道注册
+   */
+  @Override
+  public void configureClientOutboundChannel(ChannelRegistration registration) {
+    registration.taskExecutor(channelExecutor(OUTBOUND_CHANNEL, channelProperties.getOutbound()));
+  }
+
+  /**
+   * 配置会话的发送限制与慢消费者策略
+   * @param registration 传输注册
+   */
+  @Override
+  public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+    registration
+        .setSendTimeLimit((int) transportProperties.getSendTimeLimit().toMillis())
+        .setSendBufferSizeLimit(transportProperties.getSendBufferSizeLimit())
+        .setMessageSizeLimit(transportProperties.getMessageSizeLimit())
+        .setTimeToFirstMessage((int) transportProperties.getTimeToFirstMessage().toMillis());
+    if (transportProperties.getSlowConsumerPolicy()
+        == WebSocketTransportProperties.SlowConsumerPolicy.DROP) {
+      Counter dropped =
+          Counter.builder("websocket.session.dropped")
+              .description("慢消费者被丢弃的消息数")
+              .register(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+      registration.addDecoratorFactory(handler -> droppingHandler(handler, dropped));
+    }
+  }
+
+  /**
+   * 配置消息通道指标
+   * 各通道线程池的等待队列深度与活跃线程数
+   * @return MeterBinder实例
+   */
+  @Bean
+  MeterBinder webSocketChannelMetrics() {
+    return registry -> {
+      for (String channel : new String[] {INBOUND_CHANNEL, OUTBOUND_CHANNEL, BROKER_CHANNEL}) {
+        channelGauge(
+            registry,
+            "websocket.channel.queue.depth",
+            "通道等待队列中的消息数",
+            channel,
+            ThreadPoolTaskExecutor::getQueueSize);
+        channelGauge(
+            registry,
+            "websocket.channel.active",
+            "通道正在处理消息的线程数",
+            channel,
+            ThreadPoolTaskExecutor::getActiveCount);
+      }
+    };
+  }
+
+  /**
+   * 释放中继使用的连接池与IO线程
+   */
+  @PreDestroy
+  public void destroy() {
+    sessionFlushExecutor.shutdown();
+    if (relayConnectionProvider != null) {
+      relayConnectionProvider.dispose();
+    }
+    if (relayLoopResources != null) {
+      relayLoopResources.dispose();
+    }
+  }
+
+  private ThreadPoolTaskExecutor channelExecutor(
+      String channel, WebSocketChannelProperties.Spec spec) {
+    ThreadPoolTaskExecutor executor = spec.createExecutor("ws-" + channel + "-");
+    channelExecutors.put(channel, executor);
+    return executor;
+  }
+
+  private void channelGauge(
+      MeterRegistry registry,
+      String name,
+      String description,
+      String channel,
+      ToDoubleFunction<ThreadPoolTaskExecutor> value) {
+    Gauge.builder(
+            name,
+            channelExecutors,
+            executors -> {
+              ThreadPoolTaskExecutor executor = executors.get(channel);
+              return executor == null ? Double.NaN : value.applyAsDouble(executor);
+            })
+        .description(description)
+        .tag("channel", channel)
+        .register(registry);
+  }
+
+  private WebSocketHandler droppingHandler(WebSocketHandler handler, Counter dropped) {
+    return new WebSocketHandlerDecorator(handler) {
+      @Override
+      public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        super.afterConnectionEstablished(
+            new DroppingWebSocketSessionDecorator(
+                session,
+                sessionFlushExecutor,
+                transportProperties.getSendTimeLimit(),
+                transportProperties.getSendBufferSizeLimit(),
+                dropped));
+      }
+    };
+  }
+
+  /**
+   * 创建到代理的TCP客户端
+   * 每个WebSocket会话在代理上占用一个独立连接,连接池上限按会话数配置,用尽时有界等待
+   */
+  private ReactorNettyTcpClient<byte[]> createRelayTcpClient(
+      WebSocketBrokerProperties.Relay relay) {
+    relayConnectionProvider =
+        ConnectionProvider.builder("stomp-relay")
+            .maxConnections(relay.getMaxConnections())
+            .pendingAcquireTimeout(relay.getPendingAcquireTimeout())
+            .build();
+    relayLoopResources =
+        relay.getIoWorkerCount() > 0
+            ? LoopResources.create("stomp-relay", relay.getIoWorkerCount(), true)
+            : LoopResources.create("stomp-relay");
+    TcpClient tcpClient =
+        TcpClient.create(relayConnectionProvider)
+            .host(relay.getHost())
+            .port(relay.getPort())
+            .runOn(relayLoopResources)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) relay.getConnectTimeout().toMillis())
+            .option(ChannelOption.TCP_NODELAY, true)
+            .option(ChannelOption.SO_KEEPALIVE, true);
+    return new ReactorNettyTcpClient<>(tcpClient, new StompReactorNettyCodec());
   }
 }
@@ -0,0 +1,39 @@
+package dev.wuan.wuan.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * WebSocket传输配置
+ * 限制每个会话的发送缓冲与发送耗时,并指定慢消费者的处理策略
+ */
+@Data
+@ConfigurationProperties(prefix = "websocket.transport")
+public class WebSocketTransportProperties {
+
+  /** 单次发送允许的最长时间,超出后断开会话 */
+  private Duration sendTimeLimit = Duration.ofSeconds(10);
+
+  /** 每个会话发送缓冲的最大字节数 */
+  private int sendBufferSizeLimit = 512 * 1024;
+
+  /** 入站消息的最大字节数 */
+  private int messageSizeLimit = 64 * 1024;
+
+  /** 建立连接后等待第一条消息的最长时间,超出后断开会话 */
+  private Duration timeToFirstMessage = Duration.ofMinutes(1);
+
+  /** 慢消费者的处理策略 */
+  private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DISCONNECT;
+
+  /**
+   * 慢消费者处理策略
+   */
+  public enum SlowConsumerPolicy {
+    /** 发送缓冲或发送耗时超出限制时断开会话 */
+    DISCONNECT,
+    /** 发送缓冲超出限制时丢弃新的广播消息,发送耗时超出限制时仍断开会话 */
+    DROP
+  }
+}
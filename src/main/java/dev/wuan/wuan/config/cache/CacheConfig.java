@@ -1,48 +1,125 @@
 package dev.wuan.wuan.config.cache;
 
-import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.cache.RedisCacheConfiguration;
-import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 /**
  * 缓存配置类
  */
 @EnableCaching
 @Configuration
+@EnableConfigurationProperties(LayeredCacheProperties.class)
 public class CacheConfig {
 
   /**
-   * 验证码缓存名称
+   * 角色及其权限缓存名称
    */
-  public static final String VERIFY_CODE = "verifyCode";
+  public static final String ROLE_WITH_PERMISSION = "roleWithPermission";
 
   /**
-   * 配置Redis缓存管理器
+   * 防击穿与提前刷新缓存解析器名称,供{@code @Cacheable(cacheResolver = ...)}引用
+   */
+  public static final String REFRESH_AHEAD_CACHE_RESOLVER = "refreshAheadCacheResolver";
+
+  /**
+   * 配置两级缓存管理器
+   * 本地Caffeine缓存在前,Redis缓存在后,各缓存的过期时间、容量与序列化方式见cache.layered配置
+   * @param connectionFactory Redis连接工厂
+   * @param stringRedisTemplate Redis模板
+   * @param redisMessageListenerContainer Redis消息监听容器
+   * @param properties 两级缓存配置
+   * @param batchStrategy 批量清除策略
+   * @param meterRegistry 指标注册表,未启用指标时使用内存注册表
+   * @return 两级缓存管理器实例
+   */
+  @Bean
+  public LayeredCacheManager cacheManager(
+      RedisConnectionFactory connectionFactory,
+      StringRedisTemplate stringRedisTemplate,
+      RedisMessageListenerContainer redisMessageListenerContainer,
+      LayeredCacheProperties properties,
+      ScanUnlinkBatchStrategy batchStrategy,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    LayeredCacheManager cacheManager =
+        new LayeredCacheManager(
+            connectionFactory,
+            stringRedisTemplate,
+            properties,
+            batchStrategy,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    // 订阅其他节点的本地缓存失效通知
+    redisMessageListenerContainer.addMessageListener(
+        cacheManager, new ChannelTopic(cacheManager.getInvalidationChannel()));
+    return cacheManager;
+  }
+
+  /**
+   * 配置批量清除策略
+   * 缓存清空与验证码清除共用,以SCAN分批遍历并UNLINK删除,批大小见cache.layered.eviction配置
+   * @param properties 两级缓存配置
+   * @param meterRegistry 指标注册表,未启用指标时使用内存注册表
+   * @return 批量清除策略实例
+   */
+  @Bean
+  public ScanUnlinkBatchStrategy scanUnlinkBatchStrategy(
+      LayeredCacheProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+    return new ScanUnlinkBatchStrategy(
+        properties.getEviction().getBatchSize(),
+        meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+  }
+
+  /**
+   * 配置缓存异步刷新执行器
+   * 刷新在虚拟线程中执行,避免阻塞请求线程;容器关闭时等待进行中的刷新结束
+   * @return 缓存刷新执行器实例
+   */
+  @Bean(destroyMethod = "close")
+  public ExecutorService cacheRefreshExecutor() {
+    return Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("cache-refresh-", 0).factory());
+  }
+
+  /**
+   * 配置防击穿与提前刷新缓存解析器
+   * @param cacheManager 两级缓存管理器
+   * @param stringRedisTemplate Redis模板
+   * @param cacheRefreshExecutor 缓存异步刷新执行器
+   * @param properties 两级缓存配置
+   * @return 缓存解析器实例
+   */
+  @Bean(REFRESH_AHEAD_CACHE_RESOLVER)
+  public RefreshAheadCacheResolver refreshAheadCacheResolver(
+      LayeredCacheManager cacheManager,
+      StringRedisTemplate stringRedisTemplate,
+      @Qualifier("cacheRefreshExecutor") ExecutorService cacheRefreshExecutor,
+      LayeredCacheProperties properties) {
+    return new RefreshAheadCacheResolver(
+        cacheManager, stringRedisTemplate, cacheRefreshExecutor, properties);
+  }
+
+  /**
+   * 配置Redis消息监听容器
+   * 用于订阅跨节点的缓存失效通知
    * @param connectionFactory Redis连接工厂
-   * @return Redis缓存管理器实例
+   * @return Redis消息监听容器实例
    */
   @Bean
-  public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-    // 创建缓存配置映射
-    Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
-
-    // 配置验证码缓存
-    // 设置1分钟过期时间并禁用空值缓存
-    cacheConfigurations.put(
-        VERIFY_CODE,
-        RedisCacheConfiguration.defaultCacheConfig()
-            .entryTtl(Duration.ofMinutes(1))  // 设置1分钟的过期时间
-            .disableCachingNullValues());  // 禁止缓存null值
-
-    // 构建并返回缓存管理器
-    return RedisCacheManager.builder(connectionFactory)
-        .withInitialCacheConfigurations(cacheConfigurations)
-        .build();
+  public RedisMessageListenerContainer redisMessageListenerContainer(
+      RedisConnectionFactory connectionFactory) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    return container;
   }
 }
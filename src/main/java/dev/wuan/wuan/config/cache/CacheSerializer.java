@@ -0,0 +1,57 @@
+package dev.wuan.wuan.config.cache;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Redis二级缓存值序列化方式
+ */
+public enum CacheSerializer {
+
+  /** JDK序列化,值需实现Serializable */
+  JDK,
+
+  /** 带类型信息的JSON */
+  JSON,
+
+  /** 纯字符串,仅适用于String类型的值 */
+  STRING,
+
+  /** 带类型信息的Jackson Smile二进制格式 */
+  SMILE;
+
+  /**
+   * 构建Redis缓存值的序列化对
+   * @param classLoader 反序列化使用的类加载器
+   * @param compressionThreshold LZ4压缩阈值(字节),不大于0时不压缩
+   * @return 序列化对
+   */
+  public SerializationPair<Object> toSerializationPair(
+      ClassLoader classLoader, int compressionThreshold) {
+    RedisSerializer<Object> serializer = toSerializer(classLoader);
+    if (compressionThreshold > 0) {
+      serializer = new Lz4RedisSerializer(serializer, compressionThreshold);
+    }
+    return SerializationPair.fromSerializer(serializer);
+  }
+
+  /**
+   * 构建未压缩的序列化器
+   * @param classLoader 反序列化使用的类加载器
+   * @return 序列化器
+   */
+  public RedisSerializer<Object> toSerializer(ClassLoader classLoader) {
+    return switch (this) {
+      case JDK -> RedisSerializer.java(classLoader);
+      case JSON -> new GenericJackson2JsonRedisSerializer();
+      case STRING -> stringSerializer();
+      case SMILE -> new SmileRedisSerializer(classLoader);
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static RedisSerializer<Object> stringSerializer() {
+    return (RedisSerializer<Object>) (RedisSerializer<?>) RedisSerializer.string();
+  }
+}
@@ -0,0 +1,226 @@
+package dev.wuan.wuan.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+/**
+ * 两级缓存
+ * 本地Caffeine作为一级缓存,Redis作为二级缓存,写入和失效时通知其他节点清理本地缓存
+ *
+ * <p>本地缓存以键的字符串形式作为键,跨节点失效通知也按该形式传递,
+ * 因此缓存键的toString需要稳定且能区分不同的键。
+ */
+public class LayeredCache extends AbstractValueAdaptingCache {
+
+  /** 一级缓存层级标签 */
+  public static final String TIER_LOCAL = "local";
+
+  /** 二级缓存层级标签 */
+  public static final String TIER_REMOTE = "remote";
+
+  private final String name;
+
+  private final com.github.benmanes.caffeine.cache.Cache<String, Object> localCache;
+
+  private final Cache remoteCache;
+
+  /** 失效通知发布函数,参数为缓存名称与键,清空时键为null */
+  private final BiConsumer<String, String> invalidationPublisher;
+
+  private final Counter localHit;
+
+  private final Counter localMiss;
+
+  private final Counter remoteHit;
+
+  private final Counter remoteMiss;
+
+  private final Counter loadSuccess;
+
+  private final Counter loadFailure;
+
+  /**
+   * 构造函数
+   * @param name 缓存名称
+   * @param spec 缓存配置
+   * @param remoteCache Redis二级缓存
+   * @param invalidationPublisher 失效通知发布函数
+   * @param meterRegistry 指标注册表
+   */
+  public LayeredCache(
+      String name,
+      LayeredCacheProperties.Spec spec,
+      Cache remoteCache,
+      BiConsumer<String, String> invalidationPublisher,
+      MeterRegistry meterRegistry) {
+    super(false);
+    this.name = name;
+    this.remoteCache = remoteCache;
+    this.invalidationPublisher = invalidationPublisher;
+    this.localCache =
+        Caffeine.newBuilder()
+            .maximumSize(spec.getLocalMaxSize())
+            .expireAfterWrite(spec.getLocalTtl())
+            .build();
+    this.localHit = requestCounter(meterRegistry, TIER_LOCAL, "hit");
+    this.localMiss = requestCounter(meterRegistry, TIER_LOCAL, "miss");
+    this.remoteHit = requestCounter(meterRegistry, TIER_REMOTE, "hit");
+    this.remoteMiss = requestCounter(meterRegistry, TIER_REMOTE, "miss");
+    this.loadSuccess = loadCounter(meterRegistry, "success");
+    this.loadFailure = loadCounter(meterRegistry, "failure");
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return localCache;
+  }
+
+  @Override
+  protected Object lookup(Object key) {
+    String localKey = toLocalKey(key);
+    Object value = localCache.getIfPresent(localKey);
+    if (value != null) {
+      localHit.increment();
+      return value;
+    }
+    localMiss.increment();
+    Object remoteValue = lookupRemote(key);
+    if (remoteValue != null) {
+      localCache.put(localKey, remoteValue);
+    }
+    return remoteValue;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    String localKey = toLocalKey(key);
+    Object value = localCache.getIfPresent(localKey);
+    if (value != null) {
+      localHit.increment();
+      return (T) fromStoreValue(value);
+    }
+    localMiss.increment();
+    // 同一节点上相同键的并发未命中只加载一次
+    return (T)
+        fromStoreValue(localCache.get(localKey, k -> loadThroughRemote(key, valueLoader)));
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    if (value == null) {
+      evict(key);
+      return;
+    }
+    remoteCache.put(key, value);
+    String localKey = toLocalKey(key);
+    localCache.put(localKey, value);
+    invalidationPublisher.accept(name, localKey);
+  }
+
+  @Override
+  public ValueWrapper putIfAbsent(Object key, Object value) {
+    ValueWrapper existing = remoteCache.putIfAbsent(key, value);
+    String localKey = toLocalKey(key);
+    if (existing == null) {
+      localCache.put(localKey, value);
+      invalidationPublisher.accept(name, localKey);
+    } else if (existing.get() != null) {
+      localCache.put(localKey, existing.get());
+    }
+    return existing;
+  }
+
+  @Override
+  public void evict(Object key) {
+    remoteCache.evict(key);
+    String localKey = toLocalKey(key);
+    localCache.invalidate(localKey);
+    invalidationPublisher.accept(name, localKey);
+  }
+
+  @Override
+  public void clear() {
+    remoteCache.clear();
+    localCache.invalidateAll();
+    invalidationPublisher.accept(name, null);
+  }
+
+  /**
+   * 处理其他节点的失效通知,仅清理本地缓存
+   * @param localKey 键的字符串形式,为null时清空本地缓存
+   */
+  public void invalidateLocal(String localKey) {
+    if (localKey == null) {
+      localCache.invalidateAll();
+    } else {
+      localCache.invalidate(localKey);
+    }
+  }
+
+  /**
+   * 将缓存键转换为本地缓存键
+   * @param key 缓存键
+   * @return 键的字符串形式
+   */
+  public static String toLocalKey(Object key) {
+    return String.valueOf(key);
+  }
+
+  private Object lookupRemote(Object key) {
+    ValueWrapper wrapper = remoteCache.get(key);
+    if (wrapper == null || wrapper.get() == null) {
+      remoteMiss.increment();
+      return null;
+    }
+    remoteHit.increment();
+    return wrapper.get();
+  }
+
+  private Object loadThroughRemote(Object key, Callable<?> valueLoader) {
+    Object remoteValue = lookupRemote(key);
+    if (remoteValue != null) {
+      return remoteValue;
+    }
+    Object value;
+    try {
+      value = valueLoader.call();
+    } catch (Exception e) {
+      loadFailure.increment();
+      throw new ValueRetrievalException(key, valueLoader, e);
+    }
+    loadSuccess.increment();
+    if (value != null) {
+      remoteCache.put(key, value);
+    }
+    // 返回null时Caffeine不缓存该键
+    return value;
+  }
+
+  private Counter requestCounter(MeterRegistry meterRegistry, String tier, String result) {
+    return Counter.builder("cache.layered.requests")
+        .description("两级缓存各层级的命中与未命中次数")
+        .tag("cache", name)
+        .tag("tier", tier)
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private Counter loadCounter(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("cache.layered.loads")
+        .description("两级缓存均未命中时的加载次数")
+        .tag("cache", name)
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,158 @@
+package dev.wuan.wuan.config.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.BatchStrategy;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 两级缓存管理器
+ * 为每个缓存名称组合本地Caffeine与Redis缓存,并通过Redis发布订阅在节点间同步本地缓存失效;
+ * Redis缓存清空时按给定的批量清除策略分批删除,不使用KEYS
+ */
+@Slf4j
+public class LayeredCacheManager implements CacheManager, MessageListener {
+
+  /** 失效通知字段分隔符 */
+  private static final String FIELD_DELIMITER = "\t";
+
+  /** 失效通知中表示清空整个缓存的操作 */
+  private static final String OP_CLEAR = "C";
+
+  /** 失效通知中表示失效单个键的操作 */
+  private static final String OP_EVICT = "E";
+
+  /** 当前节点标识,用于忽略自身发布的通知 */
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final LayeredCacheProperties properties;
+
+  private final RedisCacheManager remoteCacheManager;
+
+  private final StringRedisTemplate stringRedisTemplate;
+
+  private final MeterRegistry meterRegistry;
+
+  private final Map<String, LayeredCache> caches = new ConcurrentHashMap<>();
+
+  /**
+   * 构造函数
+   * @param connectionFactory Redis连接工厂
+   * @param stringRedisTemplate 用于发布失效通知的Redis模板
+   * @param properties 两级缓存配置
+   * @param batchStrategy Redis缓存清空时的批量清除策略
+   * @param meterRegistry 指标注册表
+   */
+  public LayeredCacheManager(
+      RedisConnectionFactory connectionFactory,
+      StringRedisTemplate stringRedisTemplate,
+      LayeredCacheProperties properties,
+      BatchStrategy batchStrategy,
+      MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.meterRegistry = meterRegistry;
+    ClassLoader classLoader = getClass().getClassLoader();
+    Map<String, RedisCacheConfiguration> remoteConfigurations = new LinkedHashMap<>();
+    properties.getCaches().keySet()
+        .forEach(
+            cacheName ->
+                remoteConfigurations.put(
+                    cacheName, toRemoteConfiguration(properties.resolve(cacheName), classLoader)));
+    this.remoteCacheManager =
+        RedisCacheManager.builder(
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory, batchStrategy))
+            .cacheDefaults(toRemoteConfiguration(properties.getDefaults(), classLoader))
+            .withInitialCacheConfigurations(remoteConfigurations)
+            .build();
+    // 未注册为Bean,需手动初始化以加载按名称的配置
+    this.remoteCacheManager.initializeCaches();
+  }
+
+  @Override
+  public Cache getCache(String name) {
+    return caches.computeIfAbsent(name, this::createCache);
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    return Collections.unmodifiableSet(caches.keySet());
+  }
+
+  /**
+   * 处理其他节点发布的失效通知
+   * @param message 消息内容,格式为 节点标识、操作、缓存名称、键,以制表符分隔
+   * @param pattern 订阅模式
+   */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String[] fields =
+        new String(message.getBody(), StandardCharsets.UTF_8).split(FIELD_DELIMITER, 4);
+    if (fields.length != 4 || nodeId.equals(fields[0])) {
+      return;
+    }
+    LayeredCache cache = caches.get(fields[2]);
+    if (cache == null) {
+      return;
+    }
+    cache.invalidateLocal(OP_CLEAR.equals(fields[1]) ? null : fields[3]);
+  }
+
+  /**
+   * 获取失效通知频道
+   * @return 频道名称
+   */
+  public String getInvalidationChannel() {
+    return properties.getInvalidationChannel();
+  }
+
+  private LayeredCache createCache(String name) {
+    return new LayeredCache(
+        name,
+        properties.resolve(name),
+        remoteCacheManager.getCache(name),
+        this::publishInvalidation,
+        meterRegistry);
+  }
+
+  private void publishInvalidation(String cacheName, String localKey) {
+    String body =
+        String.join(
+            FIELD_DELIMITER,
+            nodeId,
+            localKey == null ? OP_CLEAR : OP_EVICT,
+            cacheName,
+            localKey == null ? "" : localKey);
+    try {
+      stringRedisTemplate.convertAndSend(properties.getInvalidationChannel(), body);
+    } catch (RuntimeException e) {
+      // 通知失败时其他节点的本地缓存在本地过期时间后自然失效
+      log.warn("发布缓存失效通知失败, cache: {}, key: {}", cacheName, localKey, e);
+    }
+  }
+
+  private static RedisCacheConfiguration toRemoteConfiguration(
+      LayeredCacheProperties.Spec spec, ClassLoader classLoader) {
+    return RedisCacheConfiguration.defaultCacheConfig(classLoader)
+        .entryTtl(spec.getRemoteTtl())
+        .serializeValuesWith(
+            spec.getSerializer()
+                .toSerializationPair(classLoader, spec.getCompressionThreshold()))
+        .disableCachingNullValues();
+  }
+}
@@ -0,0 +1,102 @@
+package dev.wuan.wuan.config.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 两级缓存配置
+ * 按缓存名称配置本地与Redis的过期时间、本地最大条目数和序列化方式,未配置的项使用默认值
+ */
+@Data
+@ConfigurationProperties(prefix = "cache.layered")
+public class LayeredCacheProperties {
+
+  /** 跨节点本地缓存失效通知频道 */
+  private String invalidationChannel = "cache:layered:evict";
+
+  /** 未单独配置的缓存使用的默认配置 */
+  private Spec defaults =
+      new Spec(
+          Duration.ofSeconds(30), 10000L, Duration.ofMinutes(10), CacheSerializer.SMILE, 1024);
+
+  /** 按缓存名称的配置 */
+  private Map<String, Spec> caches = new LinkedHashMap<>();
+
+  /** 防击穿与提前刷新配置 */
+  private RefreshAhead refreshAhead = new RefreshAhead();
+
+  /** 批量清除配置 */
+  private Eviction eviction = new Eviction();
+
+  /**
+   * 获取缓存的生效配置,未配置的项回落到默认配置
+   * @param cacheName 缓存名称
+   * @return 生效配置
+   */
+  public Spec resolve(String cacheName) {
+    Spec spec = caches.get(cacheName);
+    if (spec == null) {
+      return defaults;
+    }
+    return new Spec(
+        spec.getLocalTtl() != null ? spec.getLocalTtl() : defaults.getLocalTtl(),
+        spec.getLocalMaxSize() != null ? spec.getLocalMaxSize() : defaults.getLocalMaxSize(),
+        spec.getRemoteTtl() != null ? spec.getRemoteTtl() : defaults.getRemoteTtl(),
+        spec.getSerializer() != null ? spec.getSerializer() : defaults.getSerializer(),
+        spec.getCompressionThreshold() != null
+            ? spec.getCompressionThreshold()
+            : defaults.getCompressionThreshold());
+  }
+
+  /**
+   * 单个缓存的配置
+   */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Spec {
+
+    /** 本地缓存写入后过期时间 */
+    private Duration localTtl;
+
+    /** 本地缓存最大条目数 */
+    private Long localMaxSize;
+
+    /** Redis缓存过期时间 */
+    private Duration remoteTtl;
+
+    /** Redis缓存值序列化方式 */
+    private CacheSerializer serializer;
+
+    /** LZ4压缩阈值(字节),编码后不小于该值时压缩,0表示不压缩 */
+    private Integer compressionThreshold;
+  }
+
+  /**
+   * 防击穿与提前刷新配置
+   */
+  @Data
+  public static class RefreshAhead {
+
+    /** 写入后经过Redis过期时间的该比例即异步刷新 */
+    private double ratio = 0.8;
+
+    /** 回源租约时长 */
+    private Duration leaseTtl = Duration.ofSeconds(10);
+  }
+
+  /**
+   * 批量清除配置
+   */
+  @Data
+  public static class Eviction {
+
+    /** 每批SCAN的COUNT提示值与每次UNLINK的最大键数 */
+    private int batchSize = 1000;
+  }
+}
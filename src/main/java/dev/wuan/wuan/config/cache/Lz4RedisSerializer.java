@@ -0,0 +1,82 @@
+package dev.wuan.wuan.config.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * LZ4压缩序列化装饰器
+ * 编码结果超过阈值时压缩,首字节标记是否压缩,压缩时随后4字节为原始长度
+ */
+public class Lz4RedisSerializer implements RedisSerializer<Object> {
+
+  /** 未压缩标记 */
+  private static final byte RAW = 0;
+
+  /** LZ4压缩标记 */
+  private static final byte LZ4 = 1;
+
+  /** 压缩头长度,标记1字节加原始长度4字节 */
+  private static final int LZ4_HEADER_LENGTH = 1 + Integer.BYTES;
+
+  private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+  private final RedisSerializer<Object> delegate;
+
+  private final int threshold;
+
+  private final LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+
+  private final LZ4FastDecompressor decompressor = LZ4_FACTORY.fastDecompressor();
+
+  /**
+   * 构造函数
+   * @param delegate 实际编码的序列化器
+   * @param threshold 压缩阈值(字节),编码结果不小于该值时压缩
+   */
+  public Lz4RedisSerializer(RedisSerializer<Object> delegate, int threshold) {
+    this.delegate = delegate;
+    this.threshold = threshold;
+  }
+
+  @Override
+  public byte[] serialize(Object value) throws SerializationException {
+    byte[] encoded = delegate.serialize(value);
+    if (encoded == null || encoded.length == 0) {
+      return encoded;
+    }
+    if (encoded.length < threshold) {
+      byte[] raw = new byte[encoded.length + 1];
+      raw[0] = RAW;
+      System.arraycopy(encoded, 0, raw, 1, encoded.length);
+      return raw;
+    }
+    int maxLength = compressor.maxCompressedLength(encoded.length);
+    byte[] compressed = new byte[LZ4_HEADER_LENGTH + maxLength];
+    int compressedLength =
+        compressor.compress(encoded, 0, encoded.length, compressed, LZ4_HEADER_LENGTH, maxLength);
+    ByteBuffer.wrap(compressed).put(LZ4).putInt(encoded.length);
+    return Arrays.copyOf(compressed, LZ4_HEADER_LENGTH + compressedLength);
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+    if (bytes[0] == RAW) {
+      return delegate.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+    if (bytes[0] != LZ4 || bytes.length < LZ4_HEADER_LENGTH) {
+      throw new SerializationException("Unknown cache value header: " + bytes[0]);
+    }
+    int originalLength = ByteBuffer.wrap(bytes, 1, Integer.BYTES).getInt();
+    byte[] restored = new byte[originalLength];
+    decompressor.decompress(bytes, LZ4_HEADER_LENGTH, restored, 0, originalLength);
+    return delegate.deserialize(restored);
+  }
+}
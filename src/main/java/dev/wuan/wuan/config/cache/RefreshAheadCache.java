@@ -0,0 +1,346 @@
+package dev.wuan.wuan.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * 防击穿与提前刷新缓存装饰器
+ * 配合{@code @Cacheable(sync = true)}使用:同一节点同一键只有一个加载在执行,
+ * 集群内通过Redis租约保证只有一个节点回源,其余节点等待结果写入缓存;
+ * 条目临近过期时异步刷新,刷新期间继续返回旧值
+ *
+ * <p>写入时在Redis中另存写入时间戳,过期时间与缓存条目相同;节点首次看到某个键时读取该时间戳,
+ * 按写入时间而非本节点首次读取的时间计算刷新时间点,集群内各节点的刷新时间点一致。
+ * 时间戳缺失时(例如由其他途径写入)视为写入时间未知,立即安排一次刷新。
+ */
+@Slf4j
+public class RefreshAheadCache implements Cache {
+
+  /** 租约键前缀 */
+  public static final String LEASE_KEY_PREFIX = "cache:lease:";
+
+  /** 写入时间戳键前缀 */
+  public static final String WRITTEN_KEY_PREFIX = "cache:written:";
+
+  /** 仅删除自己持有的租约 */
+  private static final RedisScript<Long> RELEASE_LEASE_SCRIPT =
+      new DefaultRedisScript<>(
+          "if redis.call('get', KEYS[1]) == ARGV[1] then "
+              + "return redis.call('del', KEYS[1]) else return 0 end",
+          Long.class);
+
+  /** 未取得租约时轮询缓存的间隔 */
+  private static final long WAIT_POLL_MILLIS = 50;
+
+  private final Cache delegate;
+
+  private final StringRedisTemplate stringRedisTemplate;
+
+  private final Executor refreshExecutor;
+
+  /** 写入后多久开始提前刷新 */
+  private final Duration refreshAfter;
+
+  /** Redis缓存过期时间,也是写入时间戳的过期时间 */
+  private final Duration remoteTtl;
+
+  /** 回源租约时长,也是未取得租约时等待的最长时间 */
+  private final Duration leaseTtl;
+
+  /** 租约持有者标识 */
+  private final String leaseToken = UUID.randomUUID().toString();
+
+  /** 进行中的加载,键为本地缓存键 */
+  private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight =
+      new ConcurrentHashMap<>();
+
+  /** 正在异步刷新的键 */
+  private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+  /** 各键的提前刷新时间点(毫秒时间戳) */
+  private final com.github.benmanes.caffeine.cache.Cache<String, Long> refreshAtMillis;
+
+  /**
+   * 构造函数
+   * @param delegate 实际缓存
+   * @param stringRedisTemplate 用于租约的Redis模板
+   * @param refreshExecutor 异步刷新执行器
+   * @param spec 缓存配置,用于计算刷新时间点
+   * @param refreshAhead 提前刷新配置
+   */
+  public RefreshAheadCache(
+      Cache delegate,
+      StringRedisTemplate stringRedisTemplate,
+      Executor refreshExecutor,
+      LayeredCacheProperties.Spec spec,
+      LayeredCacheProperties.RefreshAhead refreshAhead) {
+    this.delegate = delegate;
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.refreshExecutor = refreshExecutor;
+    this.refreshAfter =
+        Duration.ofMillis((long) (spec.getRemoteTtl().toMillis() * refreshAhead.getRatio()));
+    this.remoteTtl = spec.getRemoteTtl();
+    this.leaseTtl = refreshAhead.getLeaseTtl();
+    this.refreshAtMillis =
+        Caffeine.newBuilder()
+            .maximumSize(spec.getLocalMaxSize())
+            .expireAfterWrite(spec.getRemoteTtl())
+            .build();
+  }
+
+  @Override
+  public String getName() {
+    return delegate.getName();
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return delegate.getNativeCache();
+  }
+
+  @Override
+  public ValueWrapper get(Object key) {
+    return delegate.get(key);
+  }
+
+  @Override
+  public <T> T get(Object key, Class<T> type) {
+    return delegate.get(key, type);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    String localKey = LayeredCache.toLocalKey(key);
+    ValueWrapper cached = delegate.get(key);
+    if (cached != null) {
+      maybeRefresh(key, localKey, valueLoader);
+      return (T) cached.get();
+    }
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(localKey, future);
+    if (existing != null) {
+      return (T) join(existing);
+    }
+    try {
+      Object value = loadWithLease(key, localKey, valueLoader);
+      future.complete(value);
+      return (T) value;
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(localKey, future);
+    }
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    delegate.put(key, value);
+    markWritten(LayeredCache.toLocalKey(key));
+  }
+
+  @Override
+  public ValueWrapper putIfAbsent(Object key, Object value) {
+    return delegate.putIfAbsent(key, value);
+  }
+
+  @Override
+  public void evict(Object key) {
+    delegate.evict(key);
+    String localKey = LayeredCache.toLocalKey(key);
+    refreshAtMillis.invalidate(localKey);
+    deleteWritten(localKey);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    refreshAtMillis.invalidateAll();
+  }
+
+  /**
+   * 取得租约后回源,未取得时等待持有租约的节点写入缓存,超时后自行回源
+   */
+  private Object loadWithLease(Object key, String localKey, Callable<?> valueLoader) {
+    String leaseKey = leaseKey(localKey);
+    long deadline = System.currentTimeMillis() + leaseTtl.toMillis();
+    while (!tryAcquireLease(leaseKey)) {
+      ValueWrapper loaded = delegate.get(key);
+      if (loaded != null) {
+        // 由其他节点写入,刷新时间点在下次命中时按其写入时间戳计算
+        refreshAtMillis.invalidate(localKey);
+        return loaded.get();
+      }
+      if (System.currentTimeMillis() >= deadline) {
+        log.warn("等待缓存租约超时, 直接回源, cache: {}, key: {}", getName(), localKey);
+        return load(key, localKey, valueLoader);
+      }
+      sleepQuietly();
+    }
+    try {
+      // 取得租约前其他节点可能已写入
+      ValueWrapper loaded = delegate.get(key);
+      if (loaded != null) {
+        refreshAtMillis.invalidate(localKey);
+        return loaded.get();
+      }
+      return load(key, localKey, valueLoader);
+    } finally {
+      releaseLease(leaseKey);
+    }
+  }
+
+  private Object load(Object key, String localKey, Callable<?> valueLoader) {
+    Object value;
+    try {
+      value = valueLoader.call();
+    } catch (Exception e) {
+      throw new ValueRetrievalException(key, valueLoader, e);
+    }
+    if (value != null) {
+      delegate.put(key, value);
+      markWritten(localKey);
+    }
+    return value;
+  }
+
+  private void maybeRefresh(Object key, String localKey, Callable<?> valueLoader) {
+    long now = System.currentTimeMillis();
+    Long refreshAt = refreshAtMillis.get(localKey, k -> readRefreshAt(k, now));
+    if (now < refreshAt || !refreshing.add(localKey)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(() -> refresh(key, localKey, valueLoader));
+    } catch (RuntimeException e) {
+      refreshing.remove(localKey);
+      log.warn("提交缓存刷新任务失败, cache: {}, key: {}", getName(), localKey, e);
+    }
+  }
+
+  private void refresh(Object key, String localKey, Callable<?> valueLoader) {
+    String leaseKey = leaseKey(localKey);
+    try {
+      if (!tryAcquireLease(leaseKey)) {
+        // 其他节点正在刷新,新值写入后经失效通知同步到本节点,租约到期前不再尝试
+        refreshAtMillis.put(localKey, System.currentTimeMillis() + leaseTtl.toMillis());
+        return;
+      }
+      try {
+        load(key, localKey, valueLoader);
+      } finally {
+        releaseLease(leaseKey);
+      }
+    } catch (RuntimeException e) {
+      log.warn("异步刷新缓存失败, 继续使用旧值, cache: {}, key: {}", getName(), localKey, e);
+    } finally {
+      refreshing.remove(localKey);
+    }
+  }
+
+  /**
+   * 记录本节点写入的时间,同时写入Redis供其他节点计算刷新时间点
+   */
+  private void markWritten(String localKey) {
+    long writtenAt = System.currentTimeMillis();
+    refreshAtMillis.put(localKey, writtenAt + refreshAfter.toMillis());
+    try {
+      stringRedisTemplate
+          .opsForValue()
+          .set(writtenKey(localKey), String.valueOf(writtenAt), remoteTtl);
+    } catch (RuntimeException e) {
+      log.warn("写入缓存时间戳失败, cache: {}, key: {}", getName(), localKey, e);
+    }
+  }
+
+  /**
+   * 按Redis中的写入时间戳计算刷新时间点
+   */
+  private long readRefreshAt(String localKey, long now) {
+    String writtenAt;
+    try {
+      writtenAt = stringRedisTemplate.opsForValue().get(writtenKey(localKey));
+    } catch (RuntimeException e) {
+      // Redis不可用时退化为按本节点首次看到的时间估算
+      log.warn("读取缓存时间戳失败, cache: {}, key: {}", getName(), localKey, e);
+      return now + refreshAfter.toMillis();
+    }
+    if (writtenAt == null) {
+      return now;
+    }
+    try {
+      return Long.parseLong(writtenAt) + refreshAfter.toMillis();
+    } catch (NumberFormatException e) {
+      return now;
+    }
+  }
+
+  private void deleteWritten(String localKey) {
+    try {
+      stringRedisTemplate.delete(writtenKey(localKey));
+    } catch (RuntimeException e) {
+      log.warn("删除缓存时间戳失败, cache: {}, key: {}", getName(), localKey, e);
+    }
+  }
+
+  private String writtenKey(String localKey) {
+    return WRITTEN_KEY_PREFIX + getName() + ":" + localKey;
+  }
+
+  private String leaseKey(String localKey) {
+    return LEASE_KEY_PREFIX + getName() + ":" + localKey;
+  }
+
+  private boolean tryAcquireLease(String leaseKey) {
+    try {
+      return Boolean.TRUE.equals(
+          stringRedisTemplate.opsForValue().setIfAbsent(leaseKey, leaseToken, leaseTtl));
+    } catch (RuntimeException e) {
+      // Redis不可用时退化为仅节点内单飞
+      log.warn("获取缓存租约失败, key: {}", leaseKey, e);
+      return true;
+    }
+  }
+
+  private void releaseLease(String leaseKey) {
+    try {
+      stringRedisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(leaseKey), leaseToken);
+    } catch (RuntimeException e) {
+      log.warn("释放缓存租约失败, key: {}", leaseKey, e);
+    }
+  }
+
+  private static Object join(CompletableFuture<Object> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private static void sleepQuietly() {
+    try {
+      Thread.sleep(WAIT_POLL_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for cache lease", e);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package dev.wuan.wuan.config.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.AbstractCacheResolver;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 防击穿与提前刷新缓存解析器
+ * 将缓存管理器返回的缓存包装为{@link RefreshAheadCache},并在外层包装事务感知装饰器,
+ * 事务中的失效推迟到提交后执行,避免并发读取在提交前把旧值重新写回Redis;
+ * 使用方式为{@code @Cacheable(value = ..., sync = true, cacheResolver = "refreshAheadCacheResolver")}
+ */
+public class RefreshAheadCacheResolver extends AbstractCacheResolver {
+
+  private final StringRedisTemplate stringRedisTemplate;
+
+  private final Executor refreshExecutor;
+
+  private final LayeredCacheProperties properties;
+
+  private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+  /**
+   * 构造函数
+   * @param cacheManager 缓存管理器
+   * @param stringRedisTemplate 用于租约的Redis模板
+   * @param refreshExecutor 异步刷新执行器
+   * @param properties 两级缓存配置
+   */
+  public RefreshAheadCacheResolver(
+      CacheManager cacheManager,
+      StringRedisTemplate stringRedisTemplate,
+      Executor refreshExecutor,
+      LayeredCacheProperties properties) {
+    super(cacheManager);
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.refreshExecutor = refreshExecutor;
+    this.properties = properties;
+  }
+
+  @Override
+  public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+    return super.resolveCaches(context).stream().map(this::decorate).toList();
+  }
+
+  @Override
+  protected Collection<String> getCacheNames(CacheOperationInvocationContext<?> context) {
+    return context.getOperation().getCacheNames();
+  }
+
+  private Cache decorate(Cache cache) {
+    return caches.computeIfAbsent(
+        cache.getName(),
+        name ->
+            new TransactionAwareCacheDecorator(
+                new RefreshAheadCache(
+                    cache,
+                    stringRedisTemplate,
+                    refreshExecutor,
+                    properties.resolve(name),
+                    properties.getRefreshAhead())));
+  }
+}
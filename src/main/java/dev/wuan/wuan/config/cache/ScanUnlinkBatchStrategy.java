@@ -0,0 +1,105 @@
+package dev.wuan.wuan.config.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.cache.BatchStrategy;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+
+/**
+ * 基于SCAN与UNLINK的批量清除策略
+ * 以游标分批遍历匹配的键并用UNLINK异步释放内存,避免KEYS与大批量DEL阻塞Redis;
+ * 每批完成后累加清除键数与批次数指标,可据此观察清除进度
+ */
+@Slf4j
+public class ScanUnlinkBatchStrategy implements BatchStrategy {
+
+  /** 每处理多少批输出一次进度日志 */
+  private static final int LOG_EVERY_BATCHES = 100;
+
+  private final int batchSize;
+
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * 构造函数
+   * @param batchSize 每批SCAN的COUNT提示值与每次UNLINK的最大键数
+   * @param meterRegistry 指标注册表
+   */
+  public ScanUnlinkBatchStrategy(int batchSize, MeterRegistry meterRegistry) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batch size must be positive");
+    }
+    this.batchSize = batchSize;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * 清除匹配的键
+   * @param connection Redis连接
+   * @param name 缓存名称,用作指标标签
+   * @param pattern 键匹配模式
+   * @return 清除的键数
+   */
+  @Override
+  public long cleanCache(RedisConnection connection, String name, byte[] pattern) {
+    Counter keysCounter = counter("cache.eviction.keys", "批量清除的键数", name);
+    Counter batchesCounter = counter("cache.eviction.batches", "批量清除执行的UNLINK批次数", name);
+    Timer.Sample sample = Timer.start(meterRegistry);
+    ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+    List<byte[]> batch = new ArrayList<>(batchSize);
+    long total = 0;
+    long batches = 0;
+    try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+      while (cursor.hasNext()) {
+        batch.add(cursor.next());
+        if (batch.size() >= batchSize) {
+          total += unlink(connection, batch, keysCounter, batchesCounter);
+          if (++batches % LOG_EVERY_BATCHES == 0) {
+            log.debug("批量清除进行中, cache: {}, 已清除: {}", name, total);
+          }
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      total += unlink(connection, batch, keysCounter, batchesCounter);
+    }
+    sample.stop(
+        Timer.builder("cache.eviction.duration")
+            .description("批量清除的耗时")
+            .tag("cache", name)
+            .register(meterRegistry));
+    log.debug("批量清除完成, cache: {}, 清除: {}", name, total);
+    return total;
+  }
+
+  /**
+   * 获取批大小
+   * @return 批大小
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  private long unlink(
+      RedisConnection connection, List<byte[]> batch, Counter keysCounter, Counter batchesCounter) {
+    Long unlinked = connection.keyCommands().unlink(batch.toArray(new byte[0][]));
+    batch.clear();
+    long count = unlinked != null ? unlinked : 0;
+    keysCounter.increment(count);
+    batchesCounter.increment();
+    return count;
+  }
+
+  private Counter counter(String meterName, String description, String cacheName) {
+    return Counter.builder(meterName)
+        .description(description)
+        .tag("cache", cacheName)
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,89 @@
+package dev.wuan.wuan.config.cache;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import java.io.IOException;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Jackson Smile二进制序列化器
+ * 写入类型信息以还原具体类型,体积与编解码耗时均小于JDK序列化,类增加字段时仍可兼容读取旧值
+ */
+public class SmileRedisSerializer implements RedisSerializer<Object> {
+
+  private final ObjectMapper objectMapper;
+
+  /**
+   * 构造函数
+   * @param classLoader 反序列化使用的类加载器
+   */
+  public SmileRedisSerializer(ClassLoader classLoader) {
+    ObjectMapper mapper =
+        SmileMapper.builder()
+            .annotationIntrospector(new CacheAnnotationIntrospector())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    mapper.setTypeFactory(mapper.getTypeFactory().withClassLoader(classLoader));
+    mapper.findAndRegisterModules();
+    // 仅允许反序列化本项目、jOOQ生成类与JDK中的类型
+    mapper.activateDefaultTyping(
+        BasicPolymorphicTypeValidator.builder()
+            .allowIfSubType("dev.wuan.wuan.")
+            .allowIfSubType("org.jooq.generated.")
+            .allowIfSubType("java.")
+            .build(),
+        ObjectMapper.DefaultTyping.EVERYTHING,
+        JsonTypeInfo.As.PROPERTY);
+    this.objectMapper = mapper;
+  }
+
+  @Override
+  public byte[] serialize(Object value) throws SerializationException {
+    if (value == null) {
+      return new byte[0];
+    }
+    try {
+      return objectMapper.writeValueAsBytes(value);
+    } catch (IOException e) {
+      throw new SerializationException("Could not write Smile: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+    try {
+      return objectMapper.readValue(bytes, Object.class);
+    } catch (IOException e) {
+      throw new SerializationException("Could not read Smile: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * 缓存需要无损还原对象,忽略面向接口输出的只写访问限制与日期格式
+   */
+  private static final class CacheAnnotationIntrospector extends JacksonAnnotationIntrospector {
+
+    @Override
+    public JsonProperty.Access findPropertyAccess(Annotated annotated) {
+      return JsonProperty.Access.AUTO;
+    }
+
+    @Override
+    public JsonFormat.Value findFormat(Annotated annotated) {
+      return JsonFormat.Value.empty();
+    }
+  }
+}
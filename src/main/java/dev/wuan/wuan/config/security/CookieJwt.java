@@ -2,16 +2,24 @@ package dev.wuan.wuan.config.security;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
+import java.util.Map;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -26,8 +34,9 @@ import org.springframework.web.util.WebUtils;
 @Getter
 public class CookieJwt {
 
-  /** JWT密钥 */
-  private final String secret;
+  /** JWT签名密钥,启动时加载一次,签名与验证复用同一算法实例 */
+  @Getter(AccessLevel.NONE)
+  private final JwtSigningKeys signingKeys;
 
   /** JWT过期时间(分钟) */
   private final int expirationMin;
@@ -39,38 +48,107 @@ public class CookieJwt {
   private final JWTVerifier verifier;
 
   /**
-   * 构造函数
+   * 已验证令牌缓存,键为令牌字符串本身,按条目数限界,条目在令牌exp时刻过期
+   * 查找只需String自带缓存的hashCode与一次等值比较,不再额外计算摘要
+   */
+  @Getter(AccessLevel.NONE)
+  private final Cache<String, VerifiedToken> verifiedTokenCache;
+
+  /**
+   * 构造函数,使用HS256共享密钥签名
    * @param secret JWT密钥
    * @param expirationMin JWT过期时间(分钟)
    * @param cookieName Cookie名称
    */
+  public CookieJwt(String secret, int expirationMin, String cookieName) {
+    this(JwtSigningKeys.hmac256(secret), expirationMin, cookieName, 10000);
+  }
+
+  /**
+   * 构造函数
+   * @param signingKeys JWT签名密钥
+   * @param expirationMin JWT过期时间(分钟)
+   * @param cookieName Cookie名称
+   * @param verifiedCacheMaxSize 已验证令牌缓存最大条目数
+   */
+  @Autowired
   public CookieJwt(
-      @Value("${jwt.secret}") String secret,
+      JwtSigningKeys signingKeys,
       @Value("${jwt.expiration-min}") int expirationMin,
-      @Value("${jwt.cookie-name}") String cookieName) {
-    this.verifier = JWT.require(Algorithm.HMAC256(secret)).build();
-    this.secret = secret;
+      @Value("${jwt.cookie-name}") String cookieName,
+      @Value("${jwt.verified-cache-max-size:10000}") long verifiedCacheMaxSize) {
+    this.signingKeys = signingKeys;
+    this.verifier = signingKeys.buildVerifier();
     this.expirationMin = expirationMin;
     this.cookieName = cookieName;
+    this.verifiedTokenCache =
+        Caffeine.newBuilder()
+            .maximumSize(verifiedCacheMaxSize)
+            .expireAfter(new VerifiedTokenExpiry())
+            .build();
+  }
+
+  /**
+   * 获取签名算法名称
+   * @return 签名算法名称
+   */
+  public String getAlgorithmName() {
+    return signingKeys.getAlgorithmName();
+  }
+
+  /**
+   * 导出验证公钥,供下游服务离线验证令牌
+   * @return 密钥ID与Base64编码的X.509公钥,HS256时为空
+   */
+  public Map<String, String> exportPublicKeys() {
+    return signingKeys.exportPublicKeys();
   }
 
   /**
    * 获取JWT令牌中的主题
+   * 令牌已验证过时直接返回缓存中解析好的主题,避免重复解码
    * @param token JWT令牌
    * @return 主题内容
    */
   public String getSubject(String token) {
+    VerifiedToken verifiedToken = getVerifiedToken(token);
+    if (verifiedToken != null) {
+      return verifiedToken.subject();
+    }
     return JWT.decode(token).getSubject();
   }
 
+  /**
+   * 获取JWT令牌的过期时间
+   * 令牌已验证过时直接返回缓存中的过期时间,避免重复解码
+   * @param token JWT令牌
+   * @return 过期时间,令牌未设置过期时间时返回null
+   */
+  public Instant getExpiresAt(String token) {
+    VerifiedToken verifiedToken = getVerifiedToken(token);
+    if (verifiedToken != null) {
+      return verifiedToken.expiresAt();
+    }
+    return JWT.decode(token).getExpiresAtAsInstant();
+  }
+
   /**
    * 验证JWT令牌
+   * 验证通过的令牌以令牌字符串本身为键缓存至其过期时间,缓存命中时跳过签名校验
    * @param token JWT令牌
    * @return 验证结果
    */
   public Boolean verifyToken(String token) {
+    if (getVerifiedToken(token) != null) {
+      return Boolean.TRUE;
+    }
     try {
-      verifier.verify(token);
+      DecodedJWT decodedJwt = verifier.verify(token);
+      // 无过期时间的令牌不缓存,每次都完整校验
+      if (decodedJwt.getExpiresAtAsInstant() != null) {
+        verifiedTokenCache.put(
+            token, new VerifiedToken(decodedJwt.getSubject(), decodedJwt.getExpiresAtAsInstant()));
+      }
       return Boolean.TRUE;
     } catch (JWTVerificationException e) {
       // 当JWT验证失败时返回false
@@ -94,7 +172,7 @@ public class CookieJwt {
                     .plusMinutes(expirationMin)
                     .atZone(ZoneId.systemDefault())
                     .toInstant()))
-        .sign(Algorithm.HMAC256(secret));
+        .sign(signingKeys.getAlgorithm());
   }
 
   /**
@@ -151,4 +229,53 @@ public class CookieJwt {
     }
     response.addCookie(cookie);
   }
+
+  /**
+   * 从缓存获取已验证且未过期的令牌
+   * @param token JWT令牌
+   * @return 已验证令牌,未命中或已过期时返回null
+   */
+  private VerifiedToken getVerifiedToken(String token) {
+    if (!StringUtils.hasText(token)) {
+      return null;
+    }
+    VerifiedToken verifiedToken = verifiedTokenCache.getIfPresent(token);
+    if (verifiedToken == null) {
+      return null;
+    }
+    // 缓存过期清理存在时间粒度,命中后仍需按exp再次判断
+    if (!verifiedToken.expiresAt().isAfter(Instant.now())) {
+      verifiedTokenCache.invalidate(token);
+      return null;
+    }
+    return verifiedToken;
+  }
+
+  /**
+   * 已验证令牌
+   * @param subject 令牌主题
+   * @param expiresAt 令牌过期时间
+   */
+  public record VerifiedToken(String subject, Instant expiresAt) {}
+
+  /** 按令牌exp声明计算缓存条目的存活时间 */
+  private static final class VerifiedTokenExpiry implements Expiry<String, VerifiedToken> {
+
+    @Override
+    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+      return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        String key, VerifiedToken value, long currentTime, long currentDuration) {
+      return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(
+        String key, VerifiedToken value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
 }
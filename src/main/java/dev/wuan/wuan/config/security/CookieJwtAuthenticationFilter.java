@@ -50,10 +50,11 @@ public class CookieJwtAuthenticationFilter extends OncePerRequestFilter {
     String token = cookieJwt.extractJwt(request);
     // 验证令牌是否有效
     if (StringUtils.isNotEmpty(token) && cookieJwt.verifyToken(token)) {
+      // 令牌验证后主题已缓存,仅获取一次供加载用户和记录错误使用
+      String subject = cookieJwt.getSubject(token);
       try {
         // 加载用户详情
-        UserDetails userDetails =
-            userDetailsService.loadUserByUsername(cookieJwt.getSubject(token));
+        UserDetails userDetails = userDetailsService.loadUserByUsername(subject);
         // 创建认证令牌
         CookieJwtAuthenticationToken authenticated =
             CookieJwtAuthenticationToken.authenticated(
@@ -64,7 +65,7 @@ public class CookieJwtAuthenticationFilter extends OncePerRequestFilter {
         SecurityContextHolder.getContext().setAuthentication(authenticated);
       } catch (Exception e) {
         // 记录无效用户ID的JWT错误
-        log.error("jwt with invalid user id {}", cookieJwt.getSubject(token), e);
+        log.error("jwt with invalid user id {}", subject, e);
       }
     }
     // 继续执行过滤器链
@@ -0,0 +1,207 @@
+package dev.wuan.wuan.config.security;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+/**
+ * WebSocket Cookie JWT认证拦截器
+ * 握手时根据Cookie中的JWT认证一次,并将认证信息缓存在会话属性中;
+ * 此后每个STOMP帧直接使用缓存的认证主体,仅在令牌过期后才重新加载用户,
+ * 长连接上的帧不会触发用户查询
+ */
+@Slf4j
+@Component
+public class CookieJwtWebSocketInterceptor implements HandshakeInterceptor, ChannelInterceptor {
+
+  /** 会话属性中缓存认证信息的键 */
+  public static final String SESSION_AUTHENTICATION = "cookieJwtAuthentication";
+
+  /** Cookie JWT管理组件 */
+  private final CookieJwt cookieJwt;
+
+  /** 用户详情服务 */
+  private final UserDetailsServiceImpl userDetailsService;
+
+  /** 判断令牌过期使用的时钟 */
+  private final Clock clock;
+
+  /**
+   * 构造函数
+   * @param cookieJwt Cookie JWT管理组件
+   * @param userDetailsService 用户详情服务
+   */
+  @Autowired
+  public CookieJwtWebSocketInterceptor(
+      CookieJwt cookieJwt, UserDetailsServiceImpl userDetailsService) {
+    this(cookieJwt, userDetailsService, Clock.systemUTC());
+  }
+
+  /**
+   * 构造函数
+   * @param cookieJwt Cookie JWT管理组件
+   * @param userDetailsService 用户详情服务
+   * @param clock 判断令牌过期使用的时钟
+   */
+  public CookieJwtWebSocketInterceptor(
+      CookieJwt cookieJwt, UserDetailsServiceImpl userDetailsService, Clock clock) {
+    this.cookieJwt = cookieJwt;
+    this.userDetailsService = userDetailsService;
+    this.clock = clock;
+  }
+
+  /**
+   * 握手前认证
+   * 认证过滤器已按同一令牌完成认证时直接复用,否则加载一次用户
+   * @param request HTTP请求
+   * @param response HTTP响应
+   * @param wsHandler WebSocket处理器
+   * @param attributes 会话属性
+   * @return 认证成功时继续握手
+   */
+  @Override
+  public boolean beforeHandshake(
+      ServerHttpRequest request,
+      ServerHttpResponse response,
+      WebSocketHandler wsHandler,
+      Map<String, Object> attributes) {
+    String token =
+        request instanceof ServletServerHttpRequest servletRequest
+            ? cookieJwt.extractJwt(servletRequest.getServletRequest())
+            : null;
+    SessionAuthentication sessionAuthentication =
+        reuse(SecurityContextHolder.getContext().getAuthentication(), token);
+    if (sessionAuthentication == null) {
+      sessionAuthentication = authenticate(token);
+    }
+    if (sessionAuthentication == null) {
+      response.setStatusCode(HttpStatus.UNAUTHORIZED);
+      return false;
+    }
+    attributes.put(SESSION_AUTHENTICATION, sessionAuthentication);
+    return true;
+  }
+
+  @Override
+  public void afterHandshake(
+      ServerHttpRequest request,
+      ServerHttpResponse response,
+      WebSocketHandler wsHandler,
+      Exception exception) {}
+
+  /**
+   * 为入站帧设置缓存的认证主体
+   * 令牌过期后需在帧的原生头中携带新令牌,头名称与Cookie名称相同,否则拒绝该帧
+   * @param message 入站消息
+   * @param channel 入站通道
+   * @return 设置了认证主体的消息
+   */
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+    StompHeaderAccessor accessor =
+        MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+    if (accessor == null || accessor.getCommand() == null) {
+      return message;
+    }
+    // 断开连接的帧无需认证,保证过期会话也能正常释放
+    if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+      return message;
+    }
+    Map<String, Object> attributes = accessor.getSessionAttributes();
+    SessionAuthentication sessionAuthentication =
+        attributes == null ? null : (SessionAuthentication) attributes.get(SESSION_AUTHENTICATION);
+    if (sessionAuthentication == null) {
+      throw new AccessDeniedException("websocket session is not authenticated");
+    }
+    if (sessionAuthentication.isExpired(clock.instant())) {
+      sessionAuthentication =
+          authenticate(accessor.getFirstNativeHeader(cookieJwt.getCookieName()));
+      if (sessionAuthentication == null) {
+        throw new AccessDeniedException("websocket session token expired");
+      }
+      attributes.put(SESSION_AUTHENTICATION, sessionAuthentication);
+    }
+    // 主体变化时才写入,CONNECT帧写入后由会话处理器记住,后续帧自动携带
+    if (accessor.getUser() != sessionAuthentication.authentication()) {
+      accessor.setUser(sessionAuthentication.authentication());
+    }
+    return message;
+  }
+
+  /**
+   * 复用认证过滤器为握手请求建立的认证信息
+   * @param authentication 安全上下文中的认证信息
+   * @param token 握手请求中的JWT令牌
+   * @return 会话认证信息,不可复用时返回null
+   */
+  private SessionAuthentication reuse(Authentication authentication, String token) {
+    if (authentication instanceof CookieJwtAuthenticationToken jwtAuthentication
+        && jwtAuthentication.isAuthenticated()
+        && StringUtils.equals(token, jwtAuthentication.getCredentials())) {
+      return new SessionAuthentication(jwtAuthentication, cookieJwt.getExpiresAt(token));
+    }
+    return null;
+  }
+
+  /**
+   * 验证令牌并加载用户
+   * @param token JWT令牌
+   * @return 会话认证信息,令牌无效或用户不存在时返回null
+   */
+  private SessionAuthentication authenticate(String token) {
+    if (StringUtils.isEmpty(token) || !cookieJwt.verifyToken(token)) {
+      return null;
+    }
+    String subject = cookieJwt.getSubject(token);
+    try {
+      UserDetails userDetails = userDetailsService.loadUserByUsername(subject);
+      if (!userDetails.isEnabled()) {
+        return null;
+      }
+      return new SessionAuthentication(
+          CookieJwtAuthenticationToken.authenticated(
+              userDetails, token, userDetails.getAuthorities()),
+          cookieJwt.getExpiresAt(token));
+    } catch (Exception e) {
+      log.error("websocket jwt with invalid user id {}", subject, e);
+      return null;
+    }
+  }
+
+  /**
+   * 会话认证信息
+   * @param authentication 认证信息
+   * @param expiresAt 令牌过期时间,为null时不过期
+   */
+  public record SessionAuthentication(Authentication authentication, Instant expiresAt) {
+
+    /**
+     * 令牌是否已过期
+     * @param now 当前时间
+     * @return 是否已过期
+     */
+    public boolean isExpired(Instant now) {
+      return expiresAt != null && !expiresAt.isAfter(now);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package dev.wuan.wuan.config.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JWT签名配置类
+ * 根据配置加载签名算法与密钥
+ */
+@Configuration
+public class JwtSigningConfig {
+
+  /**
+   * 配置JWT签名密钥
+   * @param algorithm 签名算法,HS256或ES256
+   * @param secret HS256共享密钥
+   * @param activeKeyId ES256当前签名使用的密钥ID
+   * @param privateKey ES256当前签名私钥
+   * @param publicKeys ES256公钥列表
+   * @return JWT签名密钥
+   */
+  @Bean
+  public JwtSigningKeys jwtSigningKeys(
+      @Value("${jwt.algorithm:HS256}") String algorithm,
+      @Value("${jwt.secret}") String secret,
+      @Value("${jwt.active-key-id:}") String activeKeyId,
+      @Value("${jwt.ec-private-key:}") String privateKey,
+      @Value("${jwt.ec-public-keys:}") String publicKeys) {
+    return JwtSigningKeys.fromConfig(algorithm, secret, activeKeyId, privateKey, publicKeys);
+  }
+}
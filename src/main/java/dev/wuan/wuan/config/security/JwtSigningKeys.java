@@ -0,0 +1,186 @@
+package dev.wuan.wuan.config.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.ECDSAKeyProvider;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+/**
+ * JWT签名密钥
+ * 启动时一次性加载签名算法实例,支持共享密钥HS256与按密钥ID轮换的ES256
+ */
+@Getter
+public class JwtSigningKeys {
+
+  /** HMAC-SHA256签名算法 */
+  public static final String HS256 = "HS256";
+
+  /** ECDSA P-256签名算法 */
+  public static final String ES256 = "ES256";
+
+  /** 公钥配置中密钥之间的分隔符 */
+  private static final String KEY_DELIMITER = ",";
+
+  /** 公钥配置中密钥ID与公钥之间的分隔符 */
+  private static final String KEY_ID_DELIMITER = ":";
+
+  /** 签名算法名称 */
+  private final String algorithmName;
+
+  /** 当前签名使用的密钥ID,HS256时为null */
+  private final String activeKeyId;
+
+  /** 签名与验证共用的算法实例 */
+  private final Algorithm algorithm;
+
+  /** 可用于验证的公钥,键为密钥ID,HS256时为空 */
+  private final Map<String, ECPublicKey> publicKeys;
+
+  private JwtSigningKeys(
+      String algorithmName,
+      String activeKeyId,
+      Algorithm algorithm,
+      Map<String, ECPublicKey> publicKeys) {
+    this.algorithmName = algorithmName;
+    this.activeKeyId = activeKeyId;
+    this.algorithm = algorithm;
+    this.publicKeys = publicKeys;
+  }
+
+  /**
+   * 创建HS256共享密钥签名
+   * @param secret 共享密钥
+   * @return 签名密钥
+   */
+  public static JwtSigningKeys hmac256(String secret) {
+    return new JwtSigningKeys(HS256, null, Algorithm.HMAC256(secret), Map.of());
+  }
+
+  /**
+   * 创建ES256签名
+   * 签名时在令牌头写入当前密钥ID,验证时按令牌头中的密钥ID选择公钥,
+   * 轮换期间保留旧公钥即可继续验证旧密钥签发的令牌
+   * @param activeKeyId 当前签名使用的密钥ID
+   * @param privateKey 当前签名私钥
+   * @param publicKeys 所有有效公钥,键为密钥ID
+   * @return 签名密钥
+   */
+  public static JwtSigningKeys ecdsa256(
+      String activeKeyId, ECPrivateKey privateKey, Map<String, ECPublicKey> publicKeys) {
+    if (!publicKeys.containsKey(activeKeyId)) {
+      throw new IllegalArgumentException("public key of active key id not configured");
+    }
+    Map<String, ECPublicKey> keys = Collections.unmodifiableMap(new LinkedHashMap<>(publicKeys));
+    ECDSAKeyProvider keyProvider =
+        new ECDSAKeyProvider() {
+          @Override
+          public ECPublicKey getPublicKeyById(String keyId) {
+            return keyId == null ? null : keys.get(keyId);
+          }
+
+          @Override
+          public ECPrivateKey getPrivateKey() {
+            return privateKey;
+          }
+
+          @Override
+          public String getPrivateKeyId() {
+            return activeKeyId;
+          }
+        };
+    return new JwtSigningKeys(ES256, activeKeyId, Algorithm.ECDSA256(keyProvider), keys);
+  }
+
+  /**
+   * 从配置创建签名密钥
+   * @param algorithmName 签名算法名称,HS256或ES256
+   * @param secret HS256共享密钥
+   * @param activeKeyId ES256当前签名使用的密钥ID
+   * @param privateKey ES256当前签名私钥,Base64编码的PKCS#8
+   * @param publicKeys ES256公钥列表,格式为 密钥ID:Base64编码的X.509公钥,多个以逗号分隔
+   * @return 签名密钥
+   */
+  public static JwtSigningKeys fromConfig(
+      String algorithmName,
+      String secret,
+      String activeKeyId,
+      String privateKey,
+      String publicKeys) {
+    if (ES256.equalsIgnoreCase(algorithmName)) {
+      return ecdsa256(activeKeyId, parsePrivateKey(privateKey), parsePublicKeys(publicKeys));
+    }
+    if (HS256.equalsIgnoreCase(algorithmName)) {
+      return hmac256(secret);
+    }
+    throw new IllegalArgumentException("unsupported jwt algorithm: " + algorithmName);
+  }
+
+  /**
+   * 构建令牌验证器
+   * @return JWT验证器
+   */
+  public JWTVerifier buildVerifier() {
+    return JWT.require(algorithm).build();
+  }
+
+  /**
+   * 导出公钥供下游服务离线验证
+   * @return 密钥ID与Base64编码的X.509公钥
+   */
+  public Map<String, String> exportPublicKeys() {
+    Map<String, String> exported = new LinkedHashMap<>();
+    publicKeys.forEach(
+        (keyId, publicKey) ->
+            exported.put(keyId, Base64.getEncoder().encodeToString(publicKey.getEncoded())));
+    return exported;
+  }
+
+  private static ECPrivateKey parsePrivateKey(String privateKey) {
+    if (!StringUtils.hasText(privateKey)) {
+      throw new IllegalArgumentException("ES256 private key not configured");
+    }
+    try {
+      return (ECPrivateKey)
+          KeyFactory.getInstance("EC")
+              .generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKey)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException("invalid ES256 private key", e);
+    }
+  }
+
+  private static Map<String, ECPublicKey> parsePublicKeys(String publicKeys) {
+    Map<String, ECPublicKey> keys = new LinkedHashMap<>();
+    if (!StringUtils.hasText(publicKeys)) {
+      return keys;
+    }
+    try {
+      KeyFactory keyFactory = KeyFactory.getInstance("EC");
+      for (String entry : publicKeys.split(KEY_DELIMITER)) {
+        String[] keyIdAndKey = entry.trim().split(KEY_ID_DELIMITER, 2);
+        if (keyIdAndKey.length != 2) {
+          throw new IllegalArgumentException("invalid ES256 public key entry: " + entry);
+        }
+        keys.put(
+            keyIdAndKey[0],
+            (ECPublicKey)
+                keyFactory.generatePublic(
+                    new X509EncodedKeySpec(Base64.getDecoder().decode(keyIdAndKey[1]))));
+      }
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException("invalid ES256 public key", e);
+    }
+    return keys;
+  }
+}
@@ -1,6 +1,7 @@
 package dev.wuan.wuan.config.security;
 
-import dev.wuan.wuan.dto.urp.UserRolePermissionDto;
+import dev.wuan.wuan.component.AuthoritySnapshotCache;
+import dev.wuan.wuan.dto.urp.AuthoritySnapshot;
 import dev.wuan.wuan.service.UserRolePermissionService;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -23,6 +24,9 @@ public class UserDetailsServiceImpl implements UserDetailsService {
   /** 用户角色权限服务 */
   private final UserRolePermissionService userRolePermissionService;
 
+  /** 用户权限快照缓存 */
+  private final AuthoritySnapshotCache authoritySnapshotCache;
+
   /**
    * 根据用户ID加载用户详情
    * @param id 用户ID
@@ -31,25 +35,36 @@ public class UserDetailsServiceImpl implements UserDetailsService {
    */
   @Override
   public UserDetails loadUserByUsername(String id) throws UsernameNotFoundException {
-    // 查询用户及其角色权限信息
-    Optional<UserRolePermissionDto> queryOptional =
-        userRolePermissionService.queryUniqueUserWithRolePermission(Long.valueOf(id));
-    
+    // 优先从两级缓存获取权限快照,未命中时查询用户及其角色权限信息
+    Optional<AuthoritySnapshot> queryOptional =
+        authoritySnapshotCache.get(Long.valueOf(id), this::loadAuthoritySnapshot);
+
     // 如果用户不存在则抛出异常
-    UserRolePermissionDto userRolePermissionDto =
+    AuthoritySnapshot authoritySnapshot =
         queryOptional.orElseThrow(
             () -> new UsernameNotFoundException(String.format("uid %s user not found", id)));
-    
+
     // 构建并返回UserDetails对象
     return new User(
-        userRolePermissionDto.getUsername(),
-        userRolePermissionDto.getPassword(),
-        userRolePermissionDto.getEnable(), // 账户是否启用
+        authoritySnapshot.username(),
+        "", // JWT认证不校验密码,快照中不保存密码
+        authoritySnapshot.enable(), // 账户是否启用
         true, // 账户未过期
         true, // 凭证未过期
         true, // 账户未锁定
-        userRolePermissionDto.getPermissions().stream()
-            .map((permission) -> new SimpleGrantedAuthority(permission.getCode()))
+        authoritySnapshot.authorities().stream()
+            .map(SimpleGrantedAuthority::new)
             .collect(Collectors.toSet())); // 转换权限列表
   }
+
+  /**
+   * 从数据库加载用户权限快照
+   * @param userId 用户ID
+   * @return 权限快照
+   */
+  private Optional<AuthoritySnapshot> loadAuthoritySnapshot(Long userId) {
+    return userRolePermissionService
+        .queryUniqueUserWithRolePermission(userId)
+        .map(AuthoritySnapshot::from);
+  }
 }
@@ -67,6 +67,7 @@ public class WebSecurityConfig {
     return new OrRequestMatcher(
         new AntPathRequestMatcher("/auth/sign-in", "POST"),
         new AntPathRequestMatcher("/auth/sign-up", "POST"),
+        new AntPathRequestMatcher("/auth/jwt-public-keys", "GET"),
         new AntPathRequestMatcher("/v3/api-docs/**", "GET"),
         new AntPathRequestMatcher("/swagger-ui/**", "GET"),
         new AntPathRequestMatcher("/swagger-ui.html", "GET"),
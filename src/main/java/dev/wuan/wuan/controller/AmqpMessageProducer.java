@@ -1,18 +1,21 @@
 package dev.wuan.wuan.controller;
 
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import dev.wuan.wuan.component.AmqpMessagePublisher;
 import dev.wuan.wuan.dto.amqp.Message;
 import jakarta.annotation.Resource;
 
 /**
  * RabbitMQ消息生产者控制器
  * 用于测试不同的消息队列模式
+ * 消息经发布器异步发送,broker确认接收后才返回成功
  */
 @RestController
 @RequestMapping(value = "/amqp/publisher/")
@@ -21,9 +24,9 @@ public class AmqpMessageProducer {
   /** 成功响应消息 */
   public static final String SUCCEED = "succeed";
 
-  /** RabbitMQ模板类,用于发送消息 */
+  /** AMQP消息发布器 */
   @Resource 
-  private RabbitTemplate rabbitTemplate;
+  private AmqpMessagePublisher amqpMessagePublisher;
 
   /**
    * 测试简单模式
@@ -33,11 +36,12 @@ public class AmqpMessageProducer {
    * @return 发送结果
    */
   @PostMapping(value = "/test/simple-mode")
-  public String testSimpleMode(
+  public CompletableFuture<String> testSimpleMode(
       @RequestParam(name = "routing-key") String routingKey, 
       @RequestBody Message message) {
-    rabbitTemplate.convertAndSend("exchange.direct.default", routingKey, message);
-    return SUCCEED;
+    return amqpMessagePublisher
+        .publish("exchange.direct.default", routingKey, message)
+        .thenApply(v -> SUCCEED);
   }
 
   /**
@@ -48,11 +52,12 @@ public class AmqpMessageProducer {
    * @return 发送结果
    */
   @PostMapping(value = "/test/work-mode")
-  public String testWorkMode(
+  public CompletableFuture<String> testWorkMode(
       @RequestParam(name = "routing-key") String routingKey, 
       @RequestBody Message message) {
-    rabbitTemplate.convertAndSend("exchange.direct.default", routingKey, message);
-    return SUCCEED;
+    return amqpMessagePublisher
+        .publish("exchange.direct.default", routingKey, message)
+        .thenApply(v -> SUCCEED);
   }
 
   /**
@@ -63,11 +68,12 @@ public class AmqpMessageProducer {
    * @return 发送结果
    */
   @PostMapping(value = "/test/topic-mode")
-  public String testTopicMode(
+  public CompletableFuture<String> testTopicMode(
       @RequestParam(name = "routing-key") String routingKey, 
       @RequestBody Message message) {
-    rabbitTemplate.convertAndSend("exchange.topic.default", routingKey, message);
-    return SUCCEED;
+    return amqpMessagePublisher
+        .publish("exchange.topic.default", routingKey, message)
+        .thenApply(v -> SUCCEED);
   }
 
   /**
@@ -77,8 +83,33 @@ public class AmqpMessageProducer {
    * @return 发送结果
    */
   @PostMapping(value = "/test/pubsub-mode")
-  public String testPubSubMode(@RequestBody Message message) {
-    rabbitTemplate.convertAndSend("exchange.pubsub.default", "", message);
-    return SUCCEED;
+  public CompletableFuture<String> testPubSubMode(@RequestBody Message message) {
+    return amqpMessagePublisher
+        .publish("exchange.pubsub.default", "", message)
+        .thenApply(v -> SUCCEED);
+  }
+
+  /**
+   * 批量发布消息
+   * 默认连续发送全部消息并等待全部确认;batching为true时合批发送,吞吐更高但不等待确认
+   * @param exchange 交换机
+   * @param routingKey 路由键
+   * @param batching 是否合批发送
+   * @param messages 消息列表
+   * @return 发送结果
+   */
+  @PostMapping(value = "/batch")
+  public CompletableFuture<String> publishBatch(
+      @RequestParam(name = "exchange", defaultValue = "exchange.direct.default") String exchange,
+      @RequestParam(name = "routing-key", defaultValue = "") String routingKey,
+      @RequestParam(name = "batching", defaultValue = "false") boolean batching,
+      @RequestBody List<Message> messages) {
+    if (batching) {
+      amqpMessagePublisher.publishBatched(exchange, routingKey, messages);
+      return CompletableFuture.completedFuture(SUCCEED);
+    }
+    return amqpMessagePublisher
+        .publishAll(exchange, routingKey, messages)
+        .thenApply(v -> SUCCEED);
   }
 }
@@ -1,14 +1,18 @@
 package dev.wuan.wuan.controller;
 
 import dev.wuan.wuan.config.security.CookieJwt;
+import dev.wuan.wuan.dto.sign.BulkSignUpResultDto;
 import dev.wuan.wuan.dto.sign.SignInDto;
 import dev.wuan.wuan.dto.sign.SignUpDto;
 import dev.wuan.wuan.service.SignService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 /**
@@ -52,6 +56,18 @@ public class SignController {
     signService.signUp(signUpDto);
   }
 
+  /**
+   * 批量注册用户,用于人事系统同步开户
+   * @param signUpDtoList 注册信息DTO列表
+   * @return 批量注册结果
+   */
+  @PreAuthorize("hasAuthority(T(dev.wuan.wuan.model.urp.EPermission).WRITE_USER_ROLE_PERMISSION)")
+  @ResponseStatus(HttpStatus.CREATED)
+  @PostMapping("/sign-up/bulk")
+  BulkSignUpResultDto signUpBulk(@RequestBody @Valid List<@Valid SignUpDto> signUpDtoList) {
+    return signService.signUpBulk(signUpDtoList);
+  }
+
   /**
    * 用户登出
    * @param request HTTP请求
@@ -62,4 +78,15 @@ public class SignController {
   void signOut(HttpServletRequest request, HttpServletResponse response) {
     cookieJwt.removeJwtCookie(request, response);
   }
+
+  /**
+   * 获取JWT验证公钥
+   * 使用ES256签名时下游服务可据此离线验证令牌
+   * @return 密钥ID与Base64编码的X.509公钥
+   */
+  @ResponseStatus(HttpStatus.OK)
+  @GetMapping("/jwt-public-keys")
+  Map<String, String> jwtPublicKeys() {
+    return cookieJwt.exportPublicKeys();
+  }
 }
@@ -1,9 +1,11 @@
 package dev.wuan.wuan.controller;
 
+import dev.wuan.wuan.dto.CursorPageResponseDto;
 import dev.wuan.wuan.dto.PageRequestDto;
 import dev.wuan.wuan.dto.PageResponseDto;
 import dev.wuan.wuan.dto.urp.*;
 import dev.wuan.wuan.service.UserRolePermissionService;
+import jakarta.validation.Valid;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -37,6 +39,21 @@ public class UserRolePermissionController {
     return userRolePermissionService.pageQueryUser(pageRequestDto, userQueryDto);
   }
 
+  /**
+   * 游标分页查询用户信息
+   * @param pageRequestDto 分页请求参数,使用cursor与sortBy,忽略page
+   * @param userQueryDto 用户查询条件
+   * @return 游标分页用户信息列表
+   */
+  @PreAuthorize("hasAuthority(T(dev.wuan.wuan.model.urp.EPermission).READ_USER_ROLE_PERMISSION)")
+  @GetMapping("/user/seek")
+  @ResponseStatus(HttpStatus.OK)
+  CursorPageResponseDto<List<UserRolePermissionDto>> seekUser(
+      @ModelAttribute @Valid PageRequestDto pageRequestDto,
+      @ModelAttribute UserQueryDto userQueryDto) {
+    return userRolePermissionService.seekQueryUser(pageRequestDto, userQueryDto);
+  }
+
   /**
    * 分页查询角色信息
    * @param pageRequestDto 分页请求参数
@@ -52,6 +69,21 @@ public class UserRolePermissionController {
     return userRolePermissionService.pageQueryRole(pageRequestDto, roleQueryDto);
   }
 
+  /**
+   * 游标分页查询角色信息
+   * @param pageRequestDto 分页请求参数,使用cursor与sortBy,忽略page
+   * @param roleQueryDto 角色查询条件
+   * @return 游标分页角色信息列表
+   */
+  @PreAuthorize("hasAuthority(T(dev.wuan.wuan.model.urp.EPermission).READ_USER_ROLE_PERMISSION)")
+  @GetMapping("/role/seek")
+  @ResponseStatus(HttpStatus.OK)
+  CursorPageResponseDto<List<RoleDto>> seekRole(
+      @ModelAttribute @Valid PageRequestDto pageRequestDto,
+      @ModelAttribute RoleQueryDto roleQueryDto) {
+    return userRolePermissionService.seekQueryRole(pageRequestDto, roleQueryDto);
+  }
+
   /**
    * 分页查询权限信息
    * @param pageRequestDto 分页请求参数
@@ -67,31 +99,48 @@ public class UserRolePermissionController {
     return userRolePermissionService.pageQueryPermission(pageRequestDto, permissionQueryDto);
   }
 
+  /**
+   * 游标分页查询权限信息
+   * @param pageRequestDto 分页请求参数,使用cursor与sortBy,忽略page
+   * @param permissionQueryDto 权限查询条件
+   * @return 游标分页权限信息列表
+   */
+  @PreAuthorize("hasAuthority(T(dev.wuan.wuan.model.urp.EPermission).READ_USER_ROLE_PERMISSION)")
+  @GetMapping("/permission/seek")
+  @ResponseStatus(HttpStatus.OK)
+  CursorPageResponseDto<List<PermissionDto>> seekPermission(
+      @ModelAttribute @Valid PageRequestDto pageRequestDto,
+      @ModelAttribute PermissionQueryDto permissionQueryDto) {
+    return userRolePermissionService.seekQueryPermission(pageRequestDto, permissionQueryDto);
+  }
+
   /**
    * 为用户绑定角色
    * @param userId 用户ID
    * @param roleIdList 角色ID列表
+   * @return 角色绑定变更结果
    */
   @PreAuthorize("hasAuthority(T(dev.wuan.wuan.model.urp.EPermission).WRITE_USER_ROLE_PERMISSION)")
   @PostMapping("/user/{userId}/bind-role")
   @ResponseStatus(HttpStatus.OK)
-  void bindRoleToUser(
+  BindingDelta bindRoleToUser(
       @PathVariable Long userId, 
       @RequestBody List<Long> roleIdList) {
-    userRolePermissionService.bindRoleToUser(userId, roleIdList);
+    return userRolePermissionService.bindRoleToUser(userId, roleIdList);
   }
 
   /**
    * 为角色绑定权限
    * @param roleId 角色ID
    * @param permissionIdList 权限ID列表
+   * @return 权限绑定变更结果
    */
   @PreAuthorize("hasAuthority(T(dev.wuan.wuan.model.urp.EPermission).WRITE_USER_ROLE_PERMISSION)")
   @PostMapping("/role/{roleId}/bind-permission")
   @ResponseStatus(HttpStatus.OK)
-  void bindPermissionToRole(
+  BindingDelta bindPermissionToRole(
       @PathVariable Long roleId, 
       @RequestBody List<Long> permissionIdList) {
-    userRolePermissionService.bindPermissionToRole(roleId, permissionIdList);
+    return userRolePermissionService.bindPermissionToRole(roleId, permissionIdList);
   }
 }
@@ -2,6 +2,7 @@ package dev.wuan.wuan.controller;
 
 import static dev.wuan.wuan.config.WebSocketConfig.*;
 
+import dev.wuan.wuan.component.BatchingBroadcaster;
 import dev.wuan.wuan.dto.ws.InboundMessage;
 import dev.wuan.wuan.dto.ws.OutboundMessage;
 import jakarta.annotation.Resource;
@@ -21,16 +22,25 @@ public class WebSocketStompController {
   @Resource 
   private SimpMessagingTemplate simpMessagingTemplate;
 
+  /** 合批广播组件,启用时广播合并后发送 */
+  @Resource
+  private BatchingBroadcaster batchingBroadcaster;
+
   /**
    * 处理用户进入聊天室的消息
    * @param inboundMessage 入站消息
-   * @return 广播给所有用户的欢迎消息
+   * @return 广播给所有用户的欢迎消息,启用合批广播时交由合批广播组件发送并返回null
    */
   @MessageMapping("/entry")
   @SendTo(TOPIC)
   public OutboundMessage enterChatRoom(InboundMessage inboundMessage) {
     String welcomeMsg = String.format("Greetings %s", inboundMessage.getName());
-    return new OutboundMessage(welcomeMsg);
+    OutboundMessage outboundMessage = new OutboundMessage(welcomeMsg);
+    if (batchingBroadcaster.isEnabled()) {
+      batchingBroadcaster.broadcast(TOPIC, outboundMessage);
+      return null;
+    }
+    return outboundMessage;
   }
 
   /**
@@ -0,0 +1,24 @@
+package dev.wuan.wuan.dto;
+
+import jakarta.annotation.Nullable;
+import lombok.*;
+
+@Data
+public class CursorPageResponseDto<T> {
+  private T data;
+
+  /** 下一页游标,没有下一页时为null */
+  private String nextCursor;
+
+  private boolean hasNext;
+
+  public CursorPageResponseDto(@Nullable T data, @Nullable String nextCursor) {
+    this.data = data;
+    this.nextCursor = nextCursor;
+    this.hasNext = nextCursor != null;
+  }
+
+  public static <T> CursorPageResponseDto<T> empty() {
+    return new CursorPageResponseDto<>(null, null);
+  }
+}
@@ -3,11 +3,16 @@ package dev.wuan.wuan.dto;
 import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.name;
 
+import dev.wuan.wuan.exception.BusinessException;
+import jakarta.validation.constraints.Min;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import lombok.*;
 import org.apache.commons.lang3.StringUtils;
+import org.jooq.Field;
+import org.jooq.Record;
 import org.jooq.SortField;
 import org.jooq.SortOrder;
 
@@ -19,10 +24,19 @@ public class PageRequestDto {
 
   public static final String SPACE = " ";
 
+  @Min(value = 0, message = "Page index must not be less than zero")
   private int page;
+
+  @Min(value = 1, message = "Page size must not be less than one")
   private int size;
 
-  private Map<String, Direction> sortBy = new HashMap<>();
+  private Map<String, Direction> sortBy = new LinkedHashMap<>();
+
+  /** 游标分页的游标,为空时从第一页开始 */
+  private String cursor;
+
+  /** 总数计算方式,默认精确统计 */
+  private TotalMode totalMode = TotalMode.EXACT;
 
   public PageRequestDto(int page, int size) {
     checkPageAndSize(page, size);
@@ -59,6 +73,16 @@ public class PageRequestDto {
     }
   }
 
+  /**
+   * 分页总数计算方式
+   * EXACT 每次查询附带窗口计数; SKIP 不统计总数; ESTIMATED 使用带过期时间的缓存计数
+   */
+  public enum TotalMode {
+    EXACT,
+    SKIP,
+    ESTIMATED
+  }
+
   public static PageRequestDto of(int page, int size) {
     return new PageRequestDto(page, size);
   }
@@ -75,6 +99,91 @@ public class PageRequestDto {
         .toList();
   }
 
+  /**
+   * 获取游标分页的排序字段
+   * 在请求的排序字段后追加主键作为唯一排序键,保证游标定位稳定
+   * @param sortableFields 允许作为排序键的字段,排序键的值会写入游标返回给客户端
+   * @param idField 表主键
+   * @return 排序字段
+   */
+  public List<SortField<?>> getSeekSortFields(List<Field<?>> sortableFields, Field<Long> idField) {
+    return getSeekFields(sortableFields, idField).entrySet().stream()
+        .<SortField<?>>map(
+            entry -> entry.getKey().sort(SortOrder.valueOf(entry.getValue().getKeyword())))
+        .toList();
+  }
+
+  /**
+   * 解析游标为seek值
+   * 游标未签名,只校验其排序方式与本次请求一致,排序键值仅用于定位
+   * @param sortableFields 允许作为排序键的字段
+   * @param idField 表主键
+   * @return 与排序字段一一对应的值,无游标时返回null
+   */
+  public Object[] getSeekValues(List<Field<?>> sortableFields, Field<Long> idField) {
+    if (StringUtils.isEmpty(cursor)) {
+      return null;
+    }
+    Map<Field<?>, Direction> seekFields = getSeekFields(sortableFields, idField);
+    SeekCursor seekCursor = SeekCursor.decode(cursor);
+    if (!getSeekSignature(seekFields).equals(seekCursor.sort())
+        || seekCursor.values() == null
+        || seekCursor.values().size() != seekFields.size()) {
+      throw new IllegalArgumentException(
+          String.format("Cursor %s does not match sortBy %s", cursor, sortBy));
+    }
+    Object[] values = new Object[seekFields.size()];
+    int index = 0;
+    for (Field<?> field : seekFields.keySet()) {
+      values[index] = field.getDataType().convert(seekCursor.values().get(index));
+      index++;
+    }
+    return values;
+  }
+
+  /**
+   * 根据本页最后一行生成下一页游标
+   * @param sortableFields 允许作为排序键的字段
+   * @param idField 表主键
+   * @param lastRecord 本页最后一行
+   * @return 下一页游标
+   */
+  public String buildNextCursor(
+      List<Field<?>> sortableFields, Field<Long> idField, Record lastRecord) {
+    Map<Field<?>, Direction> seekFields = getSeekFields(sortableFields, idField);
+    List<String> values =
+        seekFields.keySet().stream()
+            .map(field -> Objects.toString(lastRecord.get(field), null))
+            .toList();
+    return new SeekCursor(getSeekSignature(seekFields), values).encode();
+  }
+
+  private Map<Field<?>, Direction> getSeekFields(
+      List<Field<?>> sortableFields, Field<Long> idField) {
+    Map<Field<?>, Direction> seekFields = new LinkedHashMap<>();
+    sortBy.forEach(
+        (name, direction) -> {
+          // 只允许白名单中的字段,避免密码等敏感列经游标泄露给客户端
+          Field<?> field =
+              sortableFields.stream()
+                  .filter(sortable -> sortable.getName().equals(name))
+                  .findFirst()
+                  .orElseThrow(
+                      () ->
+                          new BusinessException(
+                              String.format("Sort field %s is not sortable", name)));
+          seekFields.put(field, direction);
+        });
+    seekFields.putIfAbsent(idField, Direction.ASC);
+    return seekFields;
+  }
+
+  private static String getSeekSignature(Map<Field<?>, Direction> seekFields) {
+    return seekFields.entrySet().stream()
+        .map(entry -> entry.getKey().getName() + ":" + entry.getValue().getKeyword())
+        .collect(Collectors.joining(","));
+  }
+
   private void checkPageAndSize(int page, int size) {
     if (page < 0) {
       throw new IllegalArgumentException("Page index must not be less than zero");
@@ -94,7 +203,8 @@ public class PageRequestDto {
   }
 
   private Map<String, Direction> convertSortBy(String sortBy) {
-    Map<String, Direction> result = new HashMap<>();
+    // 保持请求中的字段顺序,游标分页依赖稳定的排序键顺序
+    Map<String, Direction> result = new LinkedHashMap<>();
     if (StringUtils.isEmpty(sortBy)) {
       return result;
     }
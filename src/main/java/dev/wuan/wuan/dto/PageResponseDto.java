@@ -8,12 +8,20 @@ public class PageResponseDto<T> {
   private long total;
   private T data;
 
+  /** 本次响应总数的计算方式,SKIP时total为已读取行数的下界 */
+  private PageRequestDto.TotalMode totalMode;
+
   public PageResponseDto(long total, @Nullable T data) {
+    this(total, data, PageRequestDto.TotalMode.EXACT);
+  }
+
+  public PageResponseDto(long total, @Nullable T data, PageRequestDto.TotalMode totalMode) {
     if (total < 0) {
       throw new IllegalArgumentException("total must not be less than zero");
     }
     this.total = total;
     this.data = data;
+    this.totalMode = totalMode;
   }
 
   public static <T> PageResponseDto<T> empty() {
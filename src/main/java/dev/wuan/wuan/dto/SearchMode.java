@@ -0,0 +1,13 @@
+package dev.wuan.wuan.dto;
+
+/**
+ * 名称类字段的模糊查询方式
+ * CONTAINS 前后通配的LIKE,无法使用索引;
+ * FULLTEXT 基于ngram全文索引的MATCH AGAINST短语查询;
+ * PREFIX 前缀LIKE,可使用B-tree索引
+ */
+public enum SearchMode {
+  CONTAINS,
+  FULLTEXT,
+  PREFIX
+}
@@ -0,0 +1,49 @@
+package dev.wuan.wuan.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 游标分页的不透明游标
+ * 记录上一页最后一行的排序键值以及生成游标时的排序方式,编码为URL安全的Base64字符串;
+ * 游标未签名,客户端可以修改其中的值,因此只能包含允许返回给客户端的排序键
+ *
+ * @param sort 排序方式签名,如 username:ASC,id:ASC
+ * @param values 上一页最后一行的排序键值,顺序与排序字段一致
+ */
+public record SeekCursor(String sort, List<String> values) {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  /**
+   * 编码为不透明游标字符串
+   * @return 游标字符串
+   */
+  public String encode() {
+    try {
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(OBJECT_MAPPER.writeValueAsBytes(this));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Failed to encode cursor", e);
+    }
+  }
+
+  /**
+   * 解码游标字符串
+   * @param cursor 游标字符串
+   * @return 游标
+   */
+  public static SeekCursor decode(String cursor) {
+    try {
+      byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+      return OBJECT_MAPPER.readValue(json, SeekCursor.class);
+    } catch (IllegalArgumentException | IOException e) {
+      throw new IllegalArgumentException(String.format("Invalid cursor %s", cursor), e);
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package dev.wuan.wuan.dto.sign;
+
+import java.util.List;
+import lombok.*;
+
+/**
+ * 批量注册结果
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkSignUpResultDto {
+
+  /** 新建用户ID,与请求中未被跳过的用户顺序一致 */
+  private List<Long> createdUserIdList;
+
+  /** 因用户名已存在或在请求中重复而跳过的用户名 */
+  private List<String> skippedUsernameList;
+}
@@ -0,0 +1,42 @@
+package dev.wuan.wuan.dto.urp;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 用户权限快照
+ * 认证链路只需要的用户字段与权限编码的不可变副本,用于本地与Redis两级缓存;
+ * JWT认证不校验密码,因此快照不含密码,避免密码哈希写入Redis
+ *
+ * @param userId 用户ID
+ * @param username 用户名
+ * @param enable 账户是否启用
+ * @param authorities 权限编码集合
+ */
+public record AuthoritySnapshot(
+    Long userId, String username, boolean enable, Set<String> authorities)
+    implements Serializable {
+
+  @Serial private static final long serialVersionUID = 1L;
+
+  public AuthoritySnapshot {
+    authorities = authorities == null ? Set.of() : Set.copyOf(authorities);
+  }
+
+  /**
+   * 根据用户角色权限信息构建快照
+   * @param userRolePermissionDto 用户角色权限DTO
+   * @return 权限快照
+   */
+  public static AuthoritySnapshot from(UserRolePermissionDto userRolePermissionDto) {
+    return new AuthoritySnapshot(
+        userRolePermissionDto.getId(),
+        userRolePermissionDto.getUsername(),
+        Boolean.TRUE.equals(userRolePermissionDto.getEnable()),
+        userRolePermissionDto.getPermissions().stream()
+            .map(PermissionDto::getCode)
+            .collect(Collectors.toSet()));
+  }
+}
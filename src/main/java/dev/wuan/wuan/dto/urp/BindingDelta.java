@@ -0,0 +1,26 @@
+package dev.wuan.wuan.dto.urp;
+
+import java.util.List;
+
+/**
+ * 绑定关系变更结果
+ * 记录本次绑定相对原有映射实际新增与移除的关联ID,调用方据此精确失效缓存
+ *
+ * @param added 新增关联的ID
+ * @param removed 移除关联的ID
+ */
+public record BindingDelta(List<Long> added, List<Long> removed) {
+
+  public BindingDelta {
+    added = added == null ? List.of() : List.copyOf(added);
+    removed = removed == null ? List.of() : List.copyOf(removed);
+  }
+
+  /**
+   * 判断本次绑定是否未产生任何变更
+   * @return 无新增且无移除时返回true
+   */
+  public boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty();
+  }
+}
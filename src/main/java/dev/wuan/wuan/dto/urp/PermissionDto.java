@@ -1,11 +1,16 @@
 package dev.wuan.wuan.dto.urp;
 
+import java.io.Serial;
+import java.io.Serializable;
 import lombok.*;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
-public class PermissionDto {
+public class PermissionDto implements Serializable {
+
+  @Serial private static final long serialVersionUID = 1L;
+
   private Long id;
   private String code;
   private String name;
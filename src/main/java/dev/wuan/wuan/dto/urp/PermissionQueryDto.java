@@ -1,5 +1,6 @@
 package dev.wuan.wuan.dto.urp;
 
+import dev.wuan.wuan.dto.SearchMode;
 import java.util.List;
 import lombok.*;
 
@@ -13,4 +14,7 @@ public class PermissionQueryDto {
   private String permissionCode;
   private String permissionName;
   private List<Long> permissionIdList;
+
+  /** 名称查询方式 */
+  private SearchMode searchMode = SearchMode.CONTAINS;
 }
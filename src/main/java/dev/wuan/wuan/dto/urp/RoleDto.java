@@ -1,5 +1,7 @@
 package dev.wuan.wuan.dto.urp;
 
+import java.io.Serial;
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 import lombok.*;
@@ -7,7 +9,10 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
-public class RoleDto {
+public class RoleDto implements Serializable {
+
+  @Serial private static final long serialVersionUID = 1L;
+
   private Long id;
   private String code;
   private String name;
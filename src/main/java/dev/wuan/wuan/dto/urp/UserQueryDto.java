@@ -1,5 +1,6 @@
 package dev.wuan.wuan.dto.urp;
 
+import dev.wuan.wuan.dto.SearchMode;
 import lombok.*;
 
 @AllArgsConstructor
@@ -7,4 +8,11 @@ import lombok.*;
 @Data
 public class UserQueryDto {
   private String username;
+
+  /** 用户名查询方式 */
+  private SearchMode searchMode = SearchMode.CONTAINS;
+
+  public UserQueryDto(String username) {
+    this.username = username;
+  }
 }
@@ -2,6 +2,8 @@ package dev.wuan.wuan.dto.urp;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serial;
+import java.io.Serializable;
 import java.time.OffsetDateTime;
 import java.util.LinkedList;
 import java.util.List;
@@ -12,7 +14,10 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
-public class UserRolePermissionDto {
+public class UserRolePermissionDto implements Serializable {
+
+  @Serial private static final long serialVersionUID = 1L;
+
   private Long id;
   private String username;
 
@@ -0,0 +1,9 @@
+package dev.wuan.wuan.model.outbox;
+
+/**
+ * 领域事件所属的聚合类型
+ */
+public enum EAggregate {
+  USER,
+  ROLE
+}
@@ -0,0 +1,22 @@
+package dev.wuan.wuan.model.outbox;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 领域事件类型
+ * 事件类型同时作为发布到主题交换机的路由键
+ */
+@Getter
+@RequiredArgsConstructor
+public enum EDomainEvent {
+  USER_SIGNED_UP(EAggregate.USER, "user.signed-up"),
+  USER_ROLES_CHANGED(EAggregate.USER, "user.roles-changed"),
+  ROLE_PERMISSIONS_CHANGED(EAggregate.ROLE, "role.permissions-changed");
+
+  /** 所属聚合类型 */
+  private final EAggregate aggregate;
+
+  /** 事件类型,即路由键 */
+  private final String type;
+}
@@ -0,0 +1,144 @@
+package dev.wuan.wuan.repository;
+
+import static org.jooq.generated.wuan.tables.OutboxEvent.OUTBOX_EVENT;
+import static org.jooq.generated.wuan.tables.Role.ROLE;
+import static org.jooq.generated.wuan.tables.User.USER;
+import static org.jooq.impl.DSL.row;
+import static org.jooq.impl.DSL.selectOne;
+
+import dev.wuan.wuan.model.outbox.EAggregate;
+import java.util.Collection;
+import java.util.List;
+import org.jooq.Configuration;
+import org.jooq.Field;
+import org.jooq.InsertValuesStep4;
+import org.jooq.Table;
+import org.jooq.generated.wuan.tables.daos.OutboxEventDao;
+import org.jooq.generated.wuan.tables.pojos.OutboxEvent;
+import org.jooq.generated.wuan.tables.records.OutboxEventRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 领域事件发件箱仓储类
+ */
+@Repository
+public class OutboxEventRepository extends OutboxEventDao {
+
+  /**
+   * 构造函数
+   * @param configuration JOOQ配置
+   */
+  @Autowired
+  public OutboxEventRepository(Configuration configuration) {
+    super(configuration);
+  }
+
+  /**
+   * 以单条多行INSERT写入事件
+   * @param events 待写入的事件,id与创建时间由数据库生成
+   * @return 插入的行数
+   */
+  public int insertAll(Collection<OutboxEvent> events) {
+    if (events == null || events.isEmpty()) {
+      return 0;
+    }
+    InsertValuesStep4<OutboxEventRecord, String, Long, String, String> insert =
+        ctx().insertInto(
+            OUTBOX_EVENT,
+            OUTBOX_EVENT.AGGREGATE_TYPE,
+            OUTBOX_EVENT.AGGREGATE_ID,
+            OUTBOX_EVENT.EVENT_TYPE,
+            OUTBOX_EVENT.PAYLOAD);
+    for (OutboxEvent event : events) {
+      insert =
+          insert.values(
+              event.getAggregateType(),
+              event.getAggregateId(),
+              event.getEventType(),
+              event.getPayload());
+    }
+    return insert.execute();
+  }
+
+  /**
+   * 锁定聚合所在的行,使同一聚合的事件按提交顺序分配id
+   * @param aggregate 聚合类型
+   * @param aggregateIdList 聚合ID
+   */
+  public void lockAggregate(EAggregate aggregate, Collection<Long> aggregateIdList) {
+    if (aggregateIdList == null || aggregateIdList.isEmpty()) {
+      return;
+    }
+    Table<?> table =
+        switch (aggregate) {
+          case USER -> USER;
+          case ROLE -> ROLE;
+        };
+    Field<Long> idField =
+        switch (aggregate) {
+          case USER -> USER.ID;
+          case ROLE -> ROLE.ID;
+        };
+    ctx().select(idField).from(table).where(idField.in(aggregateIdList)).forUpdate().fetch();
+  }
+
+  /**
+   * 认领各聚合最早的一条事件
+   * 只选取没有更早事件的行,已被其他中继锁定的行跳过,
+   * 因此同一聚合同一时刻只会被一个中继认领
+   * @param limit 最多认领的聚合数
+   * @return 按id升序的事件
+   */
+  public List<OutboxEvent> claimAggregateHeads(int limit) {
+    org.jooq.generated.wuan.tables.OutboxEvent earlier = OUTBOX_EVENT.as("earlier");
+    return ctx().selectFrom(OUTBOX_EVENT)
+        .whereNotExists(
+            selectOne()
+                .from(earlier)
+                .where(earlier.AGGREGATE_TYPE.eq(OUTBOX_EVENT.AGGREGATE_TYPE))
+                .and(earlier.AGGREGATE_ID.eq(OUTBOX_EVENT.AGGREGATE_ID))
+                .and(earlier.ID.lt(OUTBOX_EVENT.ID)))
+        .orderBy(OUTBOX_EVENT.ID)
+        .limit(limit)
+        .forUpdate()
+        .of(OUTBOX_EVENT)
+        .skipLocked()
+        .fetchInto(OutboxEvent.class);
+  }
+
+  /**
+   * 锁定并加载已认领聚合的事件
+   * @param heads 已认领的各聚合最早事件
+   * @param limit 最多加载的事件数
+   * @return 按id升序的事件
+   */
+  public List<OutboxEvent> lockByAggregateIn(Collection<OutboxEvent> heads, int limit) {
+    if (heads == null || heads.isEmpty()) {
+      return List.of();
+    }
+    return ctx().selectFrom(OUTBOX_EVENT)
+        .where(
+            row(OUTBOX_EVENT.AGGREGATE_TYPE, OUTBOX_EVENT.AGGREGATE_ID)
+                .in(
+                    heads.stream()
+                        .map(head -> row(head.getAggregateType(), head.getAggregateId()))
+                        .toList()))
+        .orderBy(OUTBOX_EVENT.ID)
+        .limit(limit)
+        .forUpdate()
+        .fetchInto(OutboxEvent.class);
+  }
+
+  /**
+   * 删除已发布的事件
+   * @param idList 事件ID
+   * @return 删除的行数
+   */
+  public int deleteByIdIn(Collection<Long> idList) {
+    if (idList == null || idList.isEmpty()) {
+      return 0;
+    }
+    return ctx().deleteFrom(OUTBOX_EVENT).where(OUTBOX_EVENT.ID.in(idList)).execute();
+  }
+}
@@ -5,13 +5,17 @@ import static org.jooq.impl.DSL.asterisk;
 import static org.jooq.impl.DSL.noCondition;
 
 import dev.wuan.wuan.dto.PageRequestDto;
+import dev.wuan.wuan.dto.SearchMode;
 import dev.wuan.wuan.dto.urp.PermissionQueryDto;
 import java.util.List;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jooq.Configuration;
+import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.Result;
+import org.jooq.SelectFieldOrAsterisk;
+import org.jooq.SelectSeekStepN;
 import org.jooq.generated.wuan.tables.daos.PermissionDao;
 import org.jooq.generated.wuan.tables.pojos.Permission;
 import org.jooq.impl.DSL;
@@ -25,6 +29,10 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class PermissionRepository extends PermissionDao {
 
+  /** 游标分页允许的排序字段,排序键的值会写入游标返回给客户端 */
+  public static final List<Field<?>> SEEK_SORTABLE_FIELDS =
+      List.of(PERMISSION.ID, PERMISSION.CODE, PERMISSION.NAME);
+
   /**
    * 构造函数
    * @param configuration JOOQ配置
@@ -42,20 +50,74 @@ public class PermissionRepository extends PermissionDao {
    */
   public Result<Record> pageFetchBy(
       PageRequestDto pageRequestDto, PermissionQueryDto permissionQueryDto) {
+    // 仅精确统计时附带窗口计数,否则MySQL无需物化整个过滤结果集
+    List<SelectFieldOrAsterisk> selectFields =
+        pageRequestDto.getTotalMode() == PageRequestDto.TotalMode.EXACT
+            ? List.of(asterisk(), DSL.count().over().as("total_permission"))
+            : List.of(asterisk());
     return ctx()
-        .select(asterisk(), DSL.count().over().as("total_permission"))
+        .select(selectFields)
         .from(PERMISSION)
         .where(buildPermissionIdListCondition(permissionQueryDto.getPermissionIdList()))
         .and(buildPermissionIdCondition(permissionQueryDto.getPermissionId()))
-        .and(buildPermissionNameCondition(permissionQueryDto.getPermissionName()))
-        .and(buildPermissionCodeCondition(permissionQueryDto.getPermissionName(), 
-            permissionQueryDto.getPermissionCode()))
+        .and(
+            buildPermissionNameCondition(
+                permissionQueryDto.getPermissionName(), permissionQueryDto.getSearchMode()))
+        .and(
+            buildPermissionCodeCondition(
+                permissionQueryDto.getPermissionName(), permissionQueryDto.getPermissionCode()))
         .orderBy(pageRequestDto.getSortFields())
         .limit(pageRequestDto.getSize())
         .offset(pageRequestDto.getOffset())
         .fetch();
   }
 
+  /**
+   * 统计满足条件的权限数
+   * @param permissionQueryDto 权限查询条件
+   * @return 权限数
+   */
+  public int countBy(PermissionQueryDto permissionQueryDto) {
+    return ctx()
+        .fetchCount(
+            PERMISSION,
+            buildPermissionIdListCondition(permissionQueryDto.getPermissionIdList())
+                .and(buildPermissionIdCondition(permissionQueryDto.getPermissionId()))
+                .and(
+                    buildPermissionNameCondition(
+                        permissionQueryDto.getPermissionName(), permissionQueryDto.getSearchMode()))
+                .and(
+                    buildPermissionCodeCondition(
+                        permissionQueryDto.getPermissionName(),
+                        permissionQueryDto.getPermissionCode())));
+  }
+
+  /**
+   * 游标分页查询权限信息
+   * @param pageRequestDto 分页请求参数,使用其中的游标与排序字段
+   * @param permissionQueryDto 权限查询条件
+   * @return 权限记录结果集,多取一行用于判断是否存在下一页
+   */
+  public Result<Record> seekFetchBy(
+      PageRequestDto pageRequestDto, PermissionQueryDto permissionQueryDto) {
+    SelectSeekStepN<Record> orderedQuery = ctx()
+        .select(asterisk())
+        .from(PERMISSION)
+        .where(buildPermissionIdListCondition(permissionQueryDto.getPermissionIdList()))
+        .and(buildPermissionIdCondition(permissionQueryDto.getPermissionId()))
+        .and(
+            buildPermissionNameCondition(
+                permissionQueryDto.getPermissionName(), permissionQueryDto.getSearchMode()))
+        .and(
+            buildPermissionCodeCondition(
+                permissionQueryDto.getPermissionName(), permissionQueryDto.getPermissionCode()))
+        .orderBy(pageRequestDto.getSeekSortFields(SEEK_SORTABLE_FIELDS, PERMISSION.ID));
+    Object[] seekValues = pageRequestDto.getSeekValues(SEEK_SORTABLE_FIELDS, PERMISSION.ID);
+    return (seekValues == null ? orderedQuery : orderedQuery.seek(seekValues))
+        .limit(pageRequestDto.getSize() + 1)
+        .fetch();
+  }
+
   /**
    * 根据权限ID列表查询权限信息
    * @param permissionIdList 权限ID列表
@@ -89,10 +151,11 @@ public class PermissionRepository extends PermissionDao {
   /**
    * 构建权限名称查询条件
    */
-  private org.jooq.Condition buildPermissionNameCondition(String permissionName) {
+  private org.jooq.Condition buildPermissionNameCondition(
+      String permissionName, SearchMode searchMode) {
     return StringUtils.isEmpty(permissionName)
         ? noCondition()
-        : PERMISSION.NAME.like("%" + permissionName + "%");
+        : TextSearchConditions.build(PERMISSION.NAME, permissionName, searchMode);
   }
 
   /**
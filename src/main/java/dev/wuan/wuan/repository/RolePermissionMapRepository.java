@@ -2,8 +2,11 @@ package dev.wuan.wuan.repository;
 
 import static org.jooq.generated.wuan.tables.RolePermissionMap.ROLE_PERMISSION_MAP;
 
+import java.util.Collection;
 import org.jooq.Configuration;
+import org.jooq.InsertValuesStep2;
 import org.jooq.generated.wuan.tables.daos.RolePermissionMapDao;
+import org.jooq.generated.wuan.tables.records.RolePermissionMapRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,4 +37,41 @@ public class RolePermissionMapRepository extends RolePermissionMapDao {
         .where(ROLE_PERMISSION_MAP.ROLE_ID.eq(roleId))
         .execute();
   }
+
+  /**
+   * 删除角色与指定权限的映射关系
+   * @param roleId 角色ID
+   * @param permissionIdList 待移除的权限ID
+   * @return 删除的行数
+   */
+  @Transactional
+  public int deleteByRoleIdAndPermissionIdIn(Long roleId, Collection<Long> permissionIdList) {
+    if (roleId == null || permissionIdList == null || permissionIdList.isEmpty()) {
+      return 0;
+    }
+    return ctx().deleteFrom(ROLE_PERMISSION_MAP)
+        .where(ROLE_PERMISSION_MAP.ROLE_ID.eq(roleId))
+        .and(ROLE_PERMISSION_MAP.PERMISSION_ID.in(permissionIdList))
+        .execute();
+  }
+
+  /**
+   * 以单条多行INSERT为角色添加权限映射
+   * @param roleId 角色ID
+   * @param permissionIdList 待新增的权限ID
+   * @return 插入的行数
+   */
+  @Transactional
+  public int insertPermissionIdIn(Long roleId, Collection<Long> permissionIdList) {
+    if (roleId == null || permissionIdList == null || permissionIdList.isEmpty()) {
+      return 0;
+    }
+    InsertValuesStep2<RolePermissionMapRecord, Long, Long> insert =
+        ctx().insertInto(
+            ROLE_PERMISSION_MAP, ROLE_PERMISSION_MAP.ROLE_ID, ROLE_PERMISSION_MAP.PERMISSION_ID);
+    for (Long permissionId : permissionIdList) {
+      insert = insert.values(roleId, permissionId);
+    }
+    return insert.execute();
+  }
 }
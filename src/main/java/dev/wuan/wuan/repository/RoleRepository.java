@@ -8,12 +8,16 @@ import static org.jooq.impl.DSL.noCondition;
 
 import dev.wuan.wuan.dto.PageRequestDto;
 import dev.wuan.wuan.dto.urp.RoleQueryDto;
+import java.util.Collection;
 import java.util.List;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jooq.Configuration;
+import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.Result;
+import org.jooq.SelectFieldOrAsterisk;
+import org.jooq.SelectSeekStepN;
 import org.jooq.generated.wuan.tables.daos.RoleDao;
 import org.jooq.generated.wuan.tables.pojos.Role;
 import org.jooq.impl.DSL;
@@ -26,6 +30,10 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class RoleRepository extends RoleDao {
 
+  /** 游标分页允许的排序字段,排序键的值会写入游标返回给客户端 */
+  public static final List<Field<?>> SEEK_SORTABLE_FIELDS =
+      List.of(ROLE.ID, ROLE.CODE, ROLE.NAME);
+
   @Autowired
   public RoleRepository(Configuration configuration) {
     super(configuration);
@@ -65,8 +73,13 @@ public class RoleRepository extends RoleDao {
    * @return 角色记录结果集
    */
   public Result<Record> pageFetchBy(PageRequestDto pageRequestDto, RoleQueryDto roleQueryDto) {
+    // 仅精确统计时附带窗口计数,否则MySQL无需物化整个过滤结果集
+    List<SelectFieldOrAsterisk> selectFields =
+        pageRequestDto.getTotalMode() == PageRequestDto.TotalMode.EXACT
+            ? List.of(asterisk(), DSL.count(ROLE.ID).over().as("total_role"))
+            : List.of(asterisk());
     return ctx()
-        .select(asterisk(), DSL.count(ROLE.ID).over().as("total_role"))
+        .select(selectFields)
         .from(ROLE)
         .where(buildRoleIdListCondition(roleQueryDto))
         .and(buildRoleIdCondition(roleQueryDto))
@@ -78,6 +91,44 @@ public class RoleRepository extends RoleDao {
         .fetch();
   }
 
+  /**
+   * 统计满足条件的角色数
+   *
+   * @param roleQueryDto 角色查询条件
+   * @return 角色数
+   */
+  public int countBy(RoleQueryDto roleQueryDto) {
+    return ctx()
+        .fetchCount(
+            ROLE,
+            buildRoleIdListCondition(roleQueryDto)
+                .and(buildRoleIdCondition(roleQueryDto))
+                .and(buildRoleNameCondition(roleQueryDto))
+                .and(buildRoleCodeCondition(roleQueryDto)));
+  }
+
+  /**
+   * 游标分页查询角色信息
+   *
+   * @param pageRequestDto 分页请求参数,使用其中的游标与排序字段
+   * @param roleQueryDto 角色查询条件
+   * @return 角色记录结果集,多取一行用于判断是否存在下一页
+   */
+  public Result<Record> seekFetchBy(PageRequestDto pageRequestDto, RoleQueryDto roleQueryDto) {
+    SelectSeekStepN<Record> orderedQuery = ctx()
+        .select(asterisk())
+        .from(ROLE)
+        .where(buildRoleIdListCondition(roleQueryDto))
+        .and(buildRoleIdCondition(roleQueryDto))
+        .and(buildRoleNameCondition(roleQueryDto))
+        .and(buildRoleCodeCondition(roleQueryDto))
+        .orderBy(pageRequestDto.getSeekSortFields(SEEK_SORTABLE_FIELDS, ROLE.ID));
+    Object[] seekValues = pageRequestDto.getSeekValues(SEEK_SORTABLE_FIELDS, ROLE.ID);
+    return (seekValues == null ? orderedQuery : orderedQuery.seek(seekValues))
+        .limit(pageRequestDto.getSize() + 1)
+        .fetch();
+  }
+
   /**
    * 查询指定角色ID的角色及其权限信息
    *
@@ -85,6 +136,17 @@ public class RoleRepository extends RoleDao {
    * @return 角色及权限记录结果集
    */
   public Result<Record> fetchUniqueRoleWithPermission(Long roleId) {
+    return fetchRoleWithPermissionByRoleIdIn(List.of(roleId));
+  }
+
+  /**
+   * 批量查询角色及其权限信息
+   * 结果按角色ID排序,同一角色的权限行相邻,便于单次遍历分组
+   *
+   * @param roleIdList 角色ID列表
+   * @return 角色及权限记录结果集,无权限的角色权限列为空
+   */
+  public Result<Record> fetchRoleWithPermissionByRoleIdIn(Collection<Long> roleIdList) {
     return ctx()
         .select(asterisk())
         .from(ROLE)
@@ -92,8 +154,8 @@ public class RoleRepository extends RoleDao {
         .on(ROLE.ID.eq(ROLE_PERMISSION_MAP.ROLE_ID))
         .leftJoin(PERMISSION)
         .on(ROLE_PERMISSION_MAP.PERMISSION_ID.eq(PERMISSION.ID))
-        .where(ROLE.ID.eq(roleId))
-        .orderBy(ROLE.ID)
+        .where(ROLE.ID.in(roleIdList))
+        .orderBy(ROLE.ID, ROLE_PERMISSION_MAP.ID)
         .fetch();
   }
 
@@ -114,7 +176,8 @@ public class RoleRepository extends RoleDao {
   private org.jooq.Condition buildRoleNameCondition(RoleQueryDto roleQueryDto) {
     return StringUtils.isEmpty(roleQueryDto.getRoleName())
         ? noCondition()
-        : ROLE.NAME.like("%" + roleQueryDto.getRoleName() + "%");
+        : TextSearchConditions.build(
+            ROLE.NAME, roleQueryDto.getRoleName(), roleQueryDto.getSearchMode());
   }
 
   private org.jooq.Condition buildRoleCodeCondition(RoleQueryDto roleQueryDto) {
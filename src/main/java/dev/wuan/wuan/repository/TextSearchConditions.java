@@ -0,0 +1,63 @@
+package dev.wuan.wuan.repository;
+
+import static org.jooq.impl.DSL.noCondition;
+
+import dev.wuan.wuan.dto.SearchMode;
+import org.apache.commons.lang3.StringUtils;
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+
+/**
+ * 名称类字段的文本查询条件
+ * 根据查询方式生成LIKE或MATCH AGAINST条件,供各数据访问层共用
+ */
+final class TextSearchConditions {
+
+  /** ngram全文索引的分词长度,与MySQL默认的ngram_token_size一致 */
+  static final int NGRAM_TOKEN_SIZE = 2;
+
+  /** LIKE转义字符 */
+  private static final char LIKE_ESCAPE = '\\';
+
+  private TextSearchConditions() {}
+
+  /**
+   * 构建文本查询条件
+   * @param field 查询字段,FULLTEXT方式要求该字段上存在ngram全文索引
+   * @param term 查询词,为空时不附加条件
+   * @param searchMode 查询方式,为空时按CONTAINS处理
+   * @return 查询条件
+   */
+  static Condition build(Field<String> field, String term, SearchMode searchMode) {
+    if (StringUtils.isEmpty(term)) {
+      return noCondition();
+    }
+    SearchMode mode = searchMode == null ? SearchMode.CONTAINS : searchMode;
+    return switch (mode) {
+      case CONTAINS -> field.like("%" + term + "%");
+      case PREFIX -> prefix(field, term);
+      case FULLTEXT -> fulltext(field, term);
+    };
+  }
+
+  private static Condition prefix(Field<String> field, String term) {
+    // 模式在Java中拼接为常量,MySQL才能将其转换为索引范围扫描
+    return field.like(escapeLike(term) + "%", LIKE_ESCAPE);
+  }
+
+  private static Condition fulltext(Field<String> field, String term) {
+    String phrase = term.replace("\"", "").trim();
+    // 短于分词长度的查询词无法命中ngram索引,退化为前缀查询
+    if (phrase.length() < NGRAM_TOKEN_SIZE) {
+      return prefix(field, term);
+    }
+    // 布尔模式下的双引号短语要求ngram连续出现,语义接近子串匹配
+    return DSL.condition(
+        "match({0}) against ({1} in boolean mode)", field, DSL.val("\"" + phrase + "\""));
+  }
+
+  private static String escapeLike(String term) {
+    return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+}
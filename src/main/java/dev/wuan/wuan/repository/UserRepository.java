@@ -12,9 +12,13 @@ import dev.wuan.wuan.dto.urp.PermissionDto;
 import dev.wuan.wuan.dto.urp.RoleDto;
 import dev.wuan.wuan.dto.urp.UserQueryDto;
 import dev.wuan.wuan.dto.urp.UserRolePermissionDto;
+import java.util.Collection;
+import java.util.List;
 import org.jooq.*;
 import org.jooq.Record;
 import org.jooq.generated.wuan.tables.daos.*;
+import org.jooq.generated.wuan.tables.pojos.User;
+import org.jooq.generated.wuan.tables.records.UserRecord;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
@@ -27,6 +31,10 @@ import org.springframework.transaction.annotation.Transactional;
 @Repository
 public class UserRepository extends UserDao {
 
+  /** 游标分页允许的排序字段,排序键的值会写入游标返回给客户端 */
+  public static final List<Field<?>> SEEK_SORTABLE_FIELDS =
+      List.of(USER.ID, USER.USERNAME, USER.ENABLE, USER.CREATE_TIME);
+
   /**
    * 构造函数
    * @param configuration JOOQ配置
@@ -43,27 +51,81 @@ public class UserRepository extends UserDao {
    * @return 用户记录结果集
    */
   public Result<Record> pageFetchBy(PageRequestDto pageRequestDto, UserQueryDto userQueryDto) {
-    String username = userQueryDto.getUsername();
-    Condition whereCondition = username != null ? 
-        USER.USERNAME.like("%" + username + "%") : 
-        noCondition();
-        
+    // 仅精确统计时附带窗口计数,否则MySQL无需物化整个过滤结果集
+    List<SelectFieldOrAsterisk> selectFields =
+        pageRequestDto.getTotalMode() == PageRequestDto.TotalMode.EXACT
+            ? List.of(asterisk(), DSL.count().over().as("total_user"))
+            : List.of(asterisk());
     return ctx()
-        .select(asterisk(), DSL.count().over().as("total_user"))
+        .select(selectFields)
         .from(USER)
-        .where(whereCondition)
+        .where(buildUsernameCondition(userQueryDto))
         .orderBy(pageRequestDto.getSortFields())
         .limit(pageRequestDto.getSize())
         .offset(pageRequestDto.getOffset())
         .fetch();
   }
 
+  /**
+   * 统计满足条件的用户数
+   * @param userQueryDto 用户查询条件
+   * @return 用户数
+   */
+  public int countBy(UserQueryDto userQueryDto) {
+    return ctx().fetchCount(USER, buildUsernameCondition(userQueryDto));
+  }
+
+  /**
+   * 游标分页查询用户信息
+   * 按排序键定位到游标之后的记录,查询耗时与页码深度无关
+   * @param pageRequestDto 分页请求参数,使用其中的游标与排序字段
+   * @param userQueryDto 用户查询条件
+   * @return 用户记录结果集,多取一行用于判断是否存在下一页
+   */
+  public Result<Record> seekFetchBy(PageRequestDto pageRequestDto, UserQueryDto userQueryDto) {
+    SelectSeekStepN<Record> orderedQuery = ctx()
+        .select(asterisk())
+        .from(USER)
+        .where(buildUsernameCondition(userQueryDto))
+        .orderBy(pageRequestDto.getSeekSortFields(SEEK_SORTABLE_FIELDS, USER.ID));
+    Object[] seekValues = pageRequestDto.getSeekValues(SEEK_SORTABLE_FIELDS, USER.ID);
+    return (seekValues == null ? orderedQuery : orderedQuery.seek(seekValues))
+        .limit(pageRequestDto.getSize() + 1)
+        .fetch();
+  }
+
   /**
    * 获取用户及其关联的角色和权限信息(使用嵌套集合方式)
    * @param userId 用户ID
    * @return 用户角色权限DTO
    */
   public UserRolePermissionDto fetchUniqueUserDtoWithNestedRolePermissionBy(Long userId) {
+    return selectUserDtoWithNestedRolePermission()
+        .where(USER.ID.eq(userId))
+        .fetchOneInto(UserRolePermissionDto.class);
+  }
+
+  /**
+   * 批量获取用户及其关联的角色和权限信息(使用嵌套集合方式)
+   * 一条语句加载所有用户的角色和权限,用于分页场景避免逐行查询
+   * @param userIdList 用户ID列表
+   * @return 用户角色权限DTO列表,顺序不保证与入参一致
+   */
+  public List<UserRolePermissionDto> fetchUserDtoWithNestedRolePermissionByIdIn(
+      Collection<Long> userIdList) {
+    if (userIdList.isEmpty()) {
+      return List.of();
+    }
+    return selectUserDtoWithNestedRolePermission()
+        .where(USER.ID.in(userIdList))
+        .fetchInto(UserRolePermissionDto.class);
+  }
+
+  /**
+   * 构建用户及其嵌套角色权限的查询
+   * @return 未附加条件的查询
+   */
+  private SelectJoinStep<Record> selectUserDtoWithNestedRolePermission() {
     // 构建权限子查询
     SelectJoinStep<Record> permissionSubQuery = select(PERMISSION.asterisk())
         .from(ROLE_PERMISSION_MAP)
@@ -91,9 +153,7 @@ public class UserRepository extends UserDao {
                     .where(USER.ID.eq(USER_ROLE_MAP.USER_ID)))
                 .convertFrom(r -> r.map(record -> record.into(RoleDto.class)))
                 .as("roles"))
-        .from(USER)
-        .where(USER.ID.eq(userId))
-        .fetchOneInto(UserRolePermissionDto.class);
+        .from(USER);
   }
 
   /**
@@ -127,4 +187,30 @@ public class UserRepository extends UserDao {
          .where(USER.USERNAME.eq(username))
          .execute();
   }
+
+  /**
+   * 以单条多行INSERT批量插入用户,并通过自增主键回填用户ID
+   * @param users 待插入用户,仅使用用户名与密码
+   * @return 用户ID,与传入顺序一致
+   */
+  @Transactional
+  public List<Long> insertReturningId(List<User> users) {
+    if (users == null || users.isEmpty()) {
+      return List.of();
+    }
+    InsertValuesStep2<UserRecord, String, String> insert =
+        ctx().insertInto(USER, USER.USERNAME, USER.PASSWORD);
+    for (User user : users) {
+      insert = insert.values(user.getUsername(), user.getPassword());
+    }
+    // MySQL通过getGeneratedKeys返回多行插入的自增ID
+    return insert.returningResult(USER.ID).fetch().getValues(USER.ID);
+  }
+
+  private Condition buildUsernameCondition(UserQueryDto userQueryDto) {
+    String username = userQueryDto.getUsername();
+    return username != null ? 
+        TextSearchConditions.build(USER.USERNAME, username, userQueryDto.getSearchMode()) : 
+        noCondition();
+  }
 }
@@ -2,8 +2,11 @@ package dev.wuan.wuan.repository;
 
 import static org.jooq.generated.wuan.tables.UserRoleMap.USER_ROLE_MAP;
 
+import java.util.Collection;
 import org.jooq.Configuration;
+import org.jooq.InsertValuesStep2;
 import org.jooq.generated.wuan.tables.daos.UserRoleMapDao;
+import org.jooq.generated.wuan.tables.records.UserRoleMapRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,4 +40,59 @@ public class UserRoleMapRepository extends UserRoleMapDao {
          .where(USER_ROLE_MAP.USER_ID.eq(userId))
          .execute();
   }
+
+  /**
+   * 删除用户与指定角色的映射关系
+   * @param userId 用户ID
+   * @param roleIdList 待移除的角色ID
+   * @return 删除的行数
+   */
+  @Transactional
+  public int deleteByUserIdAndRoleIdIn(Long userId, Collection<Long> roleIdList) {
+    if (userId == null || roleIdList == null || roleIdList.isEmpty()) {
+      return 0;
+    }
+    return ctx().deleteFrom(USER_ROLE_MAP)
+        .where(USER_ROLE_MAP.USER_ID.eq(userId))
+        .and(USER_ROLE_MAP.ROLE_ID.in(roleIdList))
+        .execute();
+  }
+
+  /**
+   * 以单条多行INSERT为用户添加角色映射
+   * @param userId 用户ID
+   * @param roleIdList 待新增的角色ID
+   * @return 插入的行数
+   */
+  @Transactional
+  public int insertRoleIdIn(Long userId, Collection<Long> roleIdList) {
+    if (userId == null || roleIdList == null || roleIdList.isEmpty()) {
+      return 0;
+    }
+    InsertValuesStep2<UserRoleMapRecord, Long, Long> insert =
+        ctx().insertInto(USER_ROLE_MAP, USER_ROLE_MAP.USER_ID, USER_ROLE_MAP.ROLE_ID);
+    for (Long roleId : roleIdList) {
+      insert = insert.values(userId, roleId);
+    }
+    return insert.execute();
+  }
+
+  /**
+   * 以单条多行INSERT为多个用户绑定同一角色
+   * @param roleId 角色ID
+   * @param userIdList 用户ID
+   * @return 插入的行数
+   */
+  @Transactional
+  public int insertUserIdIn(Long roleId, Collection<Long> userIdList) {
+    if (roleId == null || userIdList == null || userIdList.isEmpty()) {
+      return 0;
+    }
+    InsertValuesStep2<UserRoleMapRecord, Long, Long> insert =
+        ctx().insertInto(USER_ROLE_MAP, USER_ROLE_MAP.USER_ID, USER_ROLE_MAP.ROLE_ID);
+    for (Long userId : userIdList) {
+      insert = insert.values(userId, roleId);
+    }
+    return insert.execute();
+  }
 }
@@ -1,10 +1,9 @@
 package dev.wuan.wuan.service;
 
-import dev.wuan.wuan.config.cache.CacheConfig;
+import dev.wuan.wuan.component.VerifyCodeStore;
+import dev.wuan.wuan.exception.BusinessException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 /**
@@ -13,17 +12,20 @@ import org.springframework.stereotype.Service;
  */
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class CacheService {
 
+  /** 验证码存储 */
+  private final VerifyCodeStore verifyCodeStore;
+
   /**
    * 根据标识获取验证码
    * @param identify 标识
    * @return 验证码，如果不存在返回null
    */
-  @Cacheable(value = CacheConfig.VERIFY_CODE, key = "{#identify}", unless = "#result == null")
   public String getVerifyCodeBy(String identify) {
     log.debug("从缓存获取验证码, identify: {}", identify);
-    return null;
+    return verifyCodeStore.get(identify);
   }
 
   /**
@@ -31,27 +33,44 @@ public class CacheService {
    * @param identify 标识
    * @param value 验证码值
    * @return 更新后的验证码
+   * @throws BusinessException 当签发过于频繁时抛出
    */
-  @CachePut(value = CacheConfig.VERIFY_CODE, key = "{#identify}")
   public String upsertVerifyCodeBy(String identify, String value) {
     log.debug("更新验证码缓存, identify: {}, value: {}", identify, value);
+    if (!verifyCodeStore.issue(identify, value)) {
+      log.warn("验证码签发过于频繁, identify: {}", identify);
+      throw new BusinessException("verify code requested too frequently");
+    }
     return value;
   }
 
+  /**
+   * 校验验证码
+   * 匹配后验证码失效,连续校验失败达到上限后验证码同样失效
+   * @param identify 标识
+   * @param value 待校验验证码
+   * @return 校验结果
+   */
+  public VerifyCodeStore.VerifyResult verifyCodeBy(String identify, String value) {
+    VerifyCodeStore.VerifyResult result = verifyCodeStore.verify(identify, value);
+    log.debug("校验验证码, identify: {}, result: {}", identify, result);
+    return result;
+  }
+
   /**
    * 根据标识删除验证码
    * @param identify 标识
    */
-  @CacheEvict(value = CacheConfig.VERIFY_CODE, key = "{#identify}")
   public void removeVerifyCodeBy(String identify) {
     log.debug("删除验证码缓存, identify: {}", identify);
+    verifyCodeStore.remove(identify);
   }
 
   /**
    * 清除所有验证码缓存
    */
-  @CacheEvict(value = CacheConfig.VERIFY_CODE, allEntries = true)
   public void clearAllVerifyCode() {
-    log.debug("清除所有验证码缓存");
+    long removed = verifyCodeStore.clear();
+    log.debug("清除所有验证码缓存, 删除键数: {}", removed);
   }
 }
@@ -0,0 +1,73 @@
+package dev.wuan.wuan.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.wuan.wuan.model.outbox.EDomainEvent;
+import dev.wuan.wuan.repository.OutboxEventRepository;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.generated.wuan.tables.pojos.OutboxEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 领域事件发件箱服务
+ * 事件与业务数据在同一事务中写入发件箱,事务提交后由中继发布,回滚时事件一并丢弃
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OutboxService {
+
+  private final OutboxEventRepository outboxEventRepository;
+
+  private final ObjectMapper objectMapper;
+
+  /**
+   * 写入单个聚合的事件
+   * @param event 事件类型
+   * @param aggregateId 聚合ID
+   * @param payload 事件内容,序列化为JSON
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void append(EDomainEvent event, Long aggregateId, Object payload) {
+    appendAll(event, Map.of(aggregateId, payload));
+  }
+
+  /**
+   * 写入多个聚合的同类事件
+   * 先锁定各聚合所在的行,同一聚合的并发事务因此串行写入,事件id顺序即提交顺序
+   * @param event 事件类型
+   * @param payloadByAggregateId 聚合ID到事件内容的映射,按迭代顺序写入
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void appendAll(EDomainEvent event, Map<Long, ?> payloadByAggregateId) {
+    if (payloadByAggregateId.isEmpty()) {
+      return;
+    }
+    outboxEventRepository.lockAggregate(event.getAggregate(), payloadByAggregateId.keySet());
+    List<OutboxEvent> events =
+        payloadByAggregateId.entrySet().stream()
+            .map(
+                entry ->
+                    new OutboxEvent()
+                        .setAggregateType(event.getAggregate().name())
+                        .setAggregateId(entry.getKey())
+                        .setEventType(event.getType())
+                        .setPayload(toJson(entry.getValue())))
+            .toList();
+    outboxEventRepository.insertAll(events);
+    log.debug("写入发件箱事件{}条, 类型: {}", events.size(), event.getType());
+  }
+
+  private String toJson(Object payload) {
+    try {
+      return objectMapper.writeValueAsString(payload);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("outbox payload is not serializable", e);
+    }
+  }
+}
@@ -1,26 +1,45 @@
 package dev.wuan.wuan.service;
 
+import dev.wuan.wuan.dto.sign.BulkSignUpResultDto;
 import dev.wuan.wuan.dto.sign.SignInDto;
 import dev.wuan.wuan.dto.sign.SignUpDto;
 import dev.wuan.wuan.exception.BusinessException;
+import dev.wuan.wuan.model.outbox.EDomainEvent;
 import dev.wuan.wuan.model.urp.ERole;
+import dev.wuan.wuan.repository.RoleRepository;
 import dev.wuan.wuan.repository.UserRepository;
+import dev.wuan.wuan.repository.UserRoleMapRepository;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import lombok.RequiredArgsConstructor;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.ListUtils;
+import org.jooq.generated.wuan.tables.pojos.Role;
 import org.jooq.generated.wuan.tables.pojos.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * 用户登录注册服务
  */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class SignService {
 
+  /** 批量注册时每条INSERT语句包含的最大行数 */
+  public static final int BULK_BATCH_SIZE = 1000;
+
   /** 用户数据访问层 */
   private final UserRepository userRepository;
 
@@ -30,6 +49,66 @@ public class SignService {
   /** 用户角色权限服务 */
   private final UserRolePermissionService userRolePermissionService;
 
+  /** 角色数据访问层 */
+  private final RoleRepository roleRepository;
+
+  /** 用户角色映射数据访问层 */
+  private final UserRoleMapRepository userRoleMapRepository;
+
+  /** 领域事件发件箱服务 */
+  private final OutboxService outboxService;
+
+  /** 事务模板,批量注册只在写入阶段开启事务 */
+  private final TransactionTemplate transactionTemplate;
+
+  /** 批量注册加密密码的专用线程池,不占用公共ForkJoinPool */
+  private final ThreadPoolTaskExecutor passwordHashExecutor;
+
+  /** 加密线程数 */
+  private final int hashParallelism;
+
+  /**
+   * 构造函数
+   * @param userRepository 用户数据访问层
+   * @param passwordEncoder 密码加密器
+   * @param userRolePermissionService 用户角色权限服务
+   * @param roleRepository 角色数据访问层
+   * @param userRoleMapRepository 用户角色映射数据访问层
+   * @param outboxService 领域事件发件箱服务
+   * @param transactionTemplate 事务模板
+   * @param hashThreads 加密线程数,不大于0时使用CPU核数
+   * @param hashQueueCapacity 加密任务等待队列容量,队列满时由调用线程执行
+   */
+  public SignService(
+      UserRepository userRepository,
+      PasswordEncoder passwordEncoder,
+      UserRolePermissionService userRolePermissionService,
+      RoleRepository roleRepository,
+      UserRoleMapRepository userRoleMapRepository,
+      OutboxService outboxService,
+      TransactionTemplate transactionTemplate,
+      @Value("${sign.bulk.hash-threads:0}") int hashThreads,
+      @Value("${sign.bulk.hash-queue-capacity:256}") int hashQueueCapacity) {
+    this.userRepository = userRepository;
+    this.passwordEncoder = passwordEncoder;
+    this.userRolePermissionService = userRolePermissionService;
+    this.roleRepository = roleRepository;
+    this.userRoleMapRepository = userRoleMapRepository;
+    this.outboxService = outboxService;
+    this.transactionTemplate = transactionTemplate;
+    this.hashParallelism =
+        hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+    this.passwordHashExecutor = new ThreadPoolTaskExecutor();
+    this.passwordHashExecutor.setThreadNamePrefix("sign-hash-");
+    this.passwordHashExecutor.setCorePoolSize(hashParallelism);
+    this.passwordHashExecutor.setMaxPoolSize(hashParallelism);
+    this.passwordHashExecutor.setQueueCapacity(hashQueueCapacity);
+    this.passwordHashExecutor.setAllowCoreThreadTimeOut(true);
+    this.passwordHashExecutor.setRejectedExecutionHandler(
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    this.passwordHashExecutor.initialize();
+  }
+
   /**
    * 用户登录
    *
@@ -57,6 +136,7 @@ public class SignService {
 
   /**
    * 用户注册
+   * 注册事件与用户数据在同一事务中写入发件箱
    *
    * @param signUpDto 注册信息传输对象
    * @throws BusinessException 当用户名已存在时抛出
@@ -78,11 +158,147 @@ public class SignService {
 
     // 绑定用户角色
     User insertUser = userRepository.fetchOneByUsername(signUpDto.getUsername());
+    outboxService.append(
+        EDomainEvent.USER_SIGNED_UP,
+        insertUser.getId(),
+        Map.of("username", signUpDto.getUsername()));
     userRolePermissionService.bindRoleModuleToUser(insertUser.getId(), List.of(ERole.GENERAL));
     
     log.info("用户{}注册成功", signUpDto.getUsername());
   }
 
+  /**
+   * 批量注册用户
+   * 去重与密码加密在事务外完成,加密在专用线程池上并行执行;
+   * 事务只覆盖存在性复查、按批次多行插入、默认角色绑定与发件箱写入,
+   * 避免CPU密集的加密阶段长时间占用数据库连接
+   *
+   * @param signUpDtoList 注册信息列表
+   * @return 批量注册结果,已存在或请求内重复的用户名被跳过
+   */
+  public BulkSignUpResultDto signUpBulk(List<SignUpDto> signUpDtoList) {
+    // 请求内重复的用户名只保留第一条
+    Map<String, SignUpDto> candidates = new LinkedHashMap<>();
+    List<String> skippedUsernameList = new ArrayList<>();
+    for (SignUpDto signUpDto : signUpDtoList) {
+      if (candidates.putIfAbsent(signUpDto.getUsername(), signUpDto) != null) {
+        skippedUsernameList.add(signUpDto.getUsername());
+      }
+    }
+
+    // 加密前排除已存在的用户名,不为必然跳过的用户做BCrypt
+    Set<String> existUsernames = fetchExistUsernames(candidates.keySet());
+    candidates.keySet().removeIf(
+        username -> {
+          if (existUsernames.contains(username)) {
+            skippedUsernameList.add(username);
+            return true;
+          }
+          return false;
+        });
+    if (candidates.isEmpty()) {
+      return new BulkSignUpResultDto(List.of(), skippedUsernameList);
+    }
+
+    List<Role> generalRoles = roleRepository.selectByRoleCodeIn(List.of(ERole.GENERAL.name()));
+    if (generalRoles.isEmpty()) {
+      throw new BusinessException("role GENERAL not exist");
+    }
+
+    List<User> users = encodePasswords(candidates.values());
+    return transactionTemplate.execute(
+        status -> insertBulk(users, generalRoles.get(0).getId(), skippedUsernameList));
+  }
+
+  /**
+   * 在事务内写入批量注册的用户
+   * 加密期间可能有同名用户完成注册,写入前再次检查用户名
+   *
+   * @param users 已加密密码的用户
+   * @param generalRoleId 默认角色ID
+   * @param skippedUsernameList 跳过的用户名,复查发现已存在的用户名追加其中
+   * @return 批量注册结果
+   */
+  private BulkSignUpResultDto insertBulk(
+      List<User> users, Long generalRoleId, List<String> skippedUsernameList) {
+    Set<String> existUsernames =
+        fetchExistUsernames(users.stream().map(User::getUsername).toList());
+    List<User> insertUsers = new ArrayList<>(users.size());
+    for (User user : users) {
+      if (existUsernames.contains(user.getUsername())) {
+        skippedUsernameList.add(user.getUsername());
+      } else {
+        insertUsers.add(user);
+      }
+    }
+
+    List<Long> createdUserIdList = new ArrayList<>(insertUsers.size());
+    for (List<User> batch : ListUtils.partition(insertUsers, BULK_BATCH_SIZE)) {
+      List<Long> userIdList = userRepository.insertReturningId(batch);
+      userRoleMapRepository.insertUserIdIn(generalRoleId, userIdList);
+      Map<Long, Map<String, String>> signedUpEvents = new LinkedHashMap<>();
+      for (int i = 0; i < userIdList.size(); i++) {
+        signedUpEvents.put(userIdList.get(i), Map.of("username", batch.get(i).getUsername()));
+      }
+      outboxService.appendAll(EDomainEvent.USER_SIGNED_UP, signedUpEvents);
+      createdUserIdList.addAll(userIdList);
+    }
+
+    log.info("批量注册用户{}个, 跳过{}个", createdUserIdList.size(), skippedUsernameList.size());
+    return new BulkSignUpResultDto(createdUserIdList, skippedUsernameList);
+  }
+
+  /**
+   * 按批次一次性查询已存在的用户名
+   *
+   * @param usernames 待查询的用户名
+   * @return 已存在的用户名
+   */
+  private Set<String> fetchExistUsernames(Collection<String> usernames) {
+    Set<String> existUsernames = new HashSet<>();
+    for (List<String> batch : ListUtils.partition(new ArrayList<>(usernames), BULK_BATCH_SIZE)) {
+      userRepository.fetchByUsername(batch.toArray(String[]::new))
+          .forEach(user -> existUsernames.add(user.getUsername()));
+    }
+    return existUsernames;
+  }
+
+  /**
+   * 在加密线程池上分片并行加密密码,结果保持原有顺序
+   *
+   * @param signUpDtos 注册信息
+   * @return 已加密密码的用户
+   */
+  private List<User> encodePasswords(Collection<SignUpDto> signUpDtos) {
+    // 每个线程分到若干片,快慢不均时空闲线程可以继续领取
+    int chunkSize = Math.max(1, Math.ceilDiv(signUpDtos.size(), hashParallelism * 4));
+    List<CompletableFuture<List<User>>> futures =
+        ListUtils.partition(new ArrayList<>(signUpDtos), chunkSize).stream()
+            .map(
+                chunk ->
+                    CompletableFuture.supplyAsync(
+                        () -> chunk.stream().map(this::toUser).toList(), passwordHashExecutor))
+            .toList();
+    List<User> users = new ArrayList<>(signUpDtos.size());
+    futures.forEach(future -> users.addAll(future.join()));
+    return users;
+  }
+
+  private User toUser(SignUpDto signUpDto) {
+    User user = new User();
+    user.setUsername(signUpDto.getUsername());
+    user.setPassword(passwordEncoder.encode(signUpDto.getPassword()));
+    return user;
+  }
+
+  /**
+   * 关闭加密线程池
+   */
+  @PreDestroy
+  public void destroy() {
+    passwordHashExecutor.shutdown();
+  }
+
   /**
    * 检查用户名是否重复
    *
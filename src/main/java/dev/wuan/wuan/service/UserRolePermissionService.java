@@ -4,20 +4,31 @@ import static org.jooq.generated.wuan.tables.Permission.PERMISSION;
 import static org.jooq.generated.wuan.tables.Role.ROLE;
 import static org.jooq.generated.wuan.tables.User.USER;
 
+import dev.wuan.wuan.component.AuthoritySnapshotCache;
+import dev.wuan.wuan.component.PageTotalEstimator;
+import dev.wuan.wuan.config.cache.CacheConfig;
+import dev.wuan.wuan.dto.CursorPageResponseDto;
 import dev.wuan.wuan.dto.PageRequestDto;
 import dev.wuan.wuan.dto.PageResponseDto;
 import dev.wuan.wuan.dto.urp.*;
 import dev.wuan.wuan.exception.BusinessException;
+import dev.wuan.wuan.model.outbox.EAggregate;
+import dev.wuan.wuan.model.outbox.EDomainEvent;
 import dev.wuan.wuan.model.urp.ERole;
 import dev.wuan.wuan.repository.*;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
+import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.Result;
 import org.jooq.generated.wuan.tables.pojos.*;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -35,6 +46,10 @@ public class UserRolePermissionService {
   private final UserRoleMapRepository userRoleMapRepository;
   private final PermissionRepository permissionRepository;
   private final RolePermissionMapRepository rolePermissionMapRepository;
+  private final AuthoritySnapshotCache authoritySnapshotCache;
+  private final PageTotalEstimator pageTotalEstimator;
+  private final OutboxService outboxService;
+  private final OutboxEventRepository outboxEventRepository;
 
   /**
    * 分页查询用户信息及其关联的角色和权限
@@ -48,11 +63,33 @@ public class UserRolePermissionService {
     if (userRecords.isEmpty()) {
       return PageResponseDto.empty();
     }
-    List<UserRolePermissionDto> userRolePermissionDtoList = userRecords.stream()
-        .map(record -> queryUniqueUserWithRolePermission(record.getValue(USER.ID)).orElseThrow())
-        .toList();
+    long total = resolveTotal(pageRequestDto, userRecords, "total_user",
+        "user:" + userQueryDto, () -> userRepository.countBy(userQueryDto));
     return new PageResponseDto<>(
-        userRecords.get(0).getValue("total_user", Integer.class), userRolePermissionDtoList);
+        total, assembleUserDtoList(userRecords.getValues(USER.ID)), pageRequestDto.getTotalMode());
+  }
+
+  /**
+   * 游标分页查询用户信息及其关联的角色和权限
+   * @param pageRequestDto 分页请求参数,使用其中的游标与排序字段
+   * @param userQueryDto 用户查询条件
+   * @return 游标分页响应数据
+   */
+  public CursorPageResponseDto<List<UserRolePermissionDto>> seekQueryUser(
+      PageRequestDto pageRequestDto, UserQueryDto userQueryDto) {
+    Result<Record> userRecords = userRepository.seekFetchBy(pageRequestDto, userQueryDto);
+    if (userRecords.isEmpty()) {
+      return CursorPageResponseDto.empty();
+    }
+    List<Record> pageRecords = trimToPage(pageRequestDto, userRecords);
+    return new CursorPageResponseDto<>(
+        assembleUserDtoList(pageRecords.stream().map(record -> record.getValue(USER.ID)).toList()),
+        buildNextCursor(
+            pageRequestDto,
+            userRecords,
+            pageRecords,
+            UserRepository.SEEK_SORTABLE_FIELDS,
+            USER.ID));
   }
 
   /**
@@ -73,14 +110,8 @@ public class UserRolePermissionService {
    */
   public PageResponseDto<List<RoleDto>> pageQueryRole(
       PageRequestDto pageRequestDto, RoleQueryDto roleQueryDto) {
-    if (roleQueryDto.getUserId() != null) {
-      List<Long> roleIdList = userRoleMapRepository.fetchByUserId(roleQueryDto.getUserId()).stream()
-          .map(UserRoleMap::getRoleId)
-          .toList();
-      if (roleIdList.isEmpty()) {
-        return PageResponseDto.empty();
-      }
-      roleQueryDto.setRoleIdList(roleIdList);
+    if (!applyUserRoleCondition(roleQueryDto)) {
+      return PageResponseDto.empty();
     }
     
     Result<Record> roleRecords = roleRepository.pageFetchBy(pageRequestDto, roleQueryDto);
@@ -88,26 +119,55 @@ public class UserRolePermissionService {
       return PageResponseDto.empty();
     }
     
-    List<RoleDto> roleDtoList = roleRecords.stream()
-        .map(record -> queryUniqueRoleWithPermission(record.getValue(ROLE.ID)).orElseThrow())
-        .toList();
+    long total = resolveTotal(pageRequestDto, roleRecords, "total_role",
+        "role:" + roleQueryDto, () -> roleRepository.countBy(roleQueryDto));
     return new PageResponseDto<>(
-        roleRecords.get(0).getValue("total_role", Integer.class), roleDtoList);
+        total, assembleRoleDtoList(roleRecords.getValues(ROLE.ID)), pageRequestDto.getTotalMode());
+  }
+
+  /**
+   * 游标分页查询角色信息
+   * @param pageRequestDto 分页请求参数,使用其中的游标与排序字段
+   * @param roleQueryDto 角色查询条件
+   * @return 游标分页响应数据
+   */
+  public CursorPageResponseDto<List<RoleDto>> seekQueryRole(
+      PageRequestDto pageRequestDto, RoleQueryDto roleQueryDto) {
+    if (!applyUserRoleCondition(roleQueryDto)) {
+      return CursorPageResponseDto.empty();
+    }
+
+    Result<Record> roleRecords = roleRepository.seekFetchBy(pageRequestDto, roleQueryDto);
+    if (roleRecords.isEmpty()) {
+      return CursorPageResponseDto.empty();
+    }
+
+    List<Record> pageRecords = trimToPage(pageRequestDto, roleRecords);
+    return new CursorPageResponseDto<>(
+        assembleRoleDtoList(pageRecords.stream().map(record -> record.getValue(ROLE.ID)).toList()),
+        buildNextCursor(
+            pageRequestDto,
+            roleRecords,
+            pageRecords,
+            RoleRepository.SEEK_SORTABLE_FIELDS,
+            ROLE.ID));
   }
 
   /**
    * 查询单个角色及其权限信息
+   * 结果经防击穿与提前刷新缓存,权限绑定变更时失效
    * @param roleId 角色ID
    * @return 角色权限信息
    */
+  @Cacheable(
+      cacheNames = CacheConfig.ROLE_WITH_PERMISSION,
+      key = "#roleId",
+      sync = true,
+      cacheResolver = CacheConfig.REFRESH_AHEAD_CACHE_RESOLVER)
   public Optional<RoleDto> queryUniqueRoleWithPermission(Long roleId) {
-    Result<Record> roleWithPermissionRecords = roleRepository.fetchUniqueRoleWithPermission(roleId);
-    if (roleWithPermissionRecords.isEmpty()) {
-      return Optional.empty();
-    }
-    RoleDto roleDto = createRbacDtoRolePart(roleWithPermissionRecords);
-    setCurrentRolePermission(roleDto, roleWithPermissionRecords);
-    return Optional.of(roleDto);
+    return Optional.ofNullable(
+        groupRoleWithPermission(roleRepository.fetchUniqueRoleWithPermission(roleId))
+            .get(roleId));
   }
 
   /**
@@ -118,14 +178,8 @@ public class UserRolePermissionService {
    */
   public PageResponseDto<List<PermissionDto>> pageQueryPermission(
       PageRequestDto pageRequestDto, PermissionQueryDto permissionQueryDto) {
-    if (permissionQueryDto.getRoleId() != null) {
-      List<Long> permissionIdList = rolePermissionMapRepository.fetchByRoleId(permissionQueryDto.getRoleId()).stream()
-          .map(RolePermissionMap::getPermissionId)
-          .toList();
-      if (permissionIdList.isEmpty()) {
-        return PageResponseDto.empty();
-      }
-      permissionQueryDto.setPermissionIdList(permissionIdList);
+    if (!applyRolePermissionCondition(permissionQueryDto)) {
+      return PageResponseDto.empty();
     }
     
     Result<Record> permissionRecords = permissionRepository.pageFetchBy(pageRequestDto, permissionQueryDto);
@@ -133,77 +187,129 @@ public class UserRolePermissionService {
       return PageResponseDto.empty();
     }
     
-    List<PermissionDto> permissionDtoList = permissionRecords.into(Permission.class).stream()
-        .map(pojo -> new PermissionDto(pojo.getId(), pojo.getName(), pojo.getCode()))
-        .toList();
+    long total = resolveTotal(pageRequestDto, permissionRecords, "total_permission",
+        "permission:" + permissionQueryDto, () -> permissionRepository.countBy(permissionQueryDto));
     return new PageResponseDto<>(
-        permissionRecords.get(0).getValue("total_permission", Integer.class), permissionDtoList);
+        total, toPermissionDtoList(permissionRecords), pageRequestDto.getTotalMode());
+  }
+
+  /**
+   * 游标分页查询权限信息
+   * @param pageRequestDto 分页请求参数,使用其中的游标与排序字段
+   * @param permissionQueryDto 权限查询条件
+   * @return 游标分页响应数据
+   */
+  public CursorPageResponseDto<List<PermissionDto>> seekQueryPermission(
+      PageRequestDto pageRequestDto, PermissionQueryDto permissionQueryDto) {
+    if (!applyRolePermissionCondition(permissionQueryDto)) {
+      return CursorPageResponseDto.empty();
+    }
+
+    Result<Record> permissionRecords = permissionRepository.seekFetchBy(pageRequestDto, permissionQueryDto);
+    if (permissionRecords.isEmpty()) {
+      return CursorPageResponseDto.empty();
+    }
+
+    List<Record> pageRecords = trimToPage(pageRequestDto, permissionRecords);
+    return new CursorPageResponseDto<>(
+        toPermissionDtoList(pageRecords),
+        buildNextCursor(
+            pageRequestDto,
+            permissionRecords,
+            pageRecords,
+            PermissionRepository.SEEK_SORTABLE_FIELDS,
+            PERMISSION.ID));
   }
 
   /**
    * 为角色绑定权限
+   * 与现有映射比较,仅删除移除的权限、批量插入新增的权限,有变更时在同一事务中写入领域事件;
+   * 读取现有映射前先锁定角色行,同一角色的并发绑定串行执行,各自基于前一次提交的结果计算变更
+   * 角色权限缓存在事务提交后失效
    * @param roleId 角色ID
    * @param permissionIdList 权限ID列表
+   * @return 权限绑定变更结果
    */
   @Transactional(rollbackFor = Throwable.class)
-  public void bindPermissionToRole(Long roleId, List<Long> permissionIdList) {
-    rolePermissionMapRepository.deleteByRoleId(roleId);
-    if (CollectionUtils.isEmpty(permissionIdList)) {
-      return;
+  @CacheEvict(
+      cacheNames = CacheConfig.ROLE_WITH_PERMISSION,
+      key = "#roleId",
+      cacheResolver = CacheConfig.REFRESH_AHEAD_CACHE_RESOLVER)
+  public BindingDelta bindPermissionToRole(Long roleId, List<Long> permissionIdList) {
+    outboxEventRepository.lockAggregate(EAggregate.ROLE, List.of(roleId));
+    Set<Long> targetPermissionIds = new LinkedHashSet<>();
+    if (CollectionUtils.isNotEmpty(permissionIdList)) {
+      List<Permission> permissions = permissionRepository.selectByPermissionIdIn(permissionIdList);
+      if (CollectionUtils.isEmpty(permissions)) {
+        throw new BusinessException("绑定的权限不存在");
+      }
+      permissions.forEach(permission -> targetPermissionIds.add(permission.getId()));
     }
-    
-    List<Permission> permissions = permissionRepository.selectByPermissionIdIn(permissionIdList);
-    if (CollectionUtils.isEmpty(permissions)) {
-      throw new BusinessException("绑定的权限不存在");
+    Set<Long> currentPermissionIds =
+        rolePermissionMapRepository.fetchByRoleId(roleId).stream()
+            .map(RolePermissionMap::getPermissionId)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+    BindingDelta delta = diff(currentPermissionIds, targetPermissionIds);
+    if (delta.isEmpty()) {
+      return delta;
     }
-    
-    List<RolePermissionMap> permissionMapList = permissions.stream()
-        .map(permission -> {
-          RolePermissionMap rolePermissionMap = new RolePermissionMap();
-          rolePermissionMap.setRoleId(roleId);
-          rolePermissionMap.setPermissionId(permission.getId());
-          return rolePermissionMap;
-        })
-        .collect(Collectors.toList());
-    rolePermissionMapRepository.insert(permissionMapList);
+    rolePermissionMapRepository.deleteByRoleIdAndPermissionIdIn(roleId, delta.removed());
+    rolePermissionMapRepository.insertPermissionIdIn(roleId, delta.added());
+    outboxService.append(EDomainEvent.ROLE_PERMISSIONS_CHANGED, roleId, toPayload(delta));
+    // 角色权限变更影响所有持有该角色的用户
+    authoritySnapshotCache.evict(
+        userRoleMapRepository.fetchByRoleId(roleId).stream()
+            .map(UserRoleMap::getUserId)
+            .distinct()
+            .toList());
+    return delta;
   }
 
   /**
    * 为用户绑定角色
+   * 与现有映射比较,仅删除移除的角色、批量插入新增的角色,有变更时在同一事务中写入领域事件;
+   * 读取现有映射前先锁定用户行,同一用户的并发绑定串行执行,各自基于前一次提交的结果计算变更
    * @param userId 用户ID
    * @param roleIdList 角色ID列表
+   * @return 角色绑定变更结果
    */
   @Transactional(rollbackFor = Throwable.class)
-  public void bindRoleToUser(Long userId, List<Long> roleIdList) {
-    userRoleMapRepository.deleteByUserId(userId);
-    if (CollectionUtils.isEmpty(roleIdList)) {
-      return;
+  public BindingDelta bindRoleToUser(Long userId, List<Long> roleIdList) {
+    outboxEventRepository.lockAggregate(EAggregate.USER, List.of(userId));
+    Set<Long> targetRoleIds = new LinkedHashSet<>();
+    if (CollectionUtils.isNotEmpty(roleIdList)) {
+      List<Role> roles = roleRepository.selectByRoleIdIn(roleIdList);
+      if (CollectionUtils.isEmpty(roles)) {
+        throw new BusinessException("绑定的角色不存在");
+      }
+      roles.forEach(role -> targetRoleIds.add(role.getId()));
     }
-    
-    List<Role> roles = roleRepository.selectByRoleIdIn(roleIdList);
-    if (CollectionUtils.isEmpty(roles)) {
-      throw new BusinessException("绑定的角色不存在");
+    Set<Long> currentRoleIds =
+        userRoleMapRepository.fetchByUserId(userId).stream()
+            .map(UserRoleMap::getRoleId)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+    BindingDelta delta = diff(currentRoleIds, targetRoleIds);
+    if (delta.isEmpty()) {
+      return delta;
     }
-    
-    List<UserRoleMap> userRoleMapList = roles.stream()
-        .map(role -> {
-          UserRoleMap userRoleMap = new UserRoleMap();
-          userRoleMap.setUserId(userId);
-          userRoleMap.setRoleId(role.getId());
-          return userRoleMap;
-        })
-        .collect(Collectors.toList());
-    userRoleMapRepository.insert(userRoleMapList);
+    userRoleMapRepository.deleteByUserIdAndRoleIdIn(userId, delta.removed());
+    userRoleMapRepository.insertRoleIdIn(userId, delta.added());
+    outboxService.append(EDomainEvent.USER_ROLES_CHANGED, userId, toPayload(delta));
+    authoritySnapshotCache.evict(List.of(userId));
+    return delta;
   }
 
   /**
    * 为用户绑定角色模块
    * @param userId 用户ID
    * @param eRoleList 角色枚举列表
+   * @return 角色绑定变更结果
    */
   @Transactional(rollbackFor = Throwable.class)
-  public void bindRoleModuleToUser(Long userId, List<ERole> eRoleList) {
-    bindRoleToUser(
+  public BindingDelta bindRoleModuleToUser(Long userId, List<ERole> eRoleList) {
+    return bindRoleToUser(
         userId,
         roleRepository.selectByRoleCodeIn(eRoleList.stream().map(Enum::name).collect(Collectors.toList()))
             .stream()
@@ -212,15 +318,151 @@ public class UserRolePermissionService {
   }
 
   /**
-   * 设置当前角色的权限信息
+   * 计算现有映射到目标映射的变更
+   */
+  private BindingDelta diff(Set<Long> current, Set<Long> target) {
+    return new BindingDelta(
+        target.stream().filter(id -> !current.contains(id)).toList(),
+        current.stream().filter(id -> !target.contains(id)).toList());
+  }
+
+  /**
+   * 绑定变更事件内容,只包含实际新增与移除的ID
+   */
+  private Map<String, List<Long>> toPayload(BindingDelta delta) {
+    return Map.of("added", delta.added(), "removed", delta.removed());
+  }
+
+  /**
+   * 按用户ID批量加载用户角色权限,并保持传入顺序
    */
-  private void setCurrentRolePermission(RoleDto roleDto, List<Record> roleResult) {
-    if (roleResult.get(0).getValue(PERMISSION.ID) != null) {
-      roleResult.forEach(record -> {
-        PermissionDto permissionDto = createRbacDtoPermissionPart(record);
-        roleDto.getPermissions().add(permissionDto);
-      });
+  private List<UserRolePermissionDto> assembleUserDtoList(List<Long> userIdList) {
+    // 一次查询加载整页用户的角色和权限,再按分页顺序组装
+    Map<Long, UserRolePermissionDto> userDtoMap =
+        userRepository.fetchUserDtoWithNestedRolePermissionByIdIn(userIdList).stream()
+            .collect(Collectors.toMap(UserRolePermissionDto::getId, Function.identity()));
+    return userIdList.stream()
+        .map(userDtoMap::get)
+        .filter(Objects::nonNull)
+        .toList();
+  }
+
+  /**
+   * 按角色ID批量加载角色权限,并保持传入顺序
+   */
+  private List<RoleDto> assembleRoleDtoList(List<Long> roleIdList) {
+    // 一次IN列表联表查询整页角色的权限,再按分页顺序组装
+    Map<Long, RoleDto> roleDtoMap =
+        groupRoleWithPermission(roleRepository.fetchRoleWithPermissionByRoleIdIn(roleIdList));
+    return roleIdList.stream()
+        .map(roleDtoMap::get)
+        .filter(Objects::nonNull)
+        .toList();
+  }
+
+  /**
+   * 将权限记录转换为权限DTO
+   */
+  private List<PermissionDto> toPermissionDtoList(List<Record> permissionRecords) {
+    return permissionRecords.stream()
+        .map(record -> record.into(Permission.class))
+        .map(pojo -> new PermissionDto(pojo.getId(), pojo.getName(), pojo.getCode()))
+        .toList();
+  }
+
+  /**
+   * 按用户ID过滤角色时,将用户持有的角色ID写入查询条件
+   * @return 用户未持有任何角色时返回false
+   */
+  private boolean applyUserRoleCondition(RoleQueryDto roleQueryDto) {
+    if (roleQueryDto.getUserId() == null) {
+      return true;
+    }
+    List<Long> roleIdList = userRoleMapRepository.fetchByUserId(roleQueryDto.getUserId()).stream()
+        .map(UserRoleMap::getRoleId)
+        .toList();
+    roleQueryDto.setRoleIdList(roleIdList);
+    return !roleIdList.isEmpty();
+  }
+
+  /**
+   * 按角色ID过滤权限时,将角色持有的权限ID写入查询条件
+   * @return 角色未持有任何权限时返回false
+   */
+  private boolean applyRolePermissionCondition(PermissionQueryDto permissionQueryDto) {
+    if (permissionQueryDto.getRoleId() == null) {
+      return true;
+    }
+    List<Long> permissionIdList = rolePermissionMapRepository.fetchByRoleId(permissionQueryDto.getRoleId()).stream()
+        .map(RolePermissionMap::getPermissionId)
+        .toList();
+    permissionQueryDto.setPermissionIdList(permissionIdList);
+    return !permissionIdList.isEmpty();
+  }
+
+  /**
+   * 按请求的总数模式计算分页总数
+   * @param totalField 精确模式下窗口计数列名
+   * @param estimateKey 估算模式下计数缓存的键
+   * @param counter 估算模式下缓存未命中时的计数查询
+   * @return 分页总数,跳过模式下为已读取行数
+   */
+  private long resolveTotal(
+      PageRequestDto pageRequestDto,
+      Result<Record> records,
+      String totalField,
+      String estimateKey,
+      LongSupplier counter) {
+    long seenRows = pageRequestDto.getOffset() + records.size();
+    return switch (pageRequestDto.getTotalMode()) {
+      case EXACT -> records.get(0).getValue(totalField, Integer.class);
+      case SKIP -> seenRows;
+      // 缓存计数可能落后于实际数据,至少不小于已读取的行数
+      case ESTIMATED -> Math.max(pageTotalEstimator.estimate(estimateKey, counter), seenRows);
+    };
+  }
+
+  /**
+   * 截去游标查询多取的一行
+   */
+  private List<Record> trimToPage(PageRequestDto pageRequestDto, Result<Record> records) {
+    return records.size() > pageRequestDto.getSize()
+        ? records.subList(0, pageRequestDto.getSize())
+        : records;
+  }
+
+  /**
+   * 存在下一页时根据本页最后一行生成游标
+   */
+  private String buildNextCursor(
+      PageRequestDto pageRequestDto,
+      Result<Record> records,
+      List<Record> pageRecords,
+      List<Field<?>> sortableFields,
+      Field<Long> idField) {
+    if (records.size() <= pageRequestDto.getSize()) {
+      return null;
+    }
+    return pageRequestDto.buildNextCursor(
+        sortableFields, idField, pageRecords.get(pageRecords.size() - 1));
+  }
+
+  /**
+   * 将角色权限联表结果单次遍历分组为角色DTO
+   * @param roleWithPermissionRecords 角色左联权限的记录
+   * @return 角色ID到角色DTO的映射,保持记录中的角色顺序
+   */
+  private Map<Long, RoleDto> groupRoleWithPermission(List<Record> roleWithPermissionRecords) {
+    Map<Long, RoleDto> roleDtoMap = new LinkedHashMap<>();
+    for (Record record : roleWithPermissionRecords) {
+      RoleDto roleDto =
+          roleDtoMap.computeIfAbsent(record.getValue(ROLE.ID), roleId -> createRbacDtoRolePart(record));
+      // 左联无权限的角色权限列为空
+      if (record.getValue(PERMISSION.ID) != null) {
+        roleDto.getPermissions().add(createRbacDtoPermissionPart(record));
+      }
     }
+    return roleDtoMap;
   }
 
   /**
@@ -237,11 +479,11 @@ public class UserRolePermissionService {
   /**
    * 创建角色DTO对象
    */
-  private RoleDto createRbacDtoRolePart(List<Record> roleResult) {
+  private RoleDto createRbacDtoRolePart(Record record) {
     RoleDto roleDto = new RoleDto();
-    roleDto.setId(roleResult.get(0).getValue(ROLE.ID));
-    roleDto.setCode(roleResult.get(0).getValue(ROLE.CODE));
-    roleDto.setName(roleResult.get(0).getValue(ROLE.NAME));
+    roleDto.setId(record.getValue(ROLE.ID));
+    roleDto.setCode(record.getValue(ROLE.CODE));
+    roleDto.setName(record.getValue(ROLE.NAME));
     return roleDto;
   }
 }
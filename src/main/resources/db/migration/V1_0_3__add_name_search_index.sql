@@ -0,0 +1,12 @@
+-- 前缀查询使用的B-tree索引, username已有唯一索引
+CREATE INDEX `idx_role_name` ON wuan.`role` (`name`);
+CREATE INDEX `idx_permission_name` ON wuan.`permission` (`name`);
+
+-- 子串查询使用的ngram全文索引, jOOQ代码生成无法解析WITH PARSER, 故忽略
+/* [jooq ignore start] */
+-- 默认停用词表会使ngram丢弃包含单字母停用词(如a、i)的分词, 建索引时关闭停用词
+SET SESSION innodb_ft_enable_stopword = OFF;
+ALTER TABLE wuan.`user` ADD FULLTEXT INDEX `ft_user_username` (`username`) WITH PARSER ngram;
+ALTER TABLE wuan.`role` ADD FULLTEXT INDEX `ft_role_name` (`name`) WITH PARSER ngram;
+ALTER TABLE wuan.`permission` ADD FULLTEXT INDEX `ft_permission_name` (`name`) WITH PARSER ngram;
+/* [jooq ignore stop] */
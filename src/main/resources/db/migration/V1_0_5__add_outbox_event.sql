@@ -0,0 +1,14 @@
+-- 领域事件发件箱, 与业务数据在同一事务中写入, 由中继按id顺序发布到消息队列后删除
+CREATE TABLE wuan.`outbox_event`
+(
+    `id`             BIGINT      NOT NULL AUTO_INCREMENT,
+    `aggregate_type` VARCHAR(32) NOT NULL,
+    `aggregate_id`   BIGINT      NOT NULL,
+    `event_type`     VARCHAR(64) NOT NULL,
+    `payload`        JSON        NOT NULL,
+    `create_time`    TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`)
+);
+
+-- 中继判断聚合是否存在更早的未发布事件, 以及按聚合加载待发布事件
+CREATE INDEX `idx_outbox_event_aggregate` ON wuan.`outbox_event` (`aggregate_type`, `aggregate_id`, `id`);
@@ -0,0 +1,13 @@
+-- 签发验证码,窗口内签发次数超限时拒绝
+-- KEYS[1] 验证码键, KEYS[2] 尝试次数键, KEYS[3] 签发次数键
+-- ARGV[1] 验证码, ARGV[2] 验证码有效期(毫秒), ARGV[3] 窗口内最大签发次数, ARGV[4] 签发窗口(毫秒)
+local issues = redis.call('INCR', KEYS[3])
+if issues == 1 then
+  redis.call('PEXPIRE', KEYS[3], ARGV[4])
+end
+if issues > tonumber(ARGV[3]) then
+  return 0
+end
+redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+redis.call('DEL', KEYS[2])
+return 1
@@ -0,0 +1,21 @@
+-- 校验验证码,匹配或尝试次数用尽时删除验证码
+-- KEYS[1] 验证码键, KEYS[2] 尝试次数键
+-- ARGV[1] 待校验验证码, ARGV[2] 最大尝试次数, ARGV[3] 尝试次数有效期(毫秒)
+-- 返回 1 匹配, 0 不匹配, -1 不存在, -2 尝试次数用尽
+local stored = redis.call('GET', KEYS[1])
+if not stored then
+  return -1
+end
+local attempts = redis.call('INCR', KEYS[2])
+if attempts == 1 then
+  redis.call('PEXPIRE', KEYS[2], ARGV[3])
+end
+if stored == ARGV[1] then
+  redis.call('DEL', KEYS[1], KEYS[2])
+  return 1
+end
+if attempts >= tonumber(ARGV[2]) then
+  redis.call('DEL', KEYS[1], KEYS[2])
+  return -2
+end
+return 0
@@ -0,0 +1,170 @@
+package dev.wuan.wuan.integration.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.config.cache.ScanUnlinkBatchStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.BatchStrategy;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * 100万个缓存键清空期间的Redis延迟对比
+ * 清空在独立连接上执行,另一连接持续PING探测延迟;
+ * KEYS策略在单条命令内遍历并删除全部键,SCAN+UNLINK策略每批只占用Redis很短的时间
+ * 运行方式: ./gradlew benchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+@Testcontainers
+public class CacheEvictionBenchmarkTest {
+
+  private static final int KEY_COUNT = 1_000_000;
+
+  private static final int FILL_BATCH_SIZE = 10_000;
+
+  private static final String CACHE_NAME = "evictionBenchmark";
+
+  @Container
+  public static GenericContainer<?> redisContainer =
+      new GenericContainer<>(DockerImageName.parse("redis:7.4.0-alpine")).withExposedPorts(6379);
+
+  private static LettuceConnectionFactory evictionConnectionFactory;
+
+  private static LettuceConnectionFactory probeConnectionFactory;
+
+  private static StringRedisTemplate probeTemplate;
+
+  @BeforeAll
+  static void beforeAll() {
+    redisContainer.start();
+    evictionConnectionFactory = connectionFactory();
+    probeConnectionFactory = connectionFactory();
+    probeTemplate = new StringRedisTemplate(probeConnectionFactory);
+  }
+
+  @AfterAll
+  static void afterAll() {
+    evictionConnectionFactory.destroy();
+    probeConnectionFactory.destroy();
+  }
+
+  @Test
+  void compareLatencyDuringFlush() throws Exception {
+    List<Long> baseline = probeLatency(CompletableFuture.runAsync(this::sleepOneSecond));
+
+    fill();
+    List<Long> keysLatency = flushWhileProbing(BatchStrategies.keys());
+
+    fill();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    List<Long> scanLatency =
+        flushWhileProbing(new ScanUnlinkBatchStrategy(1000, meterRegistry));
+
+    log.info(
+        "PING latency while flushing {} keys (p50/p99/max us): baseline {}/{}/{}, KEYS {}/{}/{},"
+            + " SCAN+UNLINK {}/{}/{}",
+        KEY_COUNT,
+        percentile(baseline, 50),
+        percentile(baseline, 99),
+        percentile(baseline, 100),
+        percentile(keysLatency, 50),
+        percentile(keysLatency, 99),
+        percentile(keysLatency, 100),
+        percentile(scanLatency, 50),
+        percentile(scanLatency, 99),
+        percentile(scanLatency, 100));
+    assertThat(meterRegistry.get("cache.eviction.keys").counter().count()).isEqualTo(KEY_COUNT);
+    assertThat(percentile(scanLatency, 100)).isLessThan(percentile(keysLatency, 100));
+  }
+
+  /**
+   * 用MSET批量写入缓存键,键格式与RedisCache一致
+   */
+  private void fill() {
+    StringRedisTemplate template = new StringRedisTemplate(evictionConnectionFactory);
+    for (int start = 0; start < KEY_COUNT; start += FILL_BATCH_SIZE) {
+      Map<String, String> batch = new HashMap<>(FILL_BATCH_SIZE);
+      for (int i = start; i < start + FILL_BATCH_SIZE; i++) {
+        batch.put(CACHE_NAME + "::" + i, "value-" + i);
+      }
+      template.opsForValue().multiSet(batch);
+    }
+    assertThat(probeTemplate.execute(connection -> connection.serverCommands().dbSize(), true))
+        .isEqualTo(KEY_COUNT);
+  }
+
+  private List<Long> flushWhileProbing(BatchStrategy batchStrategy) {
+    RedisCacheWriter cacheWriter =
+        RedisCacheWriter.nonLockingRedisCacheWriter(evictionConnectionFactory, batchStrategy);
+    CompletableFuture<Void> flush =
+        CompletableFuture.runAsync(
+            () ->
+                cacheWriter.clean(
+                    CACHE_NAME, (CACHE_NAME + "::*").getBytes(StandardCharsets.UTF_8)));
+    List<Long> latency = probeLatency(flush);
+    assertThat(probeTemplate.execute(connection -> connection.serverCommands().dbSize(), true))
+        .isZero();
+    return latency;
+  }
+
+  /**
+   * 任务结束前持续PING,记录每次往返耗时(微秒)
+   */
+  private List<Long> probeLatency(CompletableFuture<Void> task) {
+    List<Long> latency = new ArrayList<>();
+    while (!task.isDone()) {
+      long start = System.nanoTime();
+      probeTemplate.execute(connection -> connection.ping(), true);
+      latency.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+    task.join();
+    return latency;
+  }
+
+  private void sleepOneSecond() {
+    try {
+      Thread.sleep(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static long percentile(List<Long> values, int percentile) {
+    List<Long> sorted = values.stream().sorted().toList();
+    int index = Math.max(0, (int) Math.ceil(sorted.size() * percentile / 100.0) - 1);
+    return sorted.get(index);
+  }
+
+  /**
+   * 清空与探测各用一个连接工厂,各自的共享原生连接互不排队
+   */
+  private static LettuceConnectionFactory connectionFactory() {
+    LettuceConnectionFactory connectionFactory =
+        new LettuceConnectionFactory(
+            new RedisStandaloneConfiguration(
+                redisContainer.getHost(), redisContainer.getFirstMappedPort()));
+    connectionFactory.afterPropertiesSet();
+    connectionFactory.start();
+    return connectionFactory;
+  }
+}
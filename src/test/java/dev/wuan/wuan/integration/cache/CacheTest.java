@@ -2,6 +2,7 @@ package dev.wuan.wuan.integration.cache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import dev.wuan.wuan.component.VerifyCodeStore;
 import dev.wuan.wuan.config.cache.CacheConfig;
 import dev.wuan.wuan.service.CacheService;
 import jakarta.annotation.Resource;
@@ -17,7 +18,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
-@SpringJUnitConfig(classes = {CacheConfig.class, CacheService.class})
+@SpringJUnitConfig(classes = {CacheConfig.class, CacheService.class, VerifyCodeStore.class})
 @Testcontainers
 @EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class})
 public class CacheTest {
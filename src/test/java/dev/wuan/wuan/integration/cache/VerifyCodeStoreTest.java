@@ -0,0 +1,124 @@
+package dev.wuan.wuan.integration.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.fppt.jedismock.RedisServer;
+import dev.wuan.wuan.component.VerifyCodeStore;
+import dev.wuan.wuan.component.VerifyCodeStore.VerifyResult;
+import dev.wuan.wuan.config.cache.ScanUnlinkBatchStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/** 使用内嵌的Redis协议兼容服务验证Lua脚本语义 */
+public class VerifyCodeStoreTest {
+
+  private static RedisServer redisServer;
+
+  private static LettuceConnectionFactory connectionFactory;
+
+  private static StringRedisTemplate stringRedisTemplate;
+
+  private VerifyCodeStore verifyCodeStore;
+
+  @BeforeAll
+  static void beforeAll() throws IOException {
+    redisServer = RedisServer.newRedisServer().start();
+    connectionFactory =
+        new LettuceConnectionFactory(
+            new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+    connectionFactory.afterPropertiesSet();
+    connectionFactory.start();
+    stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+  }
+
+  @AfterAll
+  static void afterAll() throws IOException {
+    connectionFactory.destroy();
+    redisServer.stop();
+  }
+
+  @BeforeEach
+  void setUp() {
+    stringRedisTemplate.execute(
+        connection -> {
+          connection.serverCommands().flushAll();
+          return null;
+        },
+        true);
+    verifyCodeStore = new VerifyCodeStore(
+            stringRedisTemplate,
+            new ScanUnlinkBatchStrategy(1, new SimpleMeterRegistry()),
+            60,
+            3,
+            2,
+            600);
+  }
+
+  @Test
+  void verify_givenMatchedCode_shouldConsumeCode() {
+    assertThat(verifyCodeStore.issue("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216")).isTrue();
+
+    assertThat(verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216"))
+        .isEqualTo(VerifyResult.MATCHED);
+    assertThat(verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216"))
+        .isEqualTo(VerifyResult.NOT_FOUND);
+    assertThat(verifyCodeStore.get("WsxOtE0d6Vc1glZ")).isNull();
+  }
+
+  @Test
+  void verify_givenTooManyMismatches_shouldLockCode() {
+    verifyCodeStore.issue("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216");
+
+    assertThat(verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "wrong1"))
+        .isEqualTo(VerifyResult.MISMATCHED);
+    assertThat(verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "wrong2"))
+        .isEqualTo(VerifyResult.MISMATCHED);
+    assertThat(verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "wrong3"))
+        .isEqualTo(VerifyResult.LOCKED);
+    assertThat(verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216"))
+        .isEqualTo(VerifyResult.NOT_FOUND);
+  }
+
+  @Test
+  void issue_givenReissue_shouldResetAttempts() {
+    verifyCodeStore.issue("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216");
+    verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "wrong1");
+    verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "wrong2");
+
+    verifyCodeStore.issue("WsxOtE0d6Vc1glZ", "Ll1v93jiXwHLji");
+
+    assertThat(verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "wrong3"))
+        .isEqualTo(VerifyResult.MISMATCHED);
+    assertThat(verifyCodeStore.verify("WsxOtE0d6Vc1glZ", "Ll1v93jiXwHLji"))
+        .isEqualTo(VerifyResult.MATCHED);
+  }
+
+  @Test
+  void issue_givenIssueLimitReached_shouldReject() {
+    assertThat(verifyCodeStore.issue("hNYcK0MDjX4197", "code1")).isTrue();
+    assertThat(verifyCodeStore.issue("hNYcK0MDjX4197", "code2")).isTrue();
+    assertThat(verifyCodeStore.issue("hNYcK0MDjX4197", "code3")).isFalse();
+
+    assertThat(verifyCodeStore.get("hNYcK0MDjX4197")).isEqualTo("code2");
+  }
+
+  @Test
+  void clear_shouldRemoveAllCodes() {
+    verifyCodeStore.issue("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216");
+    verifyCodeStore.issue("hNYcK0MDjX4197", "Ll1v93jiXwHLji");
+    verifyCodeStore.verify("hNYcK0MDjX4197", "wrong1");
+
+    // 两个验证码与一个尝试次数,批大小为1时逐个删除
+    assertThat(verifyCodeStore.clear()).isEqualTo(3);
+
+    assertThat(verifyCodeStore.get("WsxOtE0d6Vc1glZ")).isNull();
+    assertThat(verifyCodeStore.get("hNYcK0MDjX4197")).isNull();
+  }
+}
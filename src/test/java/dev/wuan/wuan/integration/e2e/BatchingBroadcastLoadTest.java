@@ -0,0 +1,181 @@
+package dev.wuan.wuan.integration.e2e;
+
+import static dev.wuan.wuan.config.WebSocketConfig.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.wuan.wuan.component.BatchingBroadcaster;
+import dev.wuan.wuan.config.WebSocketConfig;
+import dev.wuan.wuan.controller.WebSocketStompController;
+import dev.wuan.wuan.dto.ws.InboundMessage;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketMessagingAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * 合批广播负载测试
+ * 以1万个模拟STOMP客户端订阅广播主题,在短时间内连续进入聊天室,
+ * 对比逐条广播与合批广播向客户端发出的帧数与完成时间
+ * 模拟客户端的SUBSCRIBE与SEND帧直接写入入站通道,出站帧在出站通道上计数
+ * 运行方式: ./gradlew benchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+public class BatchingBroadcastLoadTest {
+
+  private static final int CLIENT_COUNT = 10_000;
+
+  private static final int JOIN_COUNT = 200;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void compareUnbatchedAndBatchedBroadcast() throws Exception {
+    Result unbatched = run(false);
+    Result batched = run(true);
+    log.info("unbatched: {}", unbatched);
+    log.info("batched: {}", batched);
+
+    assertThat(batched.frames()).isLessThan(unbatched.frames());
+    // 每个合批帧只序列化一次,各订阅者收到的帧体内容相同
+    assertThat(batched.distinctPayloads() * CLIENT_COUNT).isEqualTo(batched.frames());
+  }
+
+  private Result run(boolean batching) throws Exception {
+    try (ConfigurableApplicationContext node = startNode(batching)) {
+      MessageChannel inbound = node.getBean("clientInboundChannel", MessageChannel.class);
+      AbstractSubscribableChannel outbound =
+          node.getBean("clientOutboundChannel", AbstractSubscribableChannel.class);
+      SimpleBrokerMessageHandler broker = node.getBean(SimpleBrokerMessageHandler.class);
+
+      AtomicLong frames = new AtomicLong();
+      AtomicLong greetings = new AtomicLong();
+      Set<Object> payloads =
+          Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+      outbound.addInterceptor(
+          new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+              StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+              if (accessor.getMessageType() == SimpMessageType.MESSAGE) {
+                String batchSize =
+                    accessor.getFirstNativeHeader(BatchingBroadcaster.HEADER_BATCH_SIZE);
+                frames.incrementAndGet();
+                greetings.addAndGet(batchSize == null ? 1 : Integer.parseInt(batchSize));
+                payloads.add(message.getPayload());
+              }
+              // 模拟客户端没有真实连接,不再交给会话处理
+              return null;
+            }
+          });
+
+      for (int i = 0; i < CLIENT_COUNT; i++) {
+        inbound.send(subscribe("session-" + i));
+      }
+      awaitSubscriptions(broker);
+
+      long expected = (long) JOIN_COUNT * CLIENT_COUNT;
+      long start = System.nanoTime();
+      for (int i = 0; i < JOIN_COUNT; i++) {
+        inbound.send(join("session-" + (i % CLIENT_COUNT), "user-" + i));
+      }
+      long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+      while (greetings.get() < expected && System.nanoTime() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertThat(greetings.get()).isEqualTo(expected);
+      return new Result(frames.get(), payloads.size(), elapsedMillis);
+    }
+  }
+
+  private void awaitSubscriptions(SimpleBrokerMessageHandler broker) throws InterruptedException {
+    StompHeaderAccessor probe = StompHeaderAccessor.create(StompCommand.SEND);
+    probe.setDestination(TOPIC);
+    Message<byte[]> message = MessageBuilder.createMessage(new byte[0], probe.getMessageHeaders());
+    long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+    while (broker.getSubscriptionRegistry().findSubscriptions(message).size() < CLIENT_COUNT
+        && System.nanoTime() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertThat(broker.getSubscriptionRegistry().findSubscriptions(message)).hasSize(CLIENT_COUNT);
+  }
+
+  private static Message<byte[]> subscribe(String sessionId) {
+    StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+    accessor.setSessionId(sessionId);
+    accessor.setSubscriptionId("sub-0");
+    accessor.setDestination(TOPIC);
+    return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+  }
+
+  private Message<byte[]> join(String sessionId, String name) throws Exception {
+    StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+    accessor.setSessionId(sessionId);
+    accessor.setSessionAttributes(new HashMap<>());
+    accessor.setDestination(RECEIVE_ENDPOINT_PREFIXES + "/entry");
+    accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+    return MessageBuilder.createMessage(
+        objectMapper.writeValueAsBytes(new InboundMessage(name)), accessor.getMessageHeaders());
+  }
+
+  private static ConfigurableApplicationContext startNode(boolean batching) {
+    return new SpringApplicationBuilder(BroadcastNode.class)
+        .web(WebApplicationType.SERVLET)
+        .properties(
+            "server.port=0",
+            "cors.allowedOrigins=*",
+            "websocket.broadcast.batching.enabled=" + batching,
+            "websocket.broadcast.batching.window-ms=20")
+        .run();
+  }
+
+  /**
+   * 负载测试结果
+   * @param frames 发往客户端的MESSAGE帧数
+   * @param distinctPayloads 不同消息体字节数组的个数
+   * @param elapsedMillis 全部问候送达的耗时
+   */
+  private record Result(long frames, int distinctPayloads, long elapsedMillis) {}
+
+  /**
+   * 只包含WebSocket消息处理的最小节点
+   */
+  @Configuration
+  @ImportAutoConfiguration({
+    ServletWebServerFactoryAutoConfiguration.class,
+    DispatcherServletAutoConfiguration.class,
+    JacksonAutoConfiguration.class,
+    WebSocketServletAutoConfiguration.class,
+    WebSocketMessagingAutoConfiguration.class
+  })
+  @Import({WebSocketConfig.class, WebSocketStompController.class, BatchingBroadcaster.class})
+  static class BroadcastNode {}
+}
@@ -0,0 +1,143 @@
+package dev.wuan.wuan.integration.mq;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.config.AmqpListenerProperties;
+import dev.wuan.wuan.dto.amqp.Message;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * 各监听容器配置的消费吞吐对比
+ * 先向队列写入固定条数的消息,再启动容器并计时直到全部消费完成,每条消息都做JSON反序列化
+ * 运行方式: ./gradlew benchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+@Testcontainers
+public class AmqpListenerThroughputTest {
+
+  private static final int MESSAGE_COUNT = 100_000;
+
+  private static final String QUEUE = "queue.throughput.benchmark";
+
+  @Container
+  public static RabbitMQContainer rabbitMQContainer =
+      new RabbitMQContainer(DockerImageName.parse("rabbitmq:4.0.3-management-alpine"));
+
+  private static CachingConnectionFactory connectionFactory;
+
+  private static RabbitTemplate rabbitTemplate;
+
+  private final Jackson2JsonMessageConverter messageConverter = new Jackson2JsonMessageConverter();
+
+  @BeforeAll
+  static void beforeAll() {
+    rabbitMQContainer.start();
+    connectionFactory =
+        new CachingConnectionFactory(rabbitMQContainer.getHost(), rabbitMQContainer.getAmqpPort());
+    connectionFactory.setUsername(rabbitMQContainer.getAdminUsername());
+    connectionFactory.setPassword(rabbitMQContainer.getAdminPassword());
+    new RabbitAdmin(connectionFactory).declareQueue(new Queue(QUEUE));
+    rabbitTemplate = new RabbitTemplate(connectionFactory);
+    rabbitTemplate.setMessageConverter(new Jackson2JsonMessageConverter());
+  }
+
+  @AfterAll
+  static void afterAll() {
+    connectionFactory.destroy();
+  }
+
+  @Test
+  void compareListenerConfigurations() throws InterruptedException {
+    Map<String, AmqpListenerProperties.Spec> specs = new LinkedHashMap<>();
+    specs.put("single-consumer prefetch 1", spec(1, 1, 1, 1, false));
+    specs.put("single-consumer prefetch 250", spec(1, 1, 250, 1, false));
+    specs.put("4-16 consumers prefetch 250", spec(4, 16, 250, 1, false));
+    specs.put("4-16 virtual-thread consumers", spec(4, 16, 250, 1, true));
+    specs.put("2 consumers batch 100", spec(2, 2, 500, 100, false));
+
+    Map<String, Long> throughput = new LinkedHashMap<>();
+    for (Map.Entry<String, AmqpListenerProperties.Spec> entry : specs.entrySet()) {
+      throughput.put(entry.getKey(), measure(entry.getValue()));
+    }
+    throughput.forEach((name, rate) -> log.info("{}: {} msg/s", name, rate));
+
+    assertThat(throughput.get("single-consumer prefetch 250"))
+        .isGreaterThan(throughput.get("single-consumer prefetch 1"));
+  }
+
+  /**
+   * 写入消息后启动容器,返回每秒消费条数
+   */
+  private long measure(AmqpListenerProperties.Spec spec) throws InterruptedException {
+    for (int i = 0; i < MESSAGE_COUNT; i++) {
+      rabbitTemplate.convertAndSend("", QUEUE, new Message((long) i, "throughput-" + i));
+    }
+    CountDownLatch remaining = new CountDownLatch(MESSAGE_COUNT);
+    SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+    factory.setConnectionFactory(connectionFactory);
+    spec.applyTo(factory);
+    SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+    endpoint.setId("throughput-" + System.nanoTime());
+    endpoint.setQueueNames(QUEUE);
+    endpoint.setMessageListener(
+        new BatchMessageListener() {
+          @Override
+          public void onMessage(org.springframework.amqp.core.Message message) {
+            messageConverter.fromMessage(message);
+            remaining.countDown();
+          }
+
+          @Override
+          public void onMessageBatch(List<org.springframework.amqp.core.Message> messages) {
+            messages.forEach(this::onMessage);
+          }
+        });
+    SimpleMessageListenerContainer container = factory.createListenerContainer(endpoint);
+    container.afterPropertiesSet();
+    long start = System.nanoTime();
+    container.start();
+    try {
+      assertThat(remaining.await(5, TimeUnit.MINUTES)).isTrue();
+      long elapsedNanos = System.nanoTime() - start;
+      return MESSAGE_COUNT * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    } finally {
+      container.stop();
+    }
+  }
+
+  private static AmqpListenerProperties.Spec spec(
+      int concurrency, int maxConcurrency, int prefetch, int batchSize, boolean virtualThreads) {
+    AmqpListenerProperties.Spec spec = new AmqpListenerProperties.Spec();
+    spec.setConcurrency(concurrency);
+    spec.setMaxConcurrency(maxConcurrency);
+    spec.setPrefetch(prefetch);
+    spec.setBatchSize(batchSize);
+    spec.setReceiveTimeout(Duration.ofMillis(100));
+    spec.setVirtualThreads(virtualThreads);
+    return spec;
+  }
+}
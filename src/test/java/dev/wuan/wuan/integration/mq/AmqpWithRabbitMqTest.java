@@ -8,6 +8,7 @@ import dev.wuan.wuan.component.AmqpMessageConsumer;
 import dev.wuan.wuan.config.AmqpConfig;
 import dev.wuan.wuan.dto.amqp.Message;
 import jakarta.annotation.Resource;
+import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -114,8 +115,9 @@ public class AmqpWithRabbitMqTest {
     rabbitTemplate.convertSendAndReceive("exchange.pubsub.default", "", message);
     AmqpMessageConsumer consumer1 = harness.getSpy("handleDefaultPubSubQueue1");
     AmqpMessageConsumer consumer2 = harness.getSpy("handleDefaultPubSubQueue2");
-    verify(consumer1).handleDefaultPubSubQueue1(message);
-    verify(consumer2).handleDefaultPubSubQueue2(message);
+    // 发布/订阅队列为批量消费,单条消息在接收超时后作为一批交付
+    verify(consumer1, timeout(5000)).handleDefaultPubSubQueue1(List.of(message));
+    verify(consumer2, timeout(5000)).handleDefaultPubSubQueue2(List.of(message));
   }
 
   @Test
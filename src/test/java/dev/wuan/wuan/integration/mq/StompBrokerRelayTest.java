@@ -0,0 +1,157 @@
+package dev.wuan.wuan.integration.mq;
+
+import static dev.wuan.wuan.config.WebSocketConfig.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.component.BatchingBroadcaster;
+import dev.wuan.wuan.config.WebSocketConfig;
+import dev.wuan.wuan.controller.WebSocketStompController;
+import dev.wuan.wuan.dto.ws.InboundMessage;
+import dev.wuan.wuan.dto.ws.OutboundMessage;
+import java.lang.reflect.Type;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketMessagingAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * 外部代理中继模式测试
+ * 两个WebSocket节点共用RabbitMQ STOMP插件作为代理,验证订阅与广播跨节点可见
+ */
+@Testcontainers
+public class StompBrokerRelayTest {
+
+  private static final int STOMP_PORT = 61613;
+
+  @Container
+  public static RabbitMQContainer rabbitMQContainer =
+      new RabbitMQContainer(DockerImageName.parse("rabbitmq:4.0.3-management-alpine"))
+          .withCopyToContainer(
+              Transferable.of("[rabbitmq_management,rabbitmq_stomp]."),
+              "/etc/rabbitmq/enabled_plugins")
+          .withExposedPorts(5672, 15672, STOMP_PORT);
+
+  private static ConfigurableApplicationContext node1;
+
+  private static ConfigurableApplicationContext node2;
+
+  private final WebSocketStompClient stompClient =
+      new WebSocketStompClient(new StandardWebSocketClient());
+
+  @BeforeAll
+  static void beforeAll() {
+    rabbitMQContainer.start();
+    node1 = startNode();
+    node2 = startNode();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    node1.close();
+    node2.close();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    stompClient.stop();
+  }
+
+  @Test
+  void sendTo_whenSubscriberIsOnAnotherNode_shouldReceiveBroadcast() throws Exception {
+    stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+    StompSession subscriber = connect(node1);
+    StompSession sender = connect(node2);
+
+    BlockingQueue<OutboundMessage> received = new LinkedBlockingQueue<>();
+    CountDownLatch subscribed = new CountDownLatch(1);
+    subscriber.setAutoReceipt(true);
+    subscriber
+        .subscribe(
+            TOPIC,
+            new StompFrameHandler() {
+              @Override
+              public Type getPayloadType(StompHeaders headers) {
+                return OutboundMessage.class;
+              }
+
+              @Override
+              public void handleFrame(StompHeaders headers, Object payload) {
+                received.offer((OutboundMessage) payload);
+              }
+            })
+        .addReceiptTask(subscribed::countDown);
+    assertThat(subscribed.await(5, TimeUnit.SECONDS)).isTrue();
+
+    sender.send(RECEIVE_ENDPOINT_PREFIXES + "/entry", new InboundMessage("Johnson"));
+
+    assertThat(received.poll(5, TimeUnit.SECONDS))
+        .isEqualTo(new OutboundMessage("Greetings Johnson"));
+  }
+
+  private StompSession connect(ConfigurableApplicationContext node) throws Exception {
+    int port = ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+    return stompClient
+        .connectAsync(
+            String.format("ws://localhost:%d%s", port, ROOT_PATH),
+            new StompSessionHandlerAdapter() {})
+        .get(5, TimeUnit.SECONDS);
+  }
+
+  private static ConfigurableApplicationContext startNode() {
+    return new SpringApplicationBuilder(RelayNode.class)
+        .web(WebApplicationType.SERVLET)
+        .properties(
+            "server.port=0",
+            "cors.allowedOrigins=*",
+            "websocket.broker.relay.enabled=true",
+            "websocket.broker.relay.host=" + rabbitMQContainer.getHost(),
+            "websocket.broker.relay.port=" + rabbitMQContainer.getMappedPort(STOMP_PORT),
+            "websocket.broker.relay.client-login=" + rabbitMQContainer.getAdminUsername(),
+            "websocket.broker.relay.client-passcode=" + rabbitMQContainer.getAdminPassword(),
+            "websocket.broker.relay.system-login=" + rabbitMQContainer.getAdminUsername(),
+            "websocket.broker.relay.system-passcode=" + rabbitMQContainer.getAdminPassword())
+        .run();
+  }
+
+  /**
+   * 只包含WebSocket消息处理的最小节点
+   */
+  @Configuration
+  @ImportAutoConfiguration({
+    ServletWebServerFactoryAutoConfiguration.class,
+    DispatcherServletAutoConfiguration.class,
+    JacksonAutoConfiguration.class,
+    WebSocketServletAutoConfiguration.class,
+    WebSocketMessagingAutoConfiguration.class
+  })
+  @Import({WebSocketConfig.class, WebSocketStompController.class, BatchingBroadcaster.class})
+  static class RelayNode {}
+}
@@ -0,0 +1,162 @@
+package dev.wuan.wuan.integration.mq;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.stream.Address;
+import com.rabbitmq.stream.Consumer;
+import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.OffsetSpecification;
+import com.rabbitmq.stream.Producer;
+import dev.wuan.wuan.component.AmqpStreamConsumer;
+import dev.wuan.wuan.config.AmqpQueueProperties;
+import dev.wuan.wuan.dto.amqp.Message;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * 流队列重放基准测试
+ * 以配置声明流队列并写入1000万条消息,再以流客户端从偏移量0读取全部消息并计时;
+ * 随后验证具名消费者重新订阅时从已保存的偏移量继续,只读到新写入的消息
+ * 运行方式: ./gradlew benchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+@Testcontainers
+public class StreamReplayBenchmarkTest {
+
+  private static final int MESSAGE_COUNT = 10_000_000;
+
+  private static final int RESUME_COUNT = 1_000;
+
+  private static final String STREAM = "queue.stream.benchmark";
+
+  private static final int STREAM_PORT = 5552;
+
+  @Container
+  public static RabbitMQContainer rabbitMQContainer =
+      new RabbitMQContainer(DockerImageName.parse("rabbitmq:4.0.3-management-alpine"))
+          .withCopyToContainer(
+              Transferable.of("[rabbitmq_management,rabbitmq_stream]."),
+              "/etc/rabbitmq/enabled_plugins")
+          .withExposedPorts(5672, 15672, STREAM_PORT);
+
+  private static CachingConnectionFactory connectionFactory;
+
+  private static Environment environment;
+
+  private static AmqpStreamConsumer streamConsumer;
+
+  private static byte[] body;
+
+  @BeforeAll
+  static void beforeAll() throws Exception {
+    rabbitMQContainer.start();
+    connectionFactory =
+        new CachingConnectionFactory(rabbitMQContainer.getHost(), rabbitMQContainer.getAmqpPort());
+    connectionFactory.setUsername(rabbitMQContainer.getAdminUsername());
+    connectionFactory.setPassword(rabbitMQContainer.getAdminPassword());
+    AmqpQueueProperties.Spec spec = new AmqpQueueProperties.Spec();
+    spec.setType(AmqpQueueProperties.Type.STREAM);
+    new RabbitAdmin(connectionFactory).declareQueue(spec.toQueue(STREAM, null));
+
+    // broker公布的是容器内地址,统一解析到映射后的端口
+    Address mapped =
+        new Address(rabbitMQContainer.getHost(), rabbitMQContainer.getMappedPort(STREAM_PORT));
+    environment =
+        Environment.builder()
+            .host(mapped.host())
+            .port(mapped.port())
+            .username(rabbitMQContainer.getAdminUsername())
+            .password(rabbitMQContainer.getAdminPassword())
+            .addressResolver(address -> mapped)
+            .build();
+    ObjectMapper objectMapper = new ObjectMapper();
+    streamConsumer = new AmqpStreamConsumer(environment, objectMapper, 10_000, 1_000);
+    body = objectMapper.writeValueAsBytes(new Message(1L, "stream-replay-benchmark"));
+  }
+
+  @AfterAll
+  static void afterAll() {
+    environment.close();
+    connectionFactory.destroy();
+  }
+
+  @Test
+  void replayFromFirstOffset() throws InterruptedException {
+    long publishStart = System.nanoTime();
+    publish(MESSAGE_COUNT);
+    log.info(
+        "published {} messages in {} ms",
+        MESSAGE_COUNT,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - publishStart));
+
+    CountDownLatch remaining = new CountDownLatch(MESSAGE_COUNT);
+    AtomicLong lastOffset = new AtomicLong(-1);
+    long start = System.nanoTime();
+    Consumer consumer =
+        streamConsumer.subscribe(
+            STREAM,
+            "replay-benchmark",
+            OffsetSpecification.first(),
+            (context, message) -> {
+              lastOffset.set(context.offset());
+              remaining.countDown();
+            });
+    assertThat(remaining.await(10, TimeUnit.MINUTES)).isTrue();
+    long elapsedNanos = System.nanoTime() - start;
+    consumer.close();
+    log.info(
+        "replayed {} messages in {} ms, {} msg/s",
+        MESSAGE_COUNT,
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+        MESSAGE_COUNT * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+    assertThat(lastOffset.get()).isEqualTo(MESSAGE_COUNT - 1);
+
+    // 同名消费者从已保存的偏移量之后继续,只读到之后写入的消息
+    publish(RESUME_COUNT);
+    CountDownLatch resumed = new CountDownLatch(RESUME_COUNT);
+    AtomicLong firstResumedOffset = new AtomicLong(-1);
+    Consumer resumedConsumer =
+        streamConsumer.subscribe(
+            STREAM,
+            "replay-benchmark",
+            OffsetSpecification.first(),
+            (context, message) -> {
+              firstResumedOffset.compareAndSet(-1, context.offset());
+              resumed.countDown();
+            });
+    assertThat(resumed.await(1, TimeUnit.MINUTES)).isTrue();
+    resumedConsumer.close();
+    assertThat(firstResumedOffset.get()).isEqualTo(MESSAGE_COUNT);
+  }
+
+  private static void publish(int count) throws InterruptedException {
+    CountDownLatch confirmed = new CountDownLatch(count);
+    try (Producer producer = environment.producerBuilder().stream(STREAM).build()) {
+      for (int i = 0; i < count; i++) {
+        producer.send(
+            producer.messageBuilder().addData(body).build(),
+            status -> {
+              if (status.isConfirmed()) {
+                confirmed.countDown();
+              }
+            });
+      }
+      assertThat(confirmed.await(10, TimeUnit.MINUTES)).isTrue();
+    }
+  }
+}
@@ -110,6 +110,24 @@ class UserRolePermissionMvcTest {
         .andExpect(jsonPath("$.data[0].name").value(stubPermissionName));
   }
 
+  @Test
+  @WithMockUser
+  void seekQuery_givenSizeLessThanOne_shouldFailWith400() throws Exception {
+    for (String path : List.of("/urp/user/seek", "/urp/role/seek", "/urp/permission/seek")) {
+      for (String size : List.of("0", "-1")) {
+        mockMvc
+            .perform(
+                get(String.format("%s?size=%s", path, size))
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED))
+            .andExpect(status().isBadRequest());
+      }
+      mockMvc
+          .perform(get(path).contentType(MediaType.APPLICATION_FORM_URLENCODED))
+          .andExpect(status().isBadRequest());
+    }
+    verifyNoInteractions(userRolePermissionService);
+  }
+
   @Test
   @WithMockUser
   void bindRoleToUser_givenValidHttpRequest_shouldSucceedWith200() throws Exception {
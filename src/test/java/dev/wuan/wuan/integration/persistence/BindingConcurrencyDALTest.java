@@ -0,0 +1,162 @@
+package dev.wuan.wuan.integration.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.component.AuthoritySnapshotCache;
+import dev.wuan.wuan.component.PageTotalEstimator;
+import dev.wuan.wuan.dto.urp.BindingDelta;
+import dev.wuan.wuan.repository.RolePermissionMapRepository;
+import dev.wuan.wuan.repository.UserRoleMapRepository;
+import dev.wuan.wuan.service.OutboxService;
+import dev.wuan.wuan.service.UserRolePermissionService;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.jooq.DSLContext;
+import org.jooq.generated.wuan.tables.pojos.RolePermissionMap;
+import org.jooq.generated.wuan.tables.pojos.UserRoleMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 同一用户或角色的并发绑定
+ * 第一次绑定在未提交的事务中持有锁,第二次绑定应等待其提交后基于最新映射计算变更,
+ * 最终映射等于后提交的目标,而不是两次目标的并集。
+ * 两个事务需真实提交,因此测试不在事务中运行,每个用例后清理数据
+ */
+@Import({UserRolePermissionService.class, PageTotalEstimator.class, OutboxService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BindingConcurrencyDALTest extends AbstractDataAccessLayerTest {
+
+  /** 第二次绑定应被阻塞的观察时间 */
+  private static final long BLOCKED_MILLIS = 300;
+
+  @Autowired private UserRolePermissionService userRolePermissionService;
+
+  @Autowired private UserRoleMapRepository userRoleMapRepository;
+
+  @Autowired private RolePermissionMapRepository rolePermissionMapRepository;
+
+  @Autowired private DSLContext dslContext;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @MockBean private AuthoritySnapshotCache authoritySnapshotCache;
+
+  @BeforeEach
+  void setUp() {
+    dslContext.execute(
+        "INSERT INTO wuan.user (id, username, password) VALUES (1, 'testUserA','5EUX1AIlV09n2o')");
+    dslContext.execute(
+        "INSERT INTO wuan.role (id, code, name) VALUES (1, 'testRoleA', 'testRoleA'),"
+            + " (2, 'testRoleB', 'testRoleB'), (3, 'testRoleC', 'testRoleC')");
+    dslContext.execute(
+        "INSERT INTO wuan.permission (id, code, name) VALUES"
+            + " (1, 'testPermissionA', 'testPermissionA'),"
+            + " (2, 'testPermissionB', 'testPermissionB'),"
+            + " (3, 'testPermissionC', 'testPermissionC')");
+    dslContext.execute("INSERT INTO wuan.user_role_map (user_id, role_id) VALUES (1, 1)");
+    dslContext.execute(
+        "INSERT INTO wuan.role_permission_map (role_id, permission_id) VALUES (1, 1)");
+  }
+
+  @AfterEach
+  void cleanUp() {
+    // 映射随用户、角色、权限级联删除
+    dslContext.execute("DELETE FROM wuan.outbox_event");
+    dslContext.execute("DELETE FROM wuan.user WHERE id = 1");
+    dslContext.execute("DELETE FROM wuan.role WHERE id IN (1, 2, 3)");
+    dslContext.execute("DELETE FROM wuan.permission WHERE id IN (1, 2, 3)");
+  }
+
+  @Test
+  void bindRoleToUser_givenOverlappingBinds_shouldApplyLaterTargetOnly() throws Exception {
+    BindingDelta second =
+        bindWhileFirstUncommitted(
+            () -> userRolePermissionService.bindRoleToUser(1L, List.of(2L)),
+            () -> userRolePermissionService.bindRoleToUser(1L, List.of(3L)));
+
+    assertThat(second.added()).containsExactly(3L);
+    assertThat(second.removed()).containsExactly(2L);
+    assertThat(userRoleMapRepository.fetchByUserId(1L))
+        .extracting(UserRoleMap::getRoleId)
+        .containsExactly(3L);
+    assertThat(dslContext.fetchCount(dslContext.selectFrom("wuan.outbox_event"))).isEqualTo(2);
+  }
+
+  @Test
+  void bindPermissionToRole_givenOverlappingBinds_shouldApplyLaterTargetOnly() throws Exception {
+    BindingDelta second =
+        bindWhileFirstUncommitted(
+            () -> userRolePermissionService.bindPermissionToRole(1L, List.of(2L)),
+            () -> userRolePermissionService.bindPermissionToRole(1L, List.of(3L)));
+
+    assertThat(second.added()).containsExactly(3L);
+    assertThat(second.removed()).containsExactly(2L);
+    assertThat(rolePermissionMapRepository.fetchByRoleId(1L))
+        .extracting(RolePermissionMap::getPermissionId)
+        .containsExactly(3L);
+    assertThat(dslContext.fetchCount(dslContext.selectFrom("wuan.outbox_event"))).isEqualTo(2);
+  }
+
+  /**
+   * 第一次绑定完成后暂不提交,期间发起第二次绑定,确认其被阻塞后再提交第一次绑定
+   * @param first 第一次绑定
+   * @param second 第二次绑定
+   * @return 第二次绑定的变更结果
+   */
+  private BindingDelta bindWhileFirstUncommitted(Runnable first, Callable<BindingDelta> second)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    CountDownLatch firstApplied = new CountDownLatch(1);
+    CountDownLatch commitFirst = new CountDownLatch(1);
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    try {
+      Future<?> firstFuture =
+          executor.submit(
+              () ->
+                  transactionTemplate.executeWithoutResult(
+                      status -> {
+                        first.run();
+                        firstApplied.countDown();
+                        awaitQuietly(commitFirst);
+                      }));
+      assertThat(firstApplied.await(10, TimeUnit.SECONDS)).isTrue();
+
+      Future<BindingDelta> secondFuture = executor.submit(second);
+      Thread.sleep(BLOCKED_MILLIS);
+      assertThat(secondFuture).isNotDone();
+
+      commitFirst.countDown();
+      firstFuture.get(10, TimeUnit.SECONDS);
+      return secondFuture.get(10, TimeUnit.SECONDS);
+    } finally {
+      commitFirst.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package dev.wuan.wuan.integration.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.model.outbox.EAggregate;
+import dev.wuan.wuan.repository.OutboxEventRepository;
+import java.util.List;
+import org.jooq.generated.wuan.tables.pojos.OutboxEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.jdbc.Sql;
+
+@Sql(
+    statements = {
+      "INSERT INTO wuan.user (id, username, password) VALUES (1, 'testUserA','5EUX1AIlV09n2o')",
+      "INSERT INTO wuan.outbox_event (id, aggregate_type, aggregate_id, event_type, payload)"
+          + " VALUES (1, 'USER', 1, 'user.signed-up', '{\"username\":\"testUserA\"}')",
+      "INSERT INTO wuan.outbox_event (id, aggregate_type, aggregate_id, event_type, payload)"
+          + " VALUES (2, 'ROLE', 1, 'role.permissions-changed', '{\"added\":[1],\"removed\":[]}')",
+      "INSERT INTO wuan.outbox_event (id, aggregate_type, aggregate_id, event_type, payload)"
+          + " VALUES (3, 'USER', 1, 'user.roles-changed', '{\"added\":[1],\"removed\":[]}')",
+    })
+public class OutboxEventDALTest extends AbstractDataAccessLayerTest {
+
+  @Autowired private OutboxEventRepository outboxEventRepository;
+
+  @Test
+  void claimAggregateHeads_shouldOnlyReturnEarliestEventOfEachAggregate() {
+    List<OutboxEvent> heads = outboxEventRepository.claimAggregateHeads(10);
+
+    assertThat(heads).extracting(OutboxEvent::getId).containsExactly(1L, 2L);
+  }
+
+  @Test
+  void lockByAggregateIn_shouldReturnAllEventsOfClaimedAggregatesInIdOrder() {
+    List<OutboxEvent> heads = outboxEventRepository.claimAggregateHeads(1);
+    List<OutboxEvent> events = outboxEventRepository.lockByAggregateIn(heads, 10);
+
+    assertThat(events).extracting(OutboxEvent::getId).containsExactly(1L, 3L);
+    assertThat(events.get(0).getPayload()).contains("testUserA");
+    assertThat(events.get(0).getCreateTime()).isNotNull();
+  }
+
+  @Test
+  void deleteByIdIn_shouldExposeNextEventOfAggregate() {
+    outboxEventRepository.deleteByIdIn(List.of(1L));
+
+    assertThat(outboxEventRepository.claimAggregateHeads(10))
+        .extracting(OutboxEvent::getId)
+        .containsExactly(2L, 3L);
+  }
+
+  @Test
+  void insertAll_shouldAppendAfterExistingEvents() {
+    outboxEventRepository.lockAggregate(EAggregate.USER, List.of(1L));
+    outboxEventRepository.insertAll(
+        List.of(
+            new OutboxEvent()
+                .setAggregateType(EAggregate.USER.name())
+                .setAggregateId(1L)
+                .setEventType("user.roles-changed")
+                .setPayload("{\"added\":[],\"removed\":[1]}")));
+
+    List<OutboxEvent> events =
+        outboxEventRepository.lockByAggregateIn(outboxEventRepository.claimAggregateHeads(10), 10);
+    assertThat(events).hasSize(4);
+    assertThat(events.get(3).getPayload()).contains("\"removed\"");
+  }
+}
@@ -0,0 +1,161 @@
+package dev.wuan.wuan.integration.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import dev.wuan.wuan.component.OutboxRelay;
+import dev.wuan.wuan.repository.OutboxEventRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 发件箱中继在真实事务下的行为
+ * broker以模拟的RabbitTemplate代替,由测试决定每条事件的发布确认结果;
+ * 事件需提交后中继才能在自己的事务中认领,因此测试不在事务中运行,每个用例后清理发件箱
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OutboxRelayDALTest extends AbstractDataAccessLayerTest {
+
+  private static final long CONFIRM_TIMEOUT_MILLIS = 200;
+
+  @Autowired private DSLContext dslContext;
+
+  @Autowired private OutboxEventRepository outboxEventRepository;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private RabbitTemplate rabbitTemplate;
+
+  private RabbitOperations operations;
+
+  private OutboxRelay outboxRelay;
+
+  /** 发布过的消息,按发布顺序 */
+  private final List<Message> sent = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    dslContext.execute(
+        "INSERT INTO wuan.outbox_event (id, aggregate_type, aggregate_id, event_type, payload)"
+            + " VALUES (101, 'USER', 1, 'user.signed-up', '{\"username\":\"testUserA\"}'),"
+            + " (102, 'ROLE', 1, 'role.permissions-changed', '{\"added\":[1],\"removed\":[]}'),"
+            + " (103, 'USER', 1, 'user.roles-changed', '{\"added\":[1],\"removed\":[]}')");
+    rabbitTemplate = mock(RabbitTemplate.class);
+    operations = mock(RabbitOperations.class);
+    when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class)))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<RabbitOperations.OperationsCallback<?>>getArgument(0)
+                    .doInRabbit(operations));
+    outboxRelay =
+        new OutboxRelay(
+            outboxEventRepository,
+            rabbitTemplate,
+            new TransactionTemplate(transactionManager),
+            false,
+            10,
+            200,
+            CONFIRM_TIMEOUT_MILLIS,
+            0);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    dslContext.execute("DELETE FROM wuan.outbox_event");
+  }
+
+  @Test
+  void relayBatch_whenAllConfirmed_shouldPublishInIdOrderAndDelete() {
+    confirmWith(id -> new CorrelationData.Confirm(true, null));
+
+    int relayed = outboxRelay.relayBatch();
+
+    assertThat(relayed).isEqualTo(3);
+    assertThat(sent)
+        .extracting(message -> message.getMessageProperties().getMessageId())
+        .containsExactly("101", "102", "103");
+    assertThat(outboxEventCount()).isZero();
+  }
+
+  @Test
+  void relayBatch_whenOneNacked_shouldRollbackAndKeepAllEvents() {
+    confirmWith(id -> new CorrelationData.Confirm(!"103".equals(id), "test nack"));
+
+    assertThatThrownBy(() -> outboxRelay.relayBatch())
+        .isInstanceOf(AmqpException.class)
+        .hasMessageContaining("nacked")
+        .hasMessageContaining("103");
+
+    assertThat(outboxEventCount()).isEqualTo(3);
+  }
+
+  @Test
+  void relayBatch_whenConfirmTimesOut_shouldRollbackAndKeepAllEvents() {
+    // 102没有收到确认
+    confirmWith(id -> "102".equals(id) ? null : new CorrelationData.Confirm(true, null));
+
+    assertThatThrownBy(() -> outboxRelay.relayBatch())
+        .isInstanceOf(AmqpException.class)
+        .hasMessageContaining("not confirmed")
+        .hasMessageContaining("102");
+
+    assertThat(outboxEventCount()).isEqualTo(3);
+  }
+
+  @Test
+  void relayBatch_afterFailure_shouldRepublishOnRetry() {
+    confirmWith(id -> new CorrelationData.Confirm(false, "test nack"));
+    assertThatThrownBy(() -> outboxRelay.relayBatch()).isInstanceOf(AmqpException.class);
+
+    sent.clear();
+    confirmWith(id -> new CorrelationData.Confirm(true, null));
+
+    assertThat(outboxRelay.relayBatch()).isEqualTo(3);
+    assertThat(sent).hasSize(3);
+    assertThat(outboxEventCount()).isZero();
+  }
+
+  /**
+   * 按事件ID决定发布确认结果,返回null时不确认
+   * @param confirmById 事件ID到确认结果的映射
+   */
+  private void confirmWith(Function<String, CorrelationData.Confirm> confirmById) {
+    doAnswer(
+            invocation -> {
+              sent.add(invocation.getArgument(2));
+              CorrelationData correlationData = invocation.getArgument(3);
+              CorrelationData.Confirm confirm = confirmById.apply(correlationData.getId());
+              if (confirm != null) {
+                correlationData.getFuture().complete(confirm);
+              }
+              return null;
+            })
+        .when(operations)
+        .send(
+            eq(OutboxRelay.EXCHANGE), anyString(), any(Message.class), any(CorrelationData.class));
+  }
+
+  private int outboxEventCount() {
+    return dslContext.fetchCount(dslContext.selectFrom("wuan.outbox_event"));
+  }
+}
@@ -0,0 +1,199 @@
+package dev.wuan.wuan.integration.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.dto.PageRequestDto;
+import dev.wuan.wuan.dto.urp.PermissionQueryDto;
+import dev.wuan.wuan.dto.urp.RoleQueryDto;
+import dev.wuan.wuan.repository.*;
+import java.util.List;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 对仓储层实际执行的SQL做EXPLAIN,优化器不再选用期望的索引时测试失败
+ * 除少量用例数据外另写入1万行干扰数据并执行ANALYZE TABLE,使统计信息稳定、
+ * 用例条件足够有选择性,从而断言执行计划实际选用的key且访问类型不是全表扫描;
+ * ANALYZE TABLE会隐式提交,因此数据在测试类开始时提交写入,结束时删除
+ */
+@Import(StatementRecorder.Config.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class QueryPlanDALTest extends AbstractDataAccessLayerTest {
+
+  /** 干扰数据的起始ID,与用例数据的ID区分 */
+  private static final int SEED_ID_BASE = 1000;
+
+  /** 干扰数据的密码,删除时据此识别 */
+  private static final String SEED_PASSWORD = "query-plan";
+
+  @Autowired private DSLContext dslContext;
+
+  @Autowired private StatementRecorder statementRecorder;
+
+  @Autowired private UserRoleMapRepository userRoleMapRepository;
+
+  @Autowired private RolePermissionMapRepository rolePermissionMapRepository;
+
+  @Autowired private RoleRepository roleRepository;
+
+  @Autowired private PermissionRepository permissionRepository;
+
+  @BeforeAll
+  void insertRows() {
+    dslContext.execute(
+        "INSERT INTO wuan.user (id, username, password) VALUES"
+            + " (1, 'testUserA', '5EUX1AIlV09n2o'), (2, 'testUserB', 'NTjRCeUq2EqCy')");
+    dslContext.execute(
+        "INSERT INTO wuan.role (id, code, name) VALUES"
+            + " (1, 'testRoleA', 'testRoleA'), (2, 'testRoleB', 'testRoleB')");
+    dslContext.execute(
+        "INSERT INTO wuan.permission (id, code, name) VALUES"
+            + " (1, 'testPermissionA', 'testPermissionA'),"
+            + " (2, 'testPermissionB', 'testPermissionB')");
+    dslContext.execute(
+        "INSERT INTO wuan.user_role_map (id, user_id, role_id) VALUES"
+            + " (1, 1, 1), (2, 2, 1), (3, 2, 2)");
+    dslContext.execute(
+        "INSERT INTO wuan.role_permission_map (id, role_id, permission_id) VALUES"
+            + " (1, 1, 1), (2, 2, 2)");
+
+    // 用4个数字表笛卡尔积生成1万行干扰数据,权限名称均以testPermission开头,
+    // 使名称条件失去选择性,编码索引成为唯一合理的选择
+    String digits =
+        "(SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4"
+            + " UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8"
+            + " UNION ALL SELECT 9)";
+    String seq =
+        "(SELECT a.d + b.d * 10 + c.d * 100 + e.d * 1000 AS n FROM " + digits + " a CROSS JOIN "
+            + digits + " b CROSS JOIN " + digits + " c CROSS JOIN " + digits + " e) seq";
+    dslContext.execute(
+        "INSERT INTO wuan.user (id, username, password) SELECT " + SEED_ID_BASE
+            + " + n, CONCAT('plan_user_', n), '" + SEED_PASSWORD + "' FROM " + seq);
+    dslContext.execute(
+        "INSERT INTO wuan.role (id, code, name) SELECT " + SEED_ID_BASE
+            + " + n, CONCAT('plan_role_', n), CONCAT('plan_role_', n) FROM " + seq);
+    dslContext.execute(
+        "INSERT INTO wuan.permission (id, code, name) SELECT " + SEED_ID_BASE
+            + " + n, CONCAT('plan_permission_', n), CONCAT('testPermission_', n) FROM " + seq);
+    dslContext.execute(
+        "INSERT INTO wuan.user_role_map (user_id, role_id) SELECT " + SEED_ID_BASE + " + n, "
+            + SEED_ID_BASE + " + n % 1000 FROM " + seq);
+    dslContext.execute(
+        "INSERT INTO wuan.role_permission_map (role_id, permission_id) SELECT " + SEED_ID_BASE
+            + " + n, " + SEED_ID_BASE + " + (n * 7) % 10000 FROM " + seq);
+    dslContext.execute(
+        "ANALYZE TABLE wuan.user, wuan.role, wuan.permission, wuan.user_role_map,"
+            + " wuan.role_permission_map");
+  }
+
+  @AfterAll
+  void deleteRows() {
+    // 映射表随外键级联删除
+    dslContext.execute(
+        "DELETE FROM wuan.user WHERE id IN (1, 2) OR password = '" + SEED_PASSWORD + "'");
+    dslContext.execute(
+        "DELETE FROM wuan.role WHERE id IN (1, 2) OR id >= " + SEED_ID_BASE);
+    dslContext.execute(
+        "DELETE FROM wuan.permission WHERE id IN (1, 2) OR id >= " + SEED_ID_BASE);
+  }
+
+  @Test
+  void selectByRoleCodeIn_shouldUseRoleCodeIndex() {
+    assertIndexUsed(
+        () -> roleRepository.selectByRoleCodeIn(List.of("testRoleA", "testRoleB")),
+        "role",
+        "idx_role_code");
+  }
+
+  @Test
+  void pageFetchBy_givenRoleCode_shouldUseRoleCodeIndex() {
+    RoleQueryDto roleQueryDto = new RoleQueryDto();
+    roleQueryDto.setRoleCode("testRoleA");
+    assertIndexUsed(
+        () -> roleRepository.pageFetchBy(PageRequestDto.of(0, 10), roleQueryDto),
+        "role",
+        "idx_role_code");
+  }
+
+  @Test
+  void pageFetchBy_givenPermissionCode_shouldUsePermissionCodeIndex() {
+    PermissionQueryDto permissionQueryDto = new PermissionQueryDto();
+    permissionQueryDto.setPermissionName("testPermission");
+    permissionQueryDto.setPermissionCode("testPermissionA");
+    assertIndexUsed(
+        () -> permissionRepository.pageFetchBy(PageRequestDto.of(0, 10), permissionQueryDto),
+        "permission",
+        "idx_permission_code");
+  }
+
+  @Test
+  void fetchByUserId_shouldUseUserRoleUniqueKey() {
+    assertIndexUsed(
+        () -> userRoleMapRepository.fetchByUserId(2L), "user_role_map", "uk_user_role");
+  }
+
+  @Test
+  void fetchByRoleId_shouldUseUserRoleReverseIndex() {
+    assertIndexUsed(
+        () -> userRoleMapRepository.fetchByRoleId(1L),
+        "user_role_map",
+        "idx_user_role_map_role_user");
+  }
+
+  @Test
+  void fetchRolePermissionByRoleId_shouldUseRolePermissionUniqueKey() {
+    assertIndexUsed(
+        () -> rolePermissionMapRepository.fetchByRoleId(1L),
+        "role_permission_map",
+        "uk_role_permission");
+  }
+
+  @Test
+  void fetchRolePermissionByPermissionId_shouldUseRolePermissionReverseIndex() {
+    assertIndexUsed(
+        () -> rolePermissionMapRepository.fetchByPermissionId(1L),
+        "role_permission_map",
+        "idx_role_permission_map_permission_role");
+  }
+
+  @Test
+  void fetchRoleWithPermissionByRoleIdIn_shouldJoinThroughIndexes() {
+    assertIndexUsed(
+        () -> roleRepository.fetchRoleWithPermissionByRoleIdIn(List.of(1L, 2L)),
+        "role_permission_map",
+        "uk_role_permission");
+  }
+
+  /**
+   * 执行查询并对其最后一条SQL做EXPLAIN
+   * @param query 仓储层查询
+   * @param table 待检查的表名
+   * @param index 期望实际选用的索引名
+   */
+  private void assertIndexUsed(Runnable query, String table, String index) {
+    statementRecorder.reset();
+    query.run();
+    List<String> statements = statementRecorder.getInlinedStatements();
+    assertThat(statements).isNotEmpty();
+    String sql = statements.get(statements.size() - 1);
+
+    Result<Record> plan = dslContext.fetch("EXPLAIN " + sql);
+    Record row =
+        plan.stream()
+            .filter(r -> table.equals(r.get("table", String.class)))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("no plan row for " + table + ": " + sql));
+    assertThat(row.get("key", String.class)).as(sql).isEqualTo(index);
+    assertThat(row.get("type", String.class)).as(sql).isNotEqualTo("ALL");
+  }
+}
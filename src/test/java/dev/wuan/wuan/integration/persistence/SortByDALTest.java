@@ -6,7 +6,9 @@ import static org.jooq.generated.wuan.tables.User.USER;
 import dev.wuan.wuan.dto.PageRequestDto;
 import dev.wuan.wuan.dto.urp.UserQueryDto;
 import dev.wuan.wuan.repository.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import org.jooq.Record;
 import org.jooq.Result;
 import org.junit.jupiter.api.Test;
@@ -68,4 +70,37 @@ public class SortByDALTest extends AbstractDataAccessLayerTest {
     assertThat(records2.get(2).get(USER.ID)).isEqualTo(2);
     assertThat(records2.get(3).get(USER.ID)).isEqualTo(1);
   }
+
+  @Test
+  @Sql(
+      statements = {
+        "INSERT INTO wuan.user (id, username, password, enable) VALUES (1, 'testA','1', true)",
+        "INSERT INTO wuan.user (id, username, password, enable) VALUES (2, 'testB','2', false)",
+        "INSERT INTO wuan.user (id, username, password, enable) VALUES (3, 'testC','2', false)",
+        "INSERT INTO wuan.user (id, username, password, enable) VALUES (4, 'testD','2', false)",
+        "INSERT INTO wuan.user (id, username, password, enable) VALUES (5, 'testE','1', true)",
+      })
+  void userSeekFetchWithSortAndIdTiebreaker() {
+    UserQueryDto rbacQueryDto = new UserQueryDto("test");
+    PageRequestDto pageRequestDto = new PageRequestDto(0, 2);
+    pageRequestDto.setSortBy("enable asc");
+    List<Long> seekedIds = new ArrayList<>();
+    int pageCount = 0;
+    while (true) {
+      Result<Record> records = userRepository.seekFetchBy(pageRequestDto, rbacQueryDto);
+      pageCount++;
+      // 多取一行用于判断是否存在下一页
+      boolean hasNext = records.size() > pageRequestDto.getSize();
+      List<Record> page = hasNext ? records.subList(0, pageRequestDto.getSize()) : records;
+      page.forEach(record -> seekedIds.add(record.get(USER.ID)));
+      if (!hasNext) {
+        break;
+      }
+      pageRequestDto.setCursor(
+          pageRequestDto.buildNextCursor(
+              UserRepository.SEEK_SORTABLE_FIELDS, USER.ID, page.get(page.size() - 1)));
+    }
+    assertThat(pageCount).isEqualTo(3);
+    assertThat(seekedIds).containsExactly(2L, 3L, 4L, 1L, 5L);
+  }
 }
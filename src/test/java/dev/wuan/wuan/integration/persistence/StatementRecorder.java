@@ -0,0 +1,59 @@
+package dev.wuan.wuan.integration.persistence;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/** 记录jOOQ实际执行的SQL语句,用于断言每个操作的数据库往返次数 */
+public class StatementRecorder implements ExecuteListener {
+
+  private final List<String> statements = new CopyOnWriteArrayList<>();
+
+  /** 绑定值内联后的SQL,可直接用于EXPLAIN */
+  private final List<String> inlinedStatements = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void executeStart(ExecuteContext ctx) {
+    statements.add(ctx.sql());
+    if (ctx.query() != null) {
+      inlinedStatements.add(ctx.dsl().renderInlined(ctx.query()));
+    }
+  }
+
+  public List<String> getStatements() {
+    return List.copyOf(statements);
+  }
+
+  public List<String> getInlinedStatements() {
+    return List.copyOf(inlinedStatements);
+  }
+
+  public int count() {
+    return statements.size();
+  }
+
+  public void reset() {
+    statements.clear();
+    inlinedStatements.clear();
+  }
+
+  @TestConfiguration
+  public static class Config {
+
+    @Bean
+    public StatementRecorder statementRecorder() {
+      return new StatementRecorder();
+    }
+
+    @Bean
+    public ExecuteListenerProvider statementRecorderListenerProvider(
+        StatementRecorder statementRecorder) {
+      return new DefaultExecuteListenerProvider(statementRecorder);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package dev.wuan.wuan.integration.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jooq.generated.wuan.tables.Permission.PERMISSION;
+import static org.jooq.generated.wuan.tables.Role.ROLE;
+import static org.jooq.generated.wuan.tables.User.USER;
+
+import dev.wuan.wuan.dto.PageRequestDto;
+import dev.wuan.wuan.dto.SearchMode;
+import dev.wuan.wuan.dto.urp.PermissionQueryDto;
+import dev.wuan.wuan.dto.urp.RoleQueryDto;
+import dev.wuan.wuan.dto.urp.UserQueryDto;
+import dev.wuan.wuan.repository.PermissionRepository;
+import dev.wuan.wuan.repository.RoleRepository;
+import dev.wuan.wuan.repository.UserRepository;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** InnoDB全文索引看不到未提交的数据,因此本类测试不在测试事务中运行,由脚本自行清理 */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(
+    statements = {
+      "INSERT INTO wuan.user (id, username, password) VALUES (1, 'alice_admin','1')",
+      "INSERT INTO wuan.user (id, username, password) VALUES (2, 'bob_operator','2')",
+      "INSERT INTO wuan.user (id, username, password) VALUES (3, 'admin_carol','3')",
+      "INSERT INTO wuan.role (id, code, name) VALUES (1, 'AUDITOR', '审计管理员')",
+      "INSERT INTO wuan.role (id, code, name) VALUES (2, 'GUEST', '访客')",
+      "INSERT INTO wuan.permission (id, code, name) VALUES (1, 'READ_LOG', 'read audit log')",
+      "INSERT INTO wuan.permission (id, code, name) VALUES (2, 'WRITE_LOG', 'write log')",
+    })
+@Sql(
+    executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD,
+    statements = {
+      "DELETE FROM wuan.user",
+      "DELETE FROM wuan.role",
+      "DELETE FROM wuan.permission",
+    })
+public class TextSearchDALTest extends AbstractDataAccessLayerTest {
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private RoleRepository roleRepository;
+
+  @Autowired private PermissionRepository permissionRepository;
+
+  @Test
+  void user_pageFetchBy_givenSearchMode_shouldMatchLikeContainsOrPrefix() {
+    UserQueryDto fulltextQuery = new UserQueryDto("admin");
+    fulltextQuery.setSearchMode(SearchMode.FULLTEXT);
+    Result<Record> fulltextRecords =
+        userRepository.pageFetchBy(PageRequestDto.of(0, 10), fulltextQuery);
+    assertThat(fulltextRecords.getValues(USER.ID)).containsExactlyInAnyOrder(1L, 3L);
+
+    UserQueryDto prefixQuery = new UserQueryDto("admin");
+    prefixQuery.setSearchMode(SearchMode.PREFIX);
+    Result<Record> prefixRecords =
+        userRepository.pageFetchBy(PageRequestDto.of(0, 10), prefixQuery);
+    assertThat(prefixRecords.getValues(USER.ID)).containsExactly(3L);
+
+    // 前缀中的通配符按字面匹配
+    UserQueryDto wildcardQuery = new UserQueryDto("%_");
+    wildcardQuery.setSearchMode(SearchMode.PREFIX);
+    assertThat(userRepository.pageFetchBy(PageRequestDto.of(0, 10), wildcardQuery)).isEmpty();
+  }
+
+  @Test
+  void role_pageFetchBy_givenFulltextSearch_shouldMatchChineseSubstring() {
+    RoleQueryDto roleQueryDto = new RoleQueryDto();
+    roleQueryDto.setRoleName("管理");
+    roleQueryDto.setSearchMode(SearchMode.FULLTEXT);
+    Result<Record> records = roleRepository.pageFetchBy(PageRequestDto.of(0, 10), roleQueryDto);
+    assertThat(records.getValues(ROLE.ID)).containsExactly(1L);
+  }
+
+  @Test
+  void permission_pageFetchBy_givenFulltextSearch_shouldMatchPhrase() {
+    PermissionQueryDto permissionQueryDto = new PermissionQueryDto();
+    permissionQueryDto.setPermissionName("audit lo");
+    permissionQueryDto.setPermissionCode("READ_LOG");
+    permissionQueryDto.setSearchMode(SearchMode.FULLTEXT);
+    Result<Record> records =
+        permissionRepository.pageFetchBy(PageRequestDto.of(0, 10), permissionQueryDto);
+    assertThat(permissionRepository.countBy(permissionQueryDto)).isEqualTo(1);
+    assertThat(records.getValues(PERMISSION.ID)).containsExactly(1L);
+  }
+}
@@ -58,6 +58,46 @@ public class UserRolePermissionDALTest extends AbstractDataAccessLayerTest {
     assertThat(rolePermissionMapRepository.fetchByRoleId(1L).isEmpty()).isTrue();
   }
 
+  @Test
+  @Sql(
+      statements = {
+        "INSERT INTO wuan.user (id, username, password) VALUES (1, 'testUserA','5EUX1AIlV09n2o')",
+        "INSERT INTO wuan.role (id, code, name) VALUES (1, 'testRoleA', 'testRoleA')",
+        "INSERT INTO wuan.role (id, code, name) VALUES (2, 'testRoleB', 'testRoleB')",
+        "INSERT INTO wuan.role (id, code, name) VALUES (3, 'testRoleC', 'testRoleC')",
+        "INSERT INTO wuan.user_role_map (id, user_id, role_id) VALUES (1, 1, 1)",
+        "INSERT INTO wuan.user_role_map (id, user_id, role_id) VALUES (2, 1, 2)"
+      })
+  void userRoleMap_deleteAndInsertByRoleIdIn() {
+    assertThat(userRoleMapRepository.deleteByUserIdAndRoleIdIn(1L, List.of(1L))).isEqualTo(1);
+    assertThat(userRoleMapRepository.insertRoleIdIn(1L, List.of(3L))).isEqualTo(1);
+    assertThat(userRoleMapRepository.fetchByUserId(1L))
+        .extracting(userRoleMap -> userRoleMap.getRoleId())
+        .containsExactlyInAnyOrder(2L, 3L);
+  }
+
+  @Test
+  @Sql(
+      statements = {
+        "INSERT INTO wuan.role (id, code, name) VALUES (1, 'testRoleA', 'testRoleA')",
+        "INSERT INTO wuan.permission (id, code, name) VALUES (1, 'testPermissionA',"
+            + " 'testPermissionA')",
+        "INSERT INTO wuan.permission (id, code, name) VALUES (2, 'testPermissionB',"
+            + " 'testPermissionB')",
+        "INSERT INTO wuan.permission (id, code, name) VALUES (3, 'testPermissionC',"
+            + " 'testPermissionC')",
+        "INSERT INTO wuan.role_permission_map (id, role_id, permission_id) VALUES (1, 1, 1)",
+      })
+  void rolePermissionMap_deleteAndInsertByPermissionIdIn() {
+    assertThat(rolePermissionMapRepository.deleteByRoleIdAndPermissionIdIn(1L, List.of(1L)))
+        .isEqualTo(1);
+    assertThat(rolePermissionMapRepository.insertPermissionIdIn(1L, List.of(2L, 3L)))
+        .isEqualTo(2);
+    assertThat(rolePermissionMapRepository.fetchByRoleId(1L))
+        .extracting(rolePermissionMap -> rolePermissionMap.getPermissionId())
+        .containsExactlyInAnyOrder(2L, 3L);
+  }
+
   @Test
   @Sql(
       statements = {
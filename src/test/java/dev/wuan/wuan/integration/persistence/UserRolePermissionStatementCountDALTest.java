@@ -0,0 +1,150 @@
+package dev.wuan.wuan.integration.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.component.AuthoritySnapshotCache;
+import dev.wuan.wuan.component.PageTotalEstimator;
+import dev.wuan.wuan.dto.PageRequestDto;
+import dev.wuan.wuan.dto.PageResponseDto;
+import dev.wuan.wuan.dto.urp.PermissionDto;
+import dev.wuan.wuan.dto.urp.PermissionQueryDto;
+import dev.wuan.wuan.dto.urp.RoleDto;
+import dev.wuan.wuan.dto.urp.RoleQueryDto;
+import dev.wuan.wuan.dto.urp.UserQueryDto;
+import dev.wuan.wuan.dto.urp.UserRolePermissionDto;
+import dev.wuan.wuan.service.OutboxService;
+import dev.wuan.wuan.service.UserRolePermissionService;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+@Import({
+  StatementRecorder.Config.class,
+  UserRolePermissionService.class,
+  PageTotalEstimator.class
+})
+public class UserRolePermissionStatementCountDALTest extends AbstractDataAccessLayerTest {
+
+  @Autowired private UserRolePermissionService userRolePermissionService;
+
+  @Autowired private StatementRecorder statementRecorder;
+
+  @MockBean private AuthoritySnapshotCache authoritySnapshotCache;
+
+  @MockBean private OutboxService outboxService;
+
+  @Test
+  @Sql(
+      statements = {
+        "INSERT INTO wuan.user (id, username, password) VALUES (1, 'testUserA','5EUX1AIlV09n2o')",
+        "INSERT INTO wuan.user (id, username, password) VALUES (2, 'testUserB','NTjRCeUq2EqCy')",
+        "INSERT INTO wuan.user (id, username, password) VALUES (3, 'testUserC','Qm3Zr8sLw2aVx')",
+        "INSERT INTO wuan.role (id, code, name) VALUES (1, 'testRoleA', 'testRoleA')",
+        "INSERT INTO wuan.role (id, code, name) VALUES (2, 'testRoleB', 'testRoleB')",
+        "INSERT INTO wuan.permission (id, code, name) VALUES (1, 'testPermissionA',"
+            + " 'testPermissionA')",
+        "INSERT INTO wuan.permission (id, code, name) VALUES (2, 'testPermissionB',"
+            + " 'testPermissionB')",
+        "INSERT INTO wuan.user_role_map (id, user_id, role_id) VALUES (1, 1, 1)",
+        "INSERT INTO wuan.user_role_map (id, user_id, role_id) VALUES (2, 2, 1)",
+        "INSERT INTO wuan.user_role_map (id, user_id, role_id) VALUES (3, 2, 2)",
+        "INSERT INTO wuan.role_permission_map (id, role_id, permission_id) VALUES (1, 1, 1)",
+        "INSERT INTO wuan.role_permission_map (id, role_id, permission_id) VALUES (2, 2, 2)",
+      })
+  void pageQueryUser_givenPageOfUsers_shouldExecuteTwoStatements() {
+    statementRecorder.reset();
+
+    PageResponseDto<List<UserRolePermissionDto>> page =
+        userRolePermissionService.pageQueryUser(
+            PageRequestDto.of(0, 10), new UserQueryDto("testUser"));
+
+    // 一条分页查询加一条批量嵌套查询,与页内行数无关
+    assertThat(statementRecorder.count()).isEqualTo(2);
+    assertThat(page.getTotal()).isEqualTo(3);
+    List<UserRolePermissionDto> users = page.getData();
+    assertThat(users).extracting(UserRolePermissionDto::getId).containsExactly(1L, 2L, 3L);
+    assertThat(users.get(0).getRoles()).hasSize(1);
+    assertThat(users.get(1).getRoles()).hasSize(2);
+    assertThat(users.get(1).getPermissions()).hasSize(2);
+    assertThat(users.get(2).getRoles()).isEmpty();
+  }
+
+  @Test
+  @Sql(
+      statements = {
+        "INSERT INTO wuan.role (id, code, name) VALUES (1, 'testRoleA', 'testRoleA')",
+        "INSERT INTO wuan.role (id, code, name) VALUES (2, 'testRoleB', 'testRoleB')",
+        "INSERT INTO wuan.role (id, code, name) VALUES (3, 'testRoleC', 'testRoleC')",
+        "INSERT INTO wuan.permission (id, code, name) VALUES (1, 'testPermissionA',"
+            + " 'testPermissionA')",
+        "INSERT INTO wuan.permission (id, code, name) VALUES (2, 'testPermissionB',"
+            + " 'testPermissionB')",
+        "INSERT INTO wuan.role_permission_map (id, role_id, permission_id) VALUES (1, 1, 1)",
+        "INSERT INTO wuan.role_permission_map (id, role_id, permission_id) VALUES (2, 1, 2)",
+        "INSERT INTO wuan.role_permission_map (id, role_id, permission_id) VALUES (3, 2, 2)",
+      })
+  void pageQueryRole_givenPageOfRoles_shouldExecuteTwoStatements() {
+    RoleQueryDto roleQueryDto = new RoleQueryDto();
+    roleQueryDto.setRoleName("testRole");
+    statementRecorder.reset();
+
+    PageResponseDto<List<RoleDto>> page =
+        userRolePermissionService.pageQueryRole(PageRequestDto.of(0, 10), roleQueryDto);
+
+    // 一条分页查询加一条IN列表联表查询,与页内行数无关
+    assertThat(statementRecorder.count()).isEqualTo(2);
+    assertThat(page.getTotal()).isEqualTo(3);
+    List<RoleDto> roles = page.getData();
+    assertThat(roles).extracting(RoleDto::getId).containsExactly(1L, 2L, 3L);
+    assertThat(roles.get(0).getPermissions())
+        .extracting(PermissionDto::getCode)
+        .containsExactly("testPermissionA", "testPermissionB");
+    assertThat(roles.get(1).getPermissions()).hasSize(1);
+    assertThat(roles.get(2).getPermissions()).isEmpty();
+  }
+
+  @Test
+  @Sql(
+      statements = {
+        "INSERT INTO wuan.permission (id, code, name) VALUES (1, 'testPermissionA',"
+            + " 'testPermissionA')",
+        "INSERT INTO wuan.permission (id, code, name) VALUES (2, 'testPermissionB',"
+            + " 'testPermissionB')",
+        "INSERT INTO wuan.permission (id, code, name) VALUES (3, 'testPermissionC',"
+            + " 'testPermissionC')",
+      })
+  void pageQueryPermission_givenTotalMode_shouldOnlyCountWhenRequired() {
+    PermissionQueryDto permissionQueryDto = new PermissionQueryDto();
+    permissionQueryDto.setPermissionIdList(List.of(1L, 2L, 3L));
+
+    PageRequestDto skipRequest = PageRequestDto.of(0, 2);
+    skipRequest.setTotalMode(PageRequestDto.TotalMode.SKIP);
+    statementRecorder.reset();
+    PageResponseDto<List<PermissionDto>> skipPage =
+        userRolePermissionService.pageQueryPermission(skipRequest, permissionQueryDto);
+    assertThat(statementRecorder.count()).isEqualTo(1);
+    assertThat(statementRecorder.getStatements().get(0)).doesNotContainIgnoringCase("over");
+    assertThat(skipPage.getTotal()).isEqualTo(2);
+
+    PageRequestDto estimatedRequest = PageRequestDto.of(0, 2);
+    estimatedRequest.setTotalMode(PageRequestDto.TotalMode.ESTIMATED);
+    statementRecorder.reset();
+    PageResponseDto<List<PermissionDto>> estimatedPage =
+        userRolePermissionService.pageQueryPermission(estimatedRequest, permissionQueryDto);
+    assertThat(statementRecorder.count()).isEqualTo(2);
+    assertThat(estimatedPage.getTotal()).isEqualTo(3);
+
+    // 计数缓存未过期时翻页只执行分页查询
+    PageRequestDto nextEstimatedRequest = PageRequestDto.of(1, 2);
+    nextEstimatedRequest.setTotalMode(PageRequestDto.TotalMode.ESTIMATED);
+    statementRecorder.reset();
+    PageResponseDto<List<PermissionDto>> nextEstimatedPage =
+        userRolePermissionService.pageQueryPermission(nextEstimatedRequest, permissionQueryDto);
+    assertThat(statementRecorder.count()).isEqualTo(1);
+    assertThat(nextEstimatedPage.getTotal()).isEqualTo(3);
+    assertThat(nextEstimatedPage.getData()).hasSize(1);
+  }
+}
@@ -0,0 +1,105 @@
+package dev.wuan.wuan.integration.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.dto.PageRequestDto;
+import dev.wuan.wuan.dto.SearchMode;
+import dev.wuan.wuan.dto.urp.UserQueryDto;
+import dev.wuan.wuan.repository.UserRepository;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 100万用户下用户名各查询方式的耗时对比
+ * 运行方式: ./gradlew benchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserSearchBenchmarkTest extends AbstractDataAccessLayerTest {
+
+  private static final int USER_COUNT = 1_000_000;
+
+  private static final int WARMUP_ROUNDS = 3;
+
+  private static final int MEASURE_ROUNDS = 10;
+
+  @Autowired private DSLContext dslContext;
+
+  @Autowired private UserRepository userRepository;
+
+  @BeforeAll
+  void insertUsers() {
+    // 用6个数字表笛卡尔积生成100万行,避免逐行插入
+    String digits =
+        "(SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4"
+            + " UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8"
+            + " UNION ALL SELECT 9)";
+    dslContext.execute(
+        "INSERT INTO wuan.user (username, password) "
+            + "SELECT CONCAT('user_', SUBSTRING(MD5(n), 1, 10), '_', n), 'benchmark' FROM ("
+            + "SELECT a.d + b.d * 10 + c.d * 100 + e.d * 1000 + f.d * 10000 + g.d * 100000 AS n"
+            + " FROM " + digits + " a CROSS JOIN " + digits + " b CROSS JOIN " + digits + " c"
+            + " CROSS JOIN " + digits + " e CROSS JOIN " + digits + " f CROSS JOIN " + digits
+            + " g) seq");
+    dslContext.execute("ANALYZE TABLE wuan.user");
+    assertThat(userRepository.count()).isGreaterThanOrEqualTo(USER_COUNT);
+  }
+
+  @AfterAll
+  void deleteUsers() {
+    dslContext.execute("DELETE FROM wuan.user WHERE password = 'benchmark'");
+  }
+
+  @Test
+  void compareUsernameSearchModes() {
+    // 取第一个用户名中间的子串与开头的前缀,保证每种方式都有命中
+    String sample =
+        dslContext.fetchValue(
+            "SELECT username FROM wuan.user WHERE password = 'benchmark' ORDER BY id LIMIT 1",
+            String.class);
+    String infix = sample.substring(5, 11);
+    String prefix = sample.substring(0, 11);
+
+    long containsMicros = measure(infix, SearchMode.CONTAINS);
+    long fulltextMicros = measure(infix, SearchMode.FULLTEXT);
+    long prefixMicros = measure(prefix, SearchMode.PREFIX);
+
+    log.info(
+        "username search over {} users, avg per page: CONTAINS {} us, FULLTEXT {} us, PREFIX {} us",
+        USER_COUNT,
+        containsMicros,
+        fulltextMicros,
+        prefixMicros);
+    assertThat(prefixMicros).isLessThan(containsMicros);
+    assertThat(fulltextMicros).isLessThan(containsMicros);
+  }
+
+  private long measure(String term, SearchMode searchMode) {
+    UserQueryDto userQueryDto = new UserQueryDto(term);
+    userQueryDto.setSearchMode(searchMode);
+    PageRequestDto pageRequestDto = PageRequestDto.of(0, 20);
+    pageRequestDto.setTotalMode(PageRequestDto.TotalMode.SKIP);
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      userRepository.pageFetchBy(pageRequestDto, userQueryDto);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURE_ROUNDS; i++) {
+      Result<Record> records = userRepository.pageFetchBy(pageRequestDto, userQueryDto);
+      assertThat(records).isNotEmpty();
+    }
+    return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / MEASURE_ROUNDS;
+  }
+}
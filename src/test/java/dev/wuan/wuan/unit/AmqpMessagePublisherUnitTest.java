@@ -0,0 +1,155 @@
+package dev.wuan.wuan.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import dev.wuan.wuan.component.AmqpMessagePublisher;
+import dev.wuan.wuan.dto.amqp.Message;
+import dev.wuan.wuan.exception.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class AmqpMessagePublisherUnitTest {
+
+  @Mock private RabbitTemplate rabbitTemplate;
+
+  @Mock private ConnectionFactory connectionFactory;
+
+  @Mock private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  /** 已发送消息的关联数据,由测试决定何时确认 */
+  private final List<CorrelationData> sent = new ArrayList<>();
+
+  private AmqpMessagePublisher publisher;
+
+  @BeforeEach
+  void setUp() {
+    when(meterRegistryProvider.getIfAvailable(any())).thenReturn(meterRegistry);
+    doAnswer(
+            invocation -> {
+              sent.add(invocation.getArgument(3));
+              return null;
+            })
+        .when(rabbitTemplate)
+        .convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+    publisher =
+        new AmqpMessagePublisher(
+            rabbitTemplate,
+            connectionFactory,
+            new Jackson2JsonMessageConverter(),
+            meterRegistryProvider,
+            100,
+            65536,
+            10,
+            2,
+            10,
+            5000);
+  }
+
+  @AfterEach
+  void tearDown() {
+    publisher.destroy();
+  }
+
+  @Test
+  void publish_whenBrokerAcks_shouldCompleteAndReleaseOutbox() throws Exception {
+    CompletableFuture<Void> confirm =
+        publisher.publish("exchange.direct.default", "baz.simple", testMessage());
+
+    assertThat(confirm).isNotDone();
+    assertThat(publisher.getPendingCount()).isEqualTo(1);
+    assertThat(sent.get(0).getId()).isNotBlank();
+
+    sent.get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+    confirm.get();
+    assertThat(publisher.getPendingCount()).isZero();
+    assertThat(meterRegistry.get("amqp.publisher.confirms").tag("result", "ack").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void publish_whenBrokerNacks_shouldCompleteExceptionally() {
+    CompletableFuture<Void> confirm =
+        publisher.publish("exchange.direct.default", "baz.simple", testMessage());
+
+    sent.get(0).getFuture().complete(new CorrelationData.Confirm(false, "queue full"));
+
+    assertThatThrownBy(confirm::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(AmqpException.class)
+        .hasMessageContaining("queue full");
+    assertThat(publisher.getPendingCount()).isZero();
+  }
+
+  @Test
+  void publish_whenOutboxFull_shouldRejectUntilConfirmed() throws Exception {
+    publisher.publish("exchange.direct.default", "baz.simple", testMessage());
+    publisher.publish("exchange.direct.default", "baz.simple", testMessage());
+
+    assertThatThrownBy(
+            () -> publisher.publish("exchange.direct.default", "baz.simple", testMessage()))
+        .isInstanceOf(BusinessException.class)
+        .hasMessage("publisher outbox is full");
+
+    sent.get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+    publisher.publish("exchange.direct.default", "baz.simple", testMessage());
+    assertThat(sent).hasSize(3);
+  }
+
+  @Test
+  void publishAll_shouldSendAllBeforeAnyConfirmAndWaitForAll() throws Exception {
+    CompletableFuture<Void> confirm =
+        publisher.publishAll(
+            "exchange.direct.default", "baz.work", List.of(testMessage(), testMessage()));
+
+    assertThat(sent).hasSize(2);
+    sent.get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+    assertThat(confirm).isNotDone();
+
+    sent.get(1).getFuture().complete(new CorrelationData.Confirm(true, null));
+    confirm.get();
+    assertThat(publisher.getPendingCount()).isZero();
+  }
+
+  @Test
+  void publishAll_whenBatchExceedsCapacity_shouldRejectWithoutSending() {
+    assertThatThrownBy(
+            () ->
+                publisher.publishAll(
+                    "exchange.direct.default",
+                    "baz.work",
+                    List.of(testMessage(), testMessage(), testMessage())))
+        .isInstanceOf(BusinessException.class);
+    assertThat(sent).isEmpty();
+  }
+
+  private Message testMessage() {
+    return new Message(23134L, "hgjuis0JgIUB");
+  }
+}
@@ -0,0 +1,154 @@
+package dev.wuan.wuan.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.wuan.wuan.component.AuthoritySnapshotCache;
+import dev.wuan.wuan.dto.urp.AuthoritySnapshot;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class AuthoritySnapshotCacheUnitTest {
+
+  @Mock private StringRedisTemplate stringRedisTemplate;
+
+  @Mock private ValueOperations<String, String> valueOperations;
+
+  @Mock private RedisMessageListenerContainer redisMessageListenerContainer;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private AuthoritySnapshotCache authoritySnapshotCache;
+
+  private final AuthoritySnapshot stubSnapshot =
+      new AuthoritySnapshot(1L, "test_7e2a91c0", true, Set.of("READ_USER_ROLE_PERMISSION"));
+
+  @BeforeEach
+  void setUp() {
+    when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    authoritySnapshotCache =
+        new AuthoritySnapshotCache(
+            stringRedisTemplate, objectMapper, redisMessageListenerContainer, 30, 100, 600);
+  }
+
+  @Test
+  void get_whenBothTierMissed_shouldLoadOnceAndWriteRedis() {
+    AtomicInteger loadCount = new AtomicInteger();
+    Function<Long, Optional<AuthoritySnapshot>> loader =
+        userId -> {
+          loadCount.incrementAndGet();
+          return Optional.of(stubSnapshot);
+        };
+
+    Optional<AuthoritySnapshot> first = authoritySnapshotCache.get(1L, loader);
+    Optional<AuthoritySnapshot> second = authoritySnapshotCache.get(1L, loader);
+
+    assertThat(first).contains(stubSnapshot);
+    assertThat(second).contains(stubSnapshot);
+    assertThat(loadCount.get()).isEqualTo(1);
+    verify(stringRedisTemplate, times(1))
+        .execute(
+            any(RedisScript.class),
+            eq(
+                List.of(
+                    AuthoritySnapshotCache.KEY_PREFIX + 1L,
+                    AuthoritySnapshotCache.VERSION_KEY_PREFIX + 1L)),
+            eq(""),
+            argThat((String json) -> !json.contains("password")),
+            eq("600000"));
+  }
+
+  @Test
+  void get_whenRedisMissed_shouldWriteBackWithVersionReadBeforeLoading() {
+    when(valueOperations.get(AuthoritySnapshotCache.VERSION_KEY_PREFIX + 1L)).thenReturn("v1");
+    AtomicInteger loadCount = new AtomicInteger();
+
+    authoritySnapshotCache.get(
+        1L,
+        userId -> {
+          loadCount.incrementAndGet();
+          // 加载期间其他事务提交并失效,版本已改变
+          when(valueOperations.get(AuthoritySnapshotCache.VERSION_KEY_PREFIX + 1L))
+              .thenReturn("v2");
+          return Optional.of(stubSnapshot);
+        });
+
+    assertThat(loadCount.get()).isEqualTo(1);
+    // 以加载前的版本条件写入,Redis中版本已变化时脚本拒绝写入
+    verify(stringRedisTemplate)
+        .execute(any(RedisScript.class), anyList(), eq("v1"), anyString(), anyString());
+    verify(valueOperations, never())
+        .set(eq(AuthoritySnapshotCache.KEY_PREFIX + 1L), anyString(), any(Duration.class));
+  }
+
+  @Test
+  void get_whenRedisHit_shouldNotCallLoader() throws Exception {
+    when(valueOperations.get(AuthoritySnapshotCache.KEY_PREFIX + 1L))
+        .thenReturn(objectMapper.writeValueAsString(stubSnapshot));
+
+    Optional<AuthoritySnapshot> snapshot =
+        authoritySnapshotCache.get(
+            1L,
+            userId -> {
+              throw new IllegalStateException("loader should not be called");
+            });
+
+    assertThat(snapshot).contains(stubSnapshot);
+  }
+
+  @Test
+  void get_whenUserNotFound_shouldNotCacheEmptyResult() {
+    AtomicInteger loadCount = new AtomicInteger();
+    Function<Long, Optional<AuthoritySnapshot>> loader =
+        userId -> {
+          loadCount.incrementAndGet();
+          return Optional.empty();
+        };
+
+    assertThat(authoritySnapshotCache.get(2L, loader)).isEmpty();
+    assertThat(authoritySnapshotCache.get(2L, loader)).isEmpty();
+    assertThat(loadCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  void evict_whenGrantChanged_shouldReloadAndNotifyOtherNodes() {
+    AtomicInteger loadCount = new AtomicInteger();
+    Function<Long, Optional<AuthoritySnapshot>> loader =
+        userId -> {
+          loadCount.incrementAndGet();
+          return Optional.of(stubSnapshot);
+        };
+    authoritySnapshotCache.get(1L, loader);
+
+    authoritySnapshotCache.evict(List.of(1L));
+    authoritySnapshotCache.get(1L, loader);
+
+    assertThat(loadCount.get()).isEqualTo(2);
+    verify(valueOperations)
+        .set(
+            eq(AuthoritySnapshotCache.VERSION_KEY_PREFIX + 1L),
+            anyString(),
+            eq(Duration.ofSeconds(600)));
+    verify(stringRedisTemplate).delete(List.of(AuthoritySnapshotCache.KEY_PREFIX + 1L));
+    verify(stringRedisTemplate).convertAndSend(AuthoritySnapshotCache.EVICT_CHANNEL, "1");
+  }
+}
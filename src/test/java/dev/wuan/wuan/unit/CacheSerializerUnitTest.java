@@ -0,0 +1,89 @@
+package dev.wuan.wuan.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.config.cache.CacheSerializer;
+import dev.wuan.wuan.config.cache.Lz4RedisSerializer;
+import dev.wuan.wuan.config.cache.SmileRedisSerializer;
+import dev.wuan.wuan.dto.urp.PermissionDto;
+import dev.wuan.wuan.dto.urp.RoleDto;
+import dev.wuan.wuan.dto.urp.UserRolePermissionDto;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+public class CacheSerializerUnitTest {
+
+  private final ClassLoader classLoader = getClass().getClassLoader();
+
+  @Test
+  void smile_givenUserGraph_shouldRestoreTypeAndWriteOnlyFields() {
+    UserRolePermissionDto user = buildUser(3, 5);
+    SmileRedisSerializer serializer = new SmileRedisSerializer(classLoader);
+
+    Object restored = serializer.deserialize(serializer.serialize(user));
+
+    assertThat(restored).isInstanceOf(UserRolePermissionDto.class).isEqualTo(user);
+    assertThat(((UserRolePermissionDto) restored).getPassword()).isEqualTo("5EUX1AIlV09n2o");
+    assertThat(((UserRolePermissionDto) restored).getRoles().get(0))
+        .isInstanceOf(RoleDto.class);
+  }
+
+  @Test
+  void smile_shouldBeSmallerThanJdk() {
+    UserRolePermissionDto user = buildUser(5, 20);
+
+    byte[] smile = CacheSerializer.SMILE.toSerializer(classLoader).serialize(user);
+    byte[] jdk = CacheSerializer.JDK.toSerializer(classLoader).serialize(user);
+
+    assertThat(smile.length).isLessThan(jdk.length);
+  }
+
+  @Test
+  void lz4_givenPayloadAboveThreshold_shouldCompressAndRestore() {
+    UserRolePermissionDto user = buildUser(10, 50);
+    RedisSerializer<Object> smile = new SmileRedisSerializer(classLoader);
+    Lz4RedisSerializer compressing = new Lz4RedisSerializer(smile, 256);
+
+    byte[] compressed = compressing.serialize(user);
+
+    assertThat(compressed.length).isLessThan(smile.serialize(user).length);
+    assertThat(compressing.deserialize(compressed)).isEqualTo(user);
+  }
+
+  @Test
+  void lz4_givenPayloadBelowThreshold_shouldStoreRawAndRestore() {
+    RoleDto role = new RoleDto(1L, "testRoleA", "testRoleA", new LinkedList<>());
+    Lz4RedisSerializer compressing =
+        new Lz4RedisSerializer(new SmileRedisSerializer(classLoader), 1024);
+
+    byte[] raw = compressing.serialize(role);
+
+    assertThat(raw[0]).isEqualTo((byte) 0);
+    assertThat(compressing.deserialize(raw)).isEqualTo(role);
+  }
+
+  private UserRolePermissionDto buildUser(int roleCount, int permissionCount) {
+    List<RoleDto> roles = new ArrayList<>();
+    for (long roleId = 1; roleId <= roleCount; roleId++) {
+      List<PermissionDto> permissions = new LinkedList<>();
+      for (long permissionId = 1; permissionId <= permissionCount; permissionId++) {
+        permissions.add(
+            new PermissionDto(
+                permissionId, "PERMISSION_CODE_" + permissionId, "permission " + permissionId));
+      }
+      roles.add(new RoleDto(roleId, "ROLE_CODE_" + roleId, "role " + roleId, permissions));
+    }
+    return new UserRolePermissionDto(
+        1L,
+        "testUserA",
+        "5EUX1AIlV09n2o",
+        true,
+        new LinkedList<>(roles),
+        OffsetDateTime.of(2024, 10, 1, 8, 30, 0, 0, ZoneOffset.UTC));
+  }
+}
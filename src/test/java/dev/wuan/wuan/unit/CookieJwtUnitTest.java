@@ -1,12 +1,27 @@
 package dev.wuan.wuan.unit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
 import dev.wuan.wuan.config.security.CookieJwt;
+import dev.wuan.wuan.config.security.JwtSigningKeys;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -41,4 +56,84 @@ public class CookieJwtUnitTest {
     Cookie cookie = cookieJwt.buildJwtCookiePojo(request, "1");
     assertThat(cookie.equals(stubCookie)).isTrue();
   }
+
+  @Test
+  void verifyToken_givenVerifiedTokenTwice_shouldHitCacheAndKeepSubject() {
+    JwtSigningKeys signingKeys = spy(JwtSigningKeys.hmac256("M3pIZlfyzkJ5Hi9OL"));
+    JWTVerifier verifier = spy(signingKeys.buildVerifier());
+    doReturn(verifier).when(signingKeys).buildVerifier();
+    CookieJwt cachedCookieJwt = new CookieJwt(signingKeys, 60, "jwtCookieName", 100);
+    String jwt = cachedCookieJwt.createJwt("1");
+
+    assertThat(cachedCookieJwt.verifyToken(jwt)).isTrue();
+    assertThat(cachedCookieJwt.verifyToken(jwt)).isTrue();
+    assertThat(cachedCookieJwt.getSubject(jwt)).isEqualTo("1");
+
+    // 第二次验证命中缓存,不再经过验证器
+    verify(verifier, times(1)).verify(jwt);
+  }
+
+  @Test
+  void verifyToken_givenTamperedToken_shouldReturnFalse() {
+    String jwt = cookieJwt.createJwt("1");
+    assertThat(cookieJwt.verifyToken(jwt)).isTrue();
+    String forged =
+        JWT.create()
+            .withSubject("2")
+            .withExpiresAt(Instant.now().plusSeconds(60))
+            .sign(Algorithm.HMAC256("another-secret"));
+    assertThat(cookieJwt.verifyToken(forged)).isFalse();
+  }
+
+  @Test
+  void verifyToken_givenExpiredToken_shouldReturnFalse() {
+    String expired =
+        JWT.create()
+            .withSubject("1")
+            .withExpiresAt(Instant.now().minusSeconds(1))
+            .sign(Algorithm.HMAC256("M3pIZlfyzkJ5Hi9OL"));
+    assertThat(cookieJwt.verifyToken(expired)).isFalse();
+  }
+
+  @Test
+  void verifyToken_givenEs256KeyRotated_shouldVerifyTokenSignedByRetiredKey() throws Exception {
+    KeyPair oldKeyPair = generateEcKeyPair();
+    KeyPair newKeyPair = generateEcKeyPair();
+    CookieJwt oldCookieJwt =
+        new CookieJwt(
+            JwtSigningKeys.ecdsa256(
+                "k1",
+                (ECPrivateKey) oldKeyPair.getPrivate(),
+                Map.of("k1", (ECPublicKey) oldKeyPair.getPublic())),
+            60,
+            "jwtCookieName",
+            100);
+    CookieJwt rotatedCookieJwt =
+        new CookieJwt(
+            JwtSigningKeys.ecdsa256(
+                "k2",
+                (ECPrivateKey) newKeyPair.getPrivate(),
+                Map.of(
+                    "k1", (ECPublicKey) oldKeyPair.getPublic(),
+                    "k2", (ECPublicKey) newKeyPair.getPublic())),
+            60,
+            "jwtCookieName",
+            100);
+
+    String oldJwt = oldCookieJwt.createJwt("1");
+    String newJwt = rotatedCookieJwt.createJwt("2");
+
+    assertThat(JWT.decode(oldJwt).getKeyId()).isEqualTo("k1");
+    assertThat(JWT.decode(newJwt).getKeyId()).isEqualTo("k2");
+    assertThat(rotatedCookieJwt.verifyToken(oldJwt)).isTrue();
+    assertThat(rotatedCookieJwt.getSubject(newJwt)).isEqualTo("2");
+    assertThat(oldCookieJwt.verifyToken(newJwt)).isFalse();
+    assertThat(rotatedCookieJwt.exportPublicKeys()).containsOnlyKeys("k1", "k2");
+  }
+
+  private static KeyPair generateEcKeyPair() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    return generator.generateKeyPair();
+  }
 }
@@ -0,0 +1,163 @@
+package dev.wuan.wuan.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import dev.wuan.wuan.config.security.CookieJwt;
+import dev.wuan.wuan.config.security.CookieJwtWebSocketInterceptor;
+import dev.wuan.wuan.config.security.CookieJwtWebSocketInterceptor.SessionAuthentication;
+import dev.wuan.wuan.config.security.UserDetailsServiceImpl;
+import jakarta.servlet.http.Cookie;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class CookieJwtWebSocketInterceptorUnitTest {
+
+  private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+  @Mock private UserDetailsServiceImpl userDetailsService;
+
+  @Mock private ServerHttpResponse response;
+
+  private CookieJwt cookieJwt;
+
+  private CookieJwtWebSocketInterceptor interceptor;
+
+  @BeforeEach
+  void setUp() {
+    cookieJwt = new CookieJwt("secret", 30, "jwt");
+    interceptor =
+        new CookieJwtWebSocketInterceptor(
+            cookieJwt, userDetailsService, Clock.fixed(NOW, ZoneOffset.UTC));
+    when(userDetailsService.loadUserByUsername(anyString()))
+        .thenAnswer(
+            invocation ->
+                new User(
+                    "user-" + invocation.getArgument(0),
+                    "",
+                    List.of(new SimpleGrantedAuthority("chat"))));
+  }
+
+  @Test
+  void beforeHandshake_withValidCookie_shouldCacheAuthenticationOnSession() {
+    Map<String, Object> attributes = new HashMap<>();
+
+    boolean accepted = interceptor.beforeHandshake(handshake("1"), response, null, attributes);
+
+    assertThat(accepted).isTrue();
+    SessionAuthentication cached =
+        (SessionAuthentication) attributes.get(CookieJwtWebSocketInterceptor.SESSION_AUTHENTICATION);
+    assertThat(cached.authentication().getName()).isEqualTo("user-1");
+    verify(userDetailsService, times(1)).loadUserByUsername("1");
+  }
+
+  @Test
+  void beforeHandshake_withoutCookie_shouldRejectWith401() {
+    Map<String, Object> attributes = new HashMap<>();
+
+    boolean accepted =
+        interceptor.beforeHandshake(
+            new ServletServerHttpRequest(new MockHttpServletRequest()), response, null, attributes);
+
+    assertThat(accepted).isFalse();
+    verify(response).setStatusCode(HttpStatus.UNAUTHORIZED);
+    assertThat(attributes).isEmpty();
+  }
+
+  @Test
+  void preSend_beforeExpiry_shouldUseCachedPrincipalWithoutLoadingUser() {
+    Map<String, Object> attributes = new HashMap<>();
+    interceptor.beforeHandshake(handshake("1"), response, null, attributes);
+
+    for (int i = 0; i < 100; i++) {
+      Message<?> message = interceptor.preSend(frame(StompCommand.SEND, attributes, null), null);
+      assertThat(StompHeaderAccessor.wrap(message).getUser().getName()).isEqualTo("user-1");
+    }
+
+    verify(userDetailsService, times(1)).loadUserByUsername(anyString());
+  }
+
+  @Test
+  void preSend_afterExpiryWithoutNewToken_shouldRejectFrame() {
+    Map<String, Object> attributes = expiredSession();
+
+    assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SEND, attributes, null), null))
+        .isInstanceOf(AccessDeniedException.class);
+  }
+
+  @Test
+  void preSend_afterExpiryWithNewToken_shouldReloadUserOnce() {
+    Map<String, Object> attributes = expiredSession();
+    String token = cookieJwt.createJwt("2");
+
+    interceptor.preSend(frame(StompCommand.SEND, attributes, token), null);
+    Message<?> message = interceptor.preSend(frame(StompCommand.SEND, attributes, null), null);
+
+    assertThat(StompHeaderAccessor.wrap(message).getUser().getName()).isEqualTo("user-2");
+    verify(userDetailsService, times(1)).loadUserByUsername("2");
+  }
+
+  @Test
+  void preSend_disconnectAfterExpiry_shouldPass() {
+    Map<String, Object> attributes = expiredSession();
+
+    Message<?> message = frame(StompCommand.DISCONNECT, attributes, null);
+
+    assertThat(interceptor.preSend(message, null)).isSameAs(message);
+  }
+
+  private Map<String, Object> expiredSession() {
+    Map<String, Object> attributes = new HashMap<>();
+    interceptor.beforeHandshake(handshake("1"), response, null, attributes);
+    SessionAuthentication cached =
+        (SessionAuthentication) attributes.get(CookieJwtWebSocketInterceptor.SESSION_AUTHENTICATION);
+    attributes.put(
+        CookieJwtWebSocketInterceptor.SESSION_AUTHENTICATION,
+        new SessionAuthentication(cached.authentication(), NOW));
+    return attributes;
+  }
+
+  private ServletServerHttpRequest handshake(String userId) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setCookies(new Cookie("jwt", cookieJwt.createJwt(userId)));
+    return new ServletServerHttpRequest(request);
+  }
+
+  private static Message<byte[]> frame(
+      StompCommand command, Map<String, Object> attributes, String token) {
+    StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+    accessor.setSessionId("session-1");
+    accessor.setSessionAttributes(attributes);
+    if (token != null) {
+      accessor.setNativeHeader("jwt", token);
+    }
+    accessor.setLeaveMutable(true);
+    return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+  }
+}
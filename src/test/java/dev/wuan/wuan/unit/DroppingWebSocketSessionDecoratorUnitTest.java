@@ -0,0 +1,115 @@
+package dev.wuan.wuan.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import dev.wuan.wuan.config.DroppingWebSocketSessionDecorator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class DroppingWebSocketSessionDecoratorUnitTest {
+
+  private static final TextMessage MESSAGE_FRAME =
+      new TextMessage("MESSAGE\ndestination:/topic/notice\n\n0123456789\u0000");
+
+  private static final TextMessage RECEIPT_FRAME =
+      new TextMessage("RECEIPT\nreceipt-id:1\n\n\u0000");
+
+  @Mock private WebSocketSession session;
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  private final Counter dropped = new SimpleMeterRegistry().counter("websocket.session.dropped");
+
+  /** 已写出到底层会话的消息 */
+  private final List<WebSocketMessage<?>> sent = new CopyOnWriteArrayList<>();
+
+  /** 释放前底层会话的写出一直阻塞,模拟慢客户端 */
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @BeforeEach
+  void setUp() throws Exception {
+    when(session.isOpen()).thenReturn(true);
+    when(session.getId()).thenReturn("session-1");
+    doAnswer(
+            invocation -> {
+              release.await(5, TimeUnit.SECONDS);
+              sent.add(invocation.getArgument(0));
+              return null;
+            })
+        .when(session)
+        .sendMessage(any());
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  void sendMessage_whenBufferIsFull_shouldDropMessageFramesOnly() throws Exception {
+    int frameSize = MESSAGE_FRAME.getPayloadLength();
+    DroppingWebSocketSessionDecorator decorator =
+        new DroppingWebSocketSessionDecorator(
+            session, executor, Duration.ofSeconds(10), frameSize * 2, dropped);
+
+    // 第一帧进入写出并阻塞,随后两帧填满缓冲
+    for (int i = 0; i < 3; i++) {
+      decorator.sendMessage(MESSAGE_FRAME);
+    }
+    decorator.sendMessage(MESSAGE_FRAME);
+    decorator.sendMessage(RECEIPT_FRAME);
+
+    assertThat(dropped.count()).isGreaterThanOrEqualTo(1.0);
+    release.countDown();
+    verify(session, timeout(5000).atLeast(2)).sendMessage(any());
+    await(() -> sent.contains(RECEIPT_FRAME));
+    assertThat(sent).last().isEqualTo(RECEIPT_FRAME);
+    verify(session, never()).close(any(CloseStatus.class));
+  }
+
+  @Test
+  void sendMessage_whenFlushExceedsSendTimeLimit_shouldCloseSession() throws Exception {
+    DroppingWebSocketSessionDecorator decorator =
+        new DroppingWebSocketSessionDecorator(
+            session, executor, Duration.ofMillis(50), 1024 * 1024, dropped);
+
+    decorator.sendMessage(MESSAGE_FRAME);
+    TimeUnit.MILLISECONDS.sleep(200);
+    decorator.sendMessage(MESSAGE_FRAME);
+
+    verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+  }
+
+  private static void await(java.util.function.BooleanSupplier condition)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertThat(condition.getAsBoolean()).isTrue();
+  }
+}
@@ -0,0 +1,96 @@
+package dev.wuan.wuan.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.wuan.wuan.config.cache.CacheSerializer;
+import dev.wuan.wuan.config.cache.LayeredCache;
+import dev.wuan.wuan.config.cache.LayeredCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+public class LayeredCacheUnitTest {
+
+  private final ConcurrentMapCache remoteCache = new ConcurrentMapCache("verifyCode", false);
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final List<String> publishedKeys = new ArrayList<>();
+
+  private LayeredCache layeredCache;
+
+  @BeforeEach
+  void setUp() {
+    layeredCache =
+        new LayeredCache(
+            "verifyCode",
+            new LayeredCacheProperties.Spec(
+                Duration.ofMinutes(1), 100L, Duration.ofMinutes(1), CacheSerializer.STRING, 0),
+            remoteCache,
+            (cacheName, key) -> publishedKeys.add(key),
+            meterRegistry);
+  }
+
+  @Test
+  void get_whenRemoteHit_shouldPopulateLocalAndCountPerTier() {
+    remoteCache.put("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216");
+
+    assertThat(layeredCache.get("WsxOtE0d6Vc1glZ", String.class)).isEqualTo("ej1x8T4XiluV8D216");
+    remoteCache.clear();
+    assertThat(layeredCache.get("WsxOtE0d6Vc1glZ", String.class)).isEqualTo("ej1x8T4XiluV8D216");
+
+    assertThat(count("local", "miss")).isEqualTo(1);
+    assertThat(count("remote", "hit")).isEqualTo(1);
+    assertThat(count("local", "hit")).isEqualTo(1);
+  }
+
+  @Test
+  void get_whenBothTierMissed_shouldLoadOnceAndWriteRemote() {
+    AtomicInteger loadCount = new AtomicInteger();
+
+    String first =
+        layeredCache.get("hNYcK0MDjX4197", () -> "Ll1v93jiXwHLji" + loadCount.incrementAndGet());
+    String second =
+        layeredCache.get("hNYcK0MDjX4197", () -> "Ll1v93jiXwHLji" + loadCount.incrementAndGet());
+
+    assertThat(first).isEqualTo("Ll1v93jiXwHLji1");
+    assertThat(second).isEqualTo(first);
+    assertThat(remoteCache.get("hNYcK0MDjX4197").get()).isEqualTo(first);
+    assertThat(meterRegistry.get("cache.layered.loads").tag("result", "success").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void put_evict_shouldPublishInvalidation() {
+    layeredCache.put("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216");
+    layeredCache.evict("WsxOtE0d6Vc1glZ");
+    layeredCache.clear();
+
+    assertThat(publishedKeys).containsExactly("WsxOtE0d6Vc1glZ", "WsxOtE0d6Vc1glZ", null);
+    assertThat(layeredCache.get("WsxOtE0d6Vc1glZ")).isNull();
+  }
+
+  @Test
+  void invalidateLocal_whenOtherNodeChanged_shouldReadRemoteAgain() {
+    layeredCache.put("WsxOtE0d6Vc1glZ", "ej1x8T4XiluV8D216");
+    remoteCache.put("WsxOtE0d6Vc1glZ", "updatedByOtherNode");
+
+    layeredCache.invalidateLocal(LayeredCache.toLocalKey("WsxOtE0d6Vc1glZ"));
+
+    assertThat(layeredCache.get("WsxOtE0d6Vc1glZ", String.class)).isEqualTo("updatedByOtherNode");
+  }
+
+  private double count(String tier, String result) {
+    return meterRegistry
+        .get("cache.layered.requests")
+        .tag("tier", tier)
+        .tag("result", result)
+        .counter()
+        .count();
+  }
+}
@@ -1,10 +1,17 @@
 package dev.wuan.wuan.unit;
 
+import static dev.wuan.wuan.repository.SEEK_SORTABLE_FIELDS;
 import static org.assertj.core.api.Assertions.*;
+import static org.jooq.generated.wuan.tables.User.USER;
 
 import dev.wuan.wuan.dto.PageRequestDto;
+import dev.wuan.wuan.exception.BusinessException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -67,4 +74,64 @@ public class PageRequestDtoUnitTest {
     assertThatThrownBy(() -> pageRequestDto.setSortBy(sortBy5))
         .isInstanceOf(IllegalArgumentException.class);
   }
+
+  @Test
+  void seekCursor_whenBuiltFromLastRecord_thenDecodeToTypedSeekValues() {
+    PageRequestDto pageRequestDto = new PageRequestDto();
+    pageRequestDto.setSortBy("username desc");
+    Record lastRecord =
+        DSL.using(SQLDialect.MYSQL).newRecord(USER.ID, USER.USERNAME).values(5L, "testE");
+
+    String cursor = pageRequestDto.buildNextCursor(SEEK_SORTABLE_FIELDS, USER.ID, lastRecord);
+    pageRequestDto.setCursor(cursor);
+
+    assertThat(pageRequestDto.getSeekSortFields(SEEK_SORTABLE_FIELDS, USER.ID))
+        .containsExactly(USER.USERNAME.desc(), USER.ID.asc());
+    assertThat(pageRequestDto.getSeekValues(SEEK_SORTABLE_FIELDS, USER.ID))
+        .containsExactly("testE", 5L);
+  }
+
+  @Test
+  void seekCursor_whenSortByChangedOrCursorMalformed_thenRaiseError() {
+    Map<String, PageRequestDto.Direction> sortBy = new LinkedHashMap<>();
+    sortBy.put("username", PageRequestDto.Direction.ASC);
+    PageRequestDto pageRequestDto = PageRequestDto.of(0, 10, sortBy);
+    Record lastRecord =
+        DSL.using(SQLDialect.MYSQL).newRecord(USER.ID, USER.USERNAME).values(5L, "testE");
+    String cursor = pageRequestDto.buildNextCursor(SEEK_SORTABLE_FIELDS, USER.ID, lastRecord);
+
+    PageRequestDto sortChanged = new PageRequestDto();
+    sortChanged.setSortBy("id desc");
+    sortChanged.setCursor(cursor);
+    assertThatThrownBy(() -> sortChanged.getSeekValues(SEEK_SORTABLE_FIELDS, USER.ID))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    PageRequestDto malformed = PageRequestDto.of(0, 10, sortBy);
+    malformed.setCursor("not-a-cursor");
+    assertThatThrownBy(() -> malformed.getSeekValues(SEEK_SORTABLE_FIELDS, USER.ID))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    PageRequestDto unknownField = new PageRequestDto();
+    unknownField.setSortBy("unknown asc");
+    assertThatThrownBy(() -> unknownField.getSeekSortFields(SEEK_SORTABLE_FIELDS, USER.ID))
+        .isInstanceOf(BusinessException.class);
+  }
+
+  @Test
+  void seekCursor_whenSortByColumnNotWhitelisted_thenRaiseError() {
+    PageRequestDto pageRequestDto = new PageRequestDto();
+    pageRequestDto.setSortBy("password asc");
+    Record lastRecord =
+        DSL.using(SQLDialect.MYSQL)
+            .newRecord(USER.ID, USER.PASSWORD)
+            .values(5L, "$2a$10$hashedPassword");
+
+    // 密码列不在白名单中,既不能排序也不会写入游标
+    assertThatThrownBy(() -> pageRequestDto.getSeekSortFields(SEEK_SORTABLE_FIELDS, USER.ID))
+        .isInstanceOf(BusinessException.class)
+        .hasMessageContaining("password");
+    assertThatThrownBy(
+            () -> pageRequestDto.buildNextCursor(SEEK_SORTABLE_FIELDS, USER.ID, lastRecord))
+        .isInstanceOf(BusinessException.class);
+  }
 }
@@ -0,0 +1,194 @@
+package dev.wuan.wuan.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import dev.wuan.wuan.config.cache.CacheSerializer;
+import dev.wuan.wuan.config.cache.LayeredCacheProperties;
+import dev.wuan.wuan.config.cache.RefreshAheadCache;
+import dev.wuan.wuan.config.cache.RefreshAheadCacheResolver;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.interceptor.BasicOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class RefreshAheadCacheUnitTest {
+
+  @Mock private StringRedisTemplate stringRedisTemplate;
+
+  @Mock private ValueOperations<String, String> valueOperations;
+
+  private final ConcurrentMapCache delegate = new ConcurrentMapCache("hotKey", false);
+
+  @BeforeEach
+  void setUp() {
+    when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenReturn(true);
+  }
+
+  @Test
+  void get_whenConcurrentMiss_shouldLoadOnce() throws Exception {
+    RefreshAheadCache cache = buildCache(Duration.ofMinutes(1), 0.8);
+    AtomicInteger loadCount = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(
+          executor.submit(
+              () -> {
+                start.await();
+                return cache.get(
+                    "WsxOtE0d6Vc1glZ",
+                    () -> {
+                      Thread.sleep(200);
+                      return "value" + loadCount.incrementAndGet();
+                    });
+              }));
+    }
+    start.countDown();
+    for (Future<String> result : results) {
+      assertThat(result.get()).isEqualTo("value1");
+    }
+    executor.shutdown();
+
+    assertThat(loadCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  void get_whenCloseToExpiry_shouldServeStaleValueAndRefresh() {
+    RefreshAheadCache cache = buildCache(Duration.ofMinutes(1), 0.0);
+    cache.get("WsxOtE0d6Vc1glZ", () -> "stale");
+
+    String served = cache.get("WsxOtE0d6Vc1glZ", () -> "fresh");
+
+    assertThat(served).isEqualTo("stale");
+    assertThat(delegate.get("WsxOtE0d6Vc1glZ").get()).isEqualTo("fresh");
+  }
+
+  @Test
+  void get_whenFirstSeenLateInTtl_shouldRefreshFromRedisWriteTime() {
+    RefreshAheadCache cache = buildCache(Duration.ofMinutes(1), 0.8);
+    // 其他节点55秒前写入,本节点首次读取时已超过刷新时间点
+    delegate.put("WsxOtE0d6Vc1glZ", "writtenByOtherNode");
+    when(valueOperations.get(RefreshAheadCache.WRITTEN_KEY_PREFIX + "hotKey:WsxOtE0d6Vc1glZ"))
+        .thenReturn(String.valueOf(System.currentTimeMillis() - 55_000));
+
+    String served = cache.get("WsxOtE0d6Vc1glZ", () -> "fresh");
+
+    assertThat(served).isEqualTo("writtenByOtherNode");
+    assertThat(delegate.get("WsxOtE0d6Vc1glZ").get()).isEqualTo("fresh");
+    verify(valueOperations)
+        .set(
+            eq(RefreshAheadCache.WRITTEN_KEY_PREFIX + "hotKey:WsxOtE0d6Vc1glZ"),
+            anyString(),
+            eq(Duration.ofMinutes(1)));
+  }
+
+  @Test
+  void get_whenRecentlyWrittenByOtherNode_shouldNotRefresh() {
+    RefreshAheadCache cache = buildCache(Duration.ofMinutes(1), 0.8);
+    delegate.put("WsxOtE0d6Vc1glZ", "writtenByOtherNode");
+    when(valueOperations.get(RefreshAheadCache.WRITTEN_KEY_PREFIX + "hotKey:WsxOtE0d6Vc1glZ"))
+        .thenReturn(String.valueOf(System.currentTimeMillis() - 5_000));
+
+    String served =
+        cache.get(
+            "WsxOtE0d6Vc1glZ",
+            () -> {
+              throw new IllegalStateException("loader should not be called");
+            });
+
+    assertThat(served).isEqualTo("writtenByOtherNode");
+    assertThat(delegate.get("WsxOtE0d6Vc1glZ").get()).isEqualTo("writtenByOtherNode");
+  }
+
+  @Test
+  void get_whenLeaseHeldByOtherNode_shouldWaitForItsValue() {
+    RefreshAheadCache cache = buildCache(Duration.ofMinutes(1), 0.8);
+    when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+        .thenAnswer(
+            invocation -> {
+              delegate.put("WsxOtE0d6Vc1glZ", "loadedByOtherNode");
+              return false;
+            });
+
+    String value =
+        cache.get(
+            "WsxOtE0d6Vc1glZ",
+            () -> {
+              throw new IllegalStateException("loader should not be called");
+            });
+
+    assertThat(value).isEqualTo("loadedByOtherNode");
+  }
+
+  @Test
+  void resolveCaches_whenEvictInTransaction_shouldEvictAfterCommit() {
+    CacheManager cacheManager = mock(CacheManager.class);
+    when(cacheManager.getCache("hotKey")).thenReturn(delegate);
+    BasicOperation operation = mock(BasicOperation.class);
+    when(operation.getCacheNames()).thenReturn(Set.of("hotKey"));
+    CacheOperationInvocationContext<BasicOperation> context =
+        mock(CacheOperationInvocationContext.class);
+    when(context.getOperation()).thenReturn(operation);
+    Cache cache =
+        new RefreshAheadCacheResolver(
+                cacheManager, stringRedisTemplate, Runnable::run, new LayeredCacheProperties())
+            .resolveCaches(context)
+            .iterator()
+            .next();
+    delegate.put("WsxOtE0d6Vc1glZ", "old");
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      cache.evict("WsxOtE0d6Vc1glZ");
+      // 提交前不失效,避免并发读取在提交前重新加载旧值
+      assertThat(delegate.get("WsxOtE0d6Vc1glZ")).isNotNull();
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertThat(delegate.get("WsxOtE0d6Vc1glZ")).isNull();
+  }
+
+  private RefreshAheadCache buildCache(Duration remoteTtl, double ratio) {
+    LayeredCacheProperties.RefreshAhead refreshAhead = new LayeredCacheProperties.RefreshAhead();
+    refreshAhead.setRatio(ratio);
+    refreshAhead.setLeaseTtl(Duration.ofSeconds(2));
+    return new RefreshAheadCache(
+        delegate,
+        stringRedisTemplate,
+        Runnable::run,
+        new LayeredCacheProperties.Spec(
+            Duration.ofSeconds(10), 100L, remoteTtl, CacheSerializer.SMILE, 0),
+        refreshAhead);
+  }
+}
@@ -0,0 +1,98 @@
+package dev.wuan.wuan.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import dev.wuan.wuan.config.AmqpConfig;
+import dev.wuan.wuan.config.RetryTierRecoverer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class RetryTierRecovererUnitTest {
+
+  private static final String QUEUE = "queue.work.default";
+
+  @Mock private RabbitTemplate rabbitTemplate;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private RetryTierRecoverer recoverer;
+
+  @BeforeEach
+  void setUp() {
+    recoverer = new RetryTierRecoverer(rabbitTemplate, 2, meterRegistry);
+  }
+
+  @Test
+  void recover_shouldSendFirstFailureToFirstRetryTier() {
+    Message message = message(null);
+
+    recoverer.recover(message, new IllegalStateException("boom"));
+
+    ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+    verify(rabbitTemplate).send(eq(AmqpConfig.RETRY_EXCHANGE), eq(QUEUE), captor.capture());
+    MessageProperties properties = captor.getValue().getMessageProperties();
+    assertThat((Object) properties.getHeader(RetryTierRecoverer.HEADER_RETRY_TIER)).isEqualTo(1);
+    assertThat((Object) properties.getHeader(RetryTierRecoverer.HEADER_LAST_EXCEPTION))
+        .isEqualTo("boom");
+    assertThat(
+            meterRegistry
+                .counter("amqp.listener.retries", "queue", QUEUE, "tier", "1")
+                .count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void recover_shouldAdvanceTierOfRetriedMessage() {
+    recoverer.recover(message(1L), new IllegalStateException("boom"));
+
+    ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+    verify(rabbitTemplate).send(eq(AmqpConfig.RETRY_EXCHANGE), eq(QUEUE), captor.capture());
+    assertThat(
+            (Object) captor.getValue().getMessageProperties()
+                .getHeader(RetryTierRecoverer.HEADER_RETRY_TIER))
+        .isEqualTo(2);
+  }
+
+  @Test
+  void recover_shouldParkMessageWhenTiersAreExhausted() {
+    recoverer.recover(message(2), new IllegalStateException("boom"));
+
+    verify(rabbitTemplate).send(eq(AmqpConfig.DEAD_LETTER_EXCHANGE), eq(QUEUE), any(Message.class));
+    verify(rabbitTemplate, never())
+        .send(eq(AmqpConfig.RETRY_EXCHANGE), anyString(), any(Message.class));
+    assertThat(meterRegistry.counter("amqp.listener.parked", "queue", QUEUE).count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void recoverBatch_shouldRouteEachMessageByItsOwnTier() {
+    recoverer.recover(List.of(message(null), message(2)), new IllegalStateException("boom"));
+
+    verify(rabbitTemplate).send(eq(AmqpConfig.RETRY_EXCHANGE), eq(QUEUE), any(Message.class));
+    verify(rabbitTemplate).send(eq(AmqpConfig.DEAD_LETTER_EXCHANGE), eq(QUEUE), any(Message.class));
+  }
+
+  private static Message message(Object tier) {
+    MessageProperties properties = new MessageProperties();
+    properties.setConsumerQueue(QUEUE);
+    if (tier != null) {
+      properties.setHeader(RetryTierRecoverer.HEADER_RETRY_TIER, tier);
+    }
+    return new Message("{}".getBytes(), properties);
+  }
+}
@@ -4,26 +4,36 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
+import dev.wuan.wuan.dto.sign.BulkSignUpResultDto;
 import dev.wuan.wuan.dto.sign.SignInDto;
 import dev.wuan.wuan.dto.sign.SignUpDto;
 import dev.wuan.wuan.exception.BusinessException;
+import dev.wuan.wuan.model.outbox.EDomainEvent;
 import dev.wuan.wuan.model.urp.ERole;
+import dev.wuan.wuan.repository.RoleRepository;
 import dev.wuan.wuan.repository.UserRepository;
+import dev.wuan.wuan.repository.UserRoleMapRepository;
+import dev.wuan.wuan.service.OutboxService;
 import dev.wuan.wuan.service.SignService;
 import dev.wuan.wuan.service.UserRolePermissionService;
 import java.util.List;
+import java.util.Map;
+import org.jooq.generated.wuan.tables.pojos.Role;
 import org.jooq.generated.wuan.tables.pojos.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
-import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 public class SignUnitTest {
-  @InjectMocks @Spy private SignService signService;
+  private SignService signService;
 
   @Mock private UserRepository userRepository;
 
@@ -31,6 +41,40 @@ public class SignUnitTest {
 
   @Mock private UserRolePermissionService userRolePermissionService;
 
+  @Mock private RoleRepository roleRepository;
+
+  @Mock private UserRoleMapRepository userRoleMapRepository;
+
+  @Mock private OutboxService outboxService;
+
+  @Mock private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  void setUp() {
+    signService =
+        spy(
+            new SignService(
+                userRepository,
+                passwordEncoder,
+                userRolePermissionService,
+                roleRepository,
+                userRoleMapRepository,
+                outboxService,
+                transactionTemplate,
+                2,
+                16));
+    lenient()
+        .when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+  }
+
+  @AfterEach
+  void tearDown() {
+    signService.destroy();
+  }
+
   @Test
   void signIn_givenValidSignInfo_shouldReturnUserId() {
     // arrange
@@ -99,5 +143,120 @@ public class SignUnitTest {
     verify(userRepository, times(1)).insert(stubUser);
     verify(userRolePermissionService, times(1))
         .bindRoleModuleToUser(insertUser.getId(), List.of(ERole.GENERAL));
+    verify(outboxService, times(1))
+        .append(EDomainEvent.USER_SIGNED_UP, 1L, Map.of("username", "newUser"));
+  }
+
+  @Test
+  void signUpBulk_givenNewAndExistUsers_shouldInsertOnceAndBindRoleOnce() {
+    User existUser = new User();
+    existUser.setId(9L);
+    existUser.setUsername("existUser");
+    Role generalRole = new Role();
+    generalRole.setId(3L);
+    generalRole.setCode(ERole.GENERAL.name());
+    when(userRepository.fetchByUsername(any(String[].class))).thenReturn(List.of(existUser));
+    when(roleRepository.selectByRoleCodeIn(List.of(ERole.GENERAL.name())))
+        .thenReturn(List.of(generalRole));
+    when(passwordEncoder.encode(any()))
+        .thenAnswer(invocation -> "encoded" + invocation.getArgument(0));
+    when(userRepository.insertReturningId(anyList())).thenReturn(List.of(10L, 11L));
+
+    BulkSignUpResultDto result =
+        signService.signUpBulk(
+            List.of(
+                new SignUpDto("newUserA", "B0pjKYnIK67hz4"),
+                new SignUpDto("existUser", "GjFH2fzRB2y7DDrO"),
+                new SignUpDto("newUserB", "NTjRCeUq2EqCy"),
+                new SignUpDto("newUserA", "Qm3Zr8sLw2aVx")));
+
+    assertThat(result.getCreatedUserIdList()).containsExactly(10L, 11L);
+    assertThat(result.getSkippedUsernameList()).containsExactlyInAnyOrder("newUserA", "existUser");
+    verify(userRepository, times(1))
+        .insertReturningId(
+            argThat(
+                users ->
+                    users.stream()
+                            .map(User::getUsername)
+                            .toList()
+                            .equals(List.of("newUserA", "newUserB"))
+                        && users.get(0).getPassword().equals("encodedB0pjKYnIK67hz4")));
+    verify(userRoleMapRepository, times(1)).insertUserIdIn(3L, List.of(10L, 11L));
+    verify(userRolePermissionService, times(0)).bindRoleModuleToUser(anyLong(), anyList());
+    verify(outboxService, times(1))
+        .appendAll(
+            EDomainEvent.USER_SIGNED_UP,
+            Map.of(10L, Map.of("username", "newUserA"), 11L, Map.of("username", "newUserB")));
+  }
+
+  @Test
+  void signUpBulk_givenNewUsers_shouldEncodeBeforeOpeningTransaction() {
+    Role generalRole = new Role();
+    generalRole.setId(3L);
+    when(userRepository.fetchByUsername(any(String[].class))).thenReturn(List.of());
+    when(roleRepository.selectByRoleCodeIn(List.of(ERole.GENERAL.name())))
+        .thenReturn(List.of(generalRole));
+    when(passwordEncoder.encode(any()))
+        .thenAnswer(invocation -> "encoded" + invocation.getArgument(0));
+    when(userRepository.insertReturningId(anyList())).thenReturn(List.of(10L, 11L, 12L));
+
+    BulkSignUpResultDto result =
+        signService.signUpBulk(
+            List.of(
+                new SignUpDto("newUserA", "B0pjKYnIK67hz4"),
+                new SignUpDto("newUserB", "NTjRCeUq2EqCy"),
+                new SignUpDto("newUserC", "Qm3Zr8sLw2aVx")));
+
+    assertThat(result.getCreatedUserIdList()).containsExactly(10L, 11L, 12L);
+    InOrder inOrder = inOrder(passwordEncoder, transactionTemplate, userRepository);
+    inOrder.verify(passwordEncoder, times(3)).encode(any());
+    inOrder.verify(transactionTemplate).execute(any());
+    inOrder.verify(userRepository).insertReturningId(anyList());
+  }
+
+  @Test
+  void signUpBulk_givenUsernameTakenWhileEncoding_shouldSkipInTransaction() {
+    User concurrentUser = new User();
+    concurrentUser.setUsername("newUserB");
+    Role generalRole = new Role();
+    generalRole.setId(3L);
+    when(userRepository.fetchByUsername(any(String[].class)))
+        .thenReturn(List.of())
+        .thenReturn(List.of(concurrentUser));
+    when(roleRepository.selectByRoleCodeIn(List.of(ERole.GENERAL.name())))
+        .thenReturn(List.of(generalRole));
+    when(passwordEncoder.encode(any()))
+        .thenAnswer(invocation -> "encoded" + invocation.getArgument(0));
+    when(userRepository.insertReturningId(anyList())).thenReturn(List.of(10L));
+
+    BulkSignUpResultDto result =
+        signService.signUpBulk(
+            List.of(
+                new SignUpDto("newUserA", "B0pjKYnIK67hz4"),
+                new SignUpDto("newUserB", "NTjRCeUq2EqCy")));
+
+    assertThat(result.getCreatedUserIdList()).containsExactly(10L);
+    assertThat(result.getSkippedUsernameList()).containsExactly("newUserB");
+    verify(userRepository, times(1))
+        .insertReturningId(
+            argThat(
+                users ->
+                    users.stream().map(User::getUsername).toList().equals(List.of("newUserA"))));
+  }
+
+  @Test
+  void signUpBulk_givenAllExistUsers_shouldNotInsert() {
+    User existUser = new User();
+    existUser.setId(9L);
+    existUser.setUsername("existUser");
+    when(userRepository.fetchByUsername(any(String[].class))).thenReturn(List.of(existUser));
+
+    BulkSignUpResultDto result =
+        signService.signUpBulk(List.of(new SignUpDto("existUser", "GjFH2fzRB2y7DDrO")));
+
+    assertThat(result.getCreatedUserIdList()).isEmpty();
+    assertThat(result.getSkippedUsernameList()).containsExactly("existUser");
+    verify(userRepository, times(0)).insertReturningId(anyList());
+    verify(userRoleMapRepository, times(0)).insertUserIdIn(anyLong(), anyList());
   }
 }
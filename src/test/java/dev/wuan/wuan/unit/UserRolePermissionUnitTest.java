@@ -9,15 +9,21 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.verify;
 
+import dev.wuan.wuan.component.AuthoritySnapshotCache;
+import dev.wuan.wuan.component.PageTotalEstimator;
 import dev.wuan.wuan.dto.PageRequestDto;
 import dev.wuan.wuan.dto.PageResponseDto;
 import dev.wuan.wuan.dto.urp.*;
 import dev.wuan.wuan.exception.BusinessException;
+import dev.wuan.wuan.model.outbox.EAggregate;
+import dev.wuan.wuan.model.outbox.EDomainEvent;
 import dev.wuan.wuan.repository.*;
+import dev.wuan.wuan.service.OutboxService;
 import dev.wuan.wuan.service.UserRolePermissionService;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.jooq.DSLContext;
 import org.jooq.Record;
@@ -35,6 +41,7 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -51,6 +58,12 @@ class UserRolePermissionUnitTest {
   @Mock private UserRoleMapRepository userRoleMapRepository;
   @Mock private PermissionRepository permissionRepository;
   @Mock private RolePermissionMapRepository rolePermissionMapRepository;
+  @Mock private AuthoritySnapshotCache authoritySnapshotCache;
+  @Mock private PageTotalEstimator pageTotalEstimator;
+
+  @Mock private OutboxService outboxService;
+
+  @Mock private OutboxEventRepository outboxEventRepository;
 
   private static DSLContext dslContext;
 
@@ -136,14 +149,10 @@ class UserRolePermissionUnitTest {
     mockUserRolePermissionDto2.setUsername(stubUserName2);
     mockUserRolePermissionDto2.setPassword(stubUserPassword2);
 
-    doReturn(Optional.of(mockUserRolePermissionDto1))
-        .when(userRolePermissionService)
-        .queryUniqueUserWithRolePermission(stubUserId1);
-    //    when(rbacService.queryUniqueUserWithDetail(stubUserId1))
-    //        .thenReturn(Optional.of(mockUserRolePermissionDto1));
-    doReturn(Optional.of(mockUserRolePermissionDto2))
-        .when(userRolePermissionService)
-        .queryUniqueUserWithRolePermission(stubUserId2);
+    // 批量查询结果顺序与分页顺序不一致,服务需按分页顺序重新组装
+    when(userRepository.fetchUserDtoWithNestedRolePermissionByIdIn(
+            List.of(stubUserId1, stubUserId2)))
+        .thenReturn(List.of(mockUserRolePermissionDto2, mockUserRolePermissionDto1));
     when(userRepository.pageFetchBy(any(PageRequestDto.class), any(UserQueryDto.class)))
         .thenReturn(mockResult);
 
@@ -163,6 +172,8 @@ class UserRolePermissionUnitTest {
         .isEqualTo(stubRoleName);
     assertThat(userRolePermissionDtoList.get(0).getRoles().get(0).getPermissions().get(0).getCode())
         .isEqualTo(stubPermissionCode);
+    verify(userRepository, times(1)).fetchUserDtoWithNestedRolePermissionByIdIn(anyList());
+    verify(userRepository, never()).fetchUniqueUserDtoWithNestedRolePermissionBy(anyLong());
   }
 
   @Test
@@ -271,26 +282,31 @@ class UserRolePermissionUnitTest {
     when(roleRepository.pageFetchBy(any(PageRequestDto.class), any(RoleQueryDto.class)))
         .thenReturn(mockRoleResult);
 
-    RoleDto mockRoleDto1 = new RoleDto();
-    mockRoleDto1.setId(1L);
-    mockRoleDto1.setName("ghe41YG2FSbc");
-    mockRoleDto1.setCode("ghe41YG2FSbc");
-    mockRoleDto1
-        .getPermissions()
-        .addAll(
-            List.of(
-                new PermissionDto(1L, "4QBYM93jI5c3jxuZW", "4QBYM93jI5c3jxuZW"),
-                new PermissionDto(2L, "r0he6iMMHBze", "r0he6iMMHBze")));
-    RoleDto mockRoleDto2 = new RoleDto();
-    mockRoleDto2.setId(2L);
-    mockRoleDto2.setName("AfRcdGk0zc15Lz2F");
-    mockRoleDto2.setCode("AfRcdGk0zc15Lz2F");
-    doReturn(Optional.of(mockRoleDto1))
-        .when(userRolePermissionService)
-        .queryUniqueRoleWithPermission(1L);
-    doReturn(Optional.of(mockRoleDto2))
-        .when(userRolePermissionService)
-        .queryUniqueRoleWithPermission(2L);
+    Result<Record> mockRoleWithPermissionResult =
+        dslContext.newResult(
+            List.of(ROLE.ID, ROLE.NAME, ROLE.CODE, PERMISSION.ID, PERMISSION.NAME, PERMISSION.CODE));
+    mockRoleWithPermissionResult.addAll(
+        List.of(
+            dslContext
+                .newRecord(
+                    ROLE.ID, ROLE.NAME, ROLE.CODE, PERMISSION.ID, PERMISSION.NAME, PERMISSION.CODE)
+                .values(
+                    1L,
+                    "ghe41YG2FSbc",
+                    "ghe41YG2FSbc",
+                    1L,
+                    "4QBYM93jI5c3jxuZW",
+                    "4QBYM93jI5c3jxuZW"),
+            dslContext
+                .newRecord(
+                    ROLE.ID, ROLE.NAME, ROLE.CODE, PERMISSION.ID, PERMISSION.NAME, PERMISSION.CODE)
+                .values(1L, "ghe41YG2FSbc", "ghe41YG2FSbc", 2L, "r0he6iMMHBze", "r0he6iMMHBze"),
+            dslContext
+                .newRecord(
+                    ROLE.ID, ROLE.NAME, ROLE.CODE, PERMISSION.ID, PERMISSION.NAME, PERMISSION.CODE)
+                .values(2L, "AfRcdGk0zc15Lz2F", "AfRcdGk0zc15Lz2F", null, null, null)));
+    when(roleRepository.fetchRoleWithPermissionByRoleIdIn(List.of(1L, 2L)))
+        .thenReturn(mockRoleWithPermissionResult);
 
     // action & assert
     RoleQueryDto roleQueryDto = new RoleQueryDto();
@@ -304,7 +320,9 @@ class UserRolePermissionUnitTest {
     assertThat(roleResult.get(0).getId()).isEqualTo(1L);
     assertThat(roleResult.get(1).getId()).isEqualTo(2L);
     assertThat(roleResult.get(0).getPermissions().get(0).getId()).isEqualTo(1L);
+    assertThat(roleResult.get(0).getPermissions().get(1).getId()).isEqualTo(2L);
     assertThat(roleResult.get(1).getPermissions().size()).isEqualTo(0L);
+    verify(roleRepository, never()).fetchUniqueRoleWithPermission(anyLong());
   }
 
   @Test
@@ -374,6 +392,39 @@ class UserRolePermissionUnitTest {
     assertThat(permissionResult.get(1).getId()).isEqualTo(2L);
   }
 
+  @Test
+  void pageQueryPermission_givenSkipOrEstimatedTotalMode_shouldNotReadWindowCount() {
+    Result<Record> mockPermissionResult =
+        dslContext.newResult(List.of(PERMISSION.ID, PERMISSION.NAME, PERMISSION.CODE));
+    mockPermissionResult.addAll(
+        List.of(
+            dslContext
+                .newRecord(PERMISSION.ID, PERMISSION.NAME, PERMISSION.CODE)
+                .values(11L, "vP0dKiHJpMsi", "vP0dKiHJpMsi"),
+            dslContext
+                .newRecord(PERMISSION.ID, PERMISSION.NAME, PERMISSION.CODE)
+                .values(12L, "NHQED41jQQ4C1IgG", "NHQED41jQQ4C1IgG")));
+    when(permissionRepository.pageFetchBy(any(PageRequestDto.class), any(PermissionQueryDto.class)))
+        .thenReturn(mockPermissionResult);
+
+    PageRequestDto skipRequest = PageRequestDto.of(2, 5);
+    skipRequest.setTotalMode(PageRequestDto.TotalMode.SKIP);
+    PageResponseDto<List<PermissionDto>> skipResult =
+        userRolePermissionService.pageQueryPermission(skipRequest, new PermissionQueryDto());
+    assertThat(skipResult.getTotalMode()).isEqualTo(PageRequestDto.TotalMode.SKIP);
+    assertThat(skipResult.getTotal()).isEqualTo(12L);
+    verify(pageTotalEstimator, never()).estimate(anyString(), any());
+
+    when(pageTotalEstimator.estimate(anyString(), any())).thenReturn(100L);
+    PageRequestDto estimatedRequest = PageRequestDto.of(2, 5);
+    estimatedRequest.setTotalMode(PageRequestDto.TotalMode.ESTIMATED);
+    PageResponseDto<List<PermissionDto>> estimatedResult =
+        userRolePermissionService.pageQueryPermission(estimatedRequest, new PermissionQueryDto());
+    assertThat(estimatedResult.getTotalMode()).isEqualTo(PageRequestDto.TotalMode.ESTIMATED);
+    assertThat(estimatedResult.getTotal()).isEqualTo(100L);
+    assertThat(estimatedResult.getData().size()).isEqualTo(2);
+  }
+
   @Test
   void pageQueryPermission_permissionNotFound_shouldReturnEmpty() {
     Result<Record> mockRoleResult =
@@ -404,14 +455,70 @@ class UserRolePermissionUnitTest {
     stubRole.setId(1L);
     stubRole.setCode("rfX60vSEwfYyMuu");
     stubRole.setName("wl5xx78tqlIZo3JE");
+
+    when(roleRepository.selectByRoleIdIn(anyList())).thenReturn(List.of(stubRole));
+    BindingDelta delta =
+        userRolePermissionService.bindRoleToUser(stubUserId, List.of(stubRole.getId()));
+    assertThat(delta.added()).containsExactly(1L);
+    assertThat(delta.removed()).isEmpty();
+    verify(userRoleMapRepository, times(1)).deleteByUserIdAndRoleIdIn(stubUserId, List.of());
+    verify(userRoleMapRepository, times(1)).insertRoleIdIn(stubUserId, List.of(1L));
+    verify(authoritySnapshotCache, times(1)).evict(List.of(stubUserId));
+  }
+
+  @Test
+  void bindRoleToUser_givenChangedRoleIdList_shouldOnlyApplyDelta() {
+    Long stubUserId = 1L;
+    Role stubRole2 = new Role();
+    stubRole2.setId(2L);
+    Role stubRole3 = new Role();
+    stubRole3.setId(3L);
+    UserRoleMap userRoleMap1 = new UserRoleMap();
+    userRoleMap1.setUserId(stubUserId);
+    userRoleMap1.setRoleId(1L);
+    UserRoleMap userRoleMap2 = new UserRoleMap();
+    userRoleMap2.setUserId(stubUserId);
+    userRoleMap2.setRoleId(2L);
+
+    when(roleRepository.selectByRoleIdIn(anyList())).thenReturn(List.of(stubRole2, stubRole3));
+    when(userRoleMapRepository.fetchByUserId(stubUserId))
+        .thenReturn(List.of(userRoleMap1, userRoleMap2));
+    BindingDelta delta = userRolePermissionService.bindRoleToUser(stubUserId, List.of(2L, 3L));
+
+    assertThat(delta.added()).containsExactly(3L);
+    assertThat(delta.removed()).containsExactly(1L);
+    // 先锁定用户行再读取现有映射
+    InOrder inOrder = inOrder(outboxEventRepository, userRoleMapRepository);
+    inOrder.verify(outboxEventRepository).lockAggregate(EAggregate.USER, List.of(stubUserId));
+    inOrder.verify(userRoleMapRepository).fetchByUserId(stubUserId);
+    verify(userRoleMapRepository, times(1)).deleteByUserIdAndRoleIdIn(stubUserId, List.of(1L));
+    verify(userRoleMapRepository, times(1)).insertRoleIdIn(stubUserId, List.of(3L));
+    verify(userRoleMapRepository, times(0)).deleteByUserId(anyLong());
+    verify(outboxService, times(1))
+        .append(
+            EDomainEvent.USER_ROLES_CHANGED,
+            stubUserId,
+            Map.of("added", List.of(3L), "removed", List.of(1L)));
+  }
+
+  @Test
+  void bindRoleToUser_givenUnchangedRoleIdList_shouldNotWriteOrEvict() {
+    Long stubUserId = 1L;
+    Role stubRole = new Role();
+    stubRole.setId(1L);
     UserRoleMap userRoleMap = new UserRoleMap();
     userRoleMap.setUserId(stubUserId);
-    userRoleMap.setRoleId(stubRole.getId());
+    userRoleMap.setRoleId(1L);
 
     when(roleRepository.selectByRoleIdIn(anyList())).thenReturn(List.of(stubRole));
-    userRolePermissionService.bindRoleToUser(stubUserId, List.of(stubRole.getId()));
-    verify(userRoleMapRepository, times(1)).deleteByUserId(anyLong());
-    verify(userRoleMapRepository, times(1)).insert(Mockito.eq(List.of(userRoleMap)));
+    when(userRoleMapRepository.fetchByUserId(stubUserId)).thenReturn(List.of(userRoleMap));
+    BindingDelta delta = userRolePermissionService.bindRoleToUser(stubUserId, List.of(1L));
+
+    assertThat(delta.isEmpty()).isTrue();
+    verify(userRoleMapRepository, times(0)).deleteByUserIdAndRoleIdIn(anyLong(), anyList());
+    verify(userRoleMapRepository, times(0)).insertRoleIdIn(anyLong(), anyList());
+    verify(authoritySnapshotCache, times(0)).evict(anyList());
+    verify(outboxService, times(0)).append(any(), anyLong(), any());
   }
 
   @Test
@@ -427,17 +534,22 @@ class UserRolePermissionUnitTest {
             () -> userRolePermissionService.bindRoleToUser(stubUserId, List.of(stubRole.getId())))
         .isInstanceOf(BusinessException.class)
         .hasMessage("bind role not exist");
-    verify(userRoleMapRepository, times(1)).deleteByUserId(anyLong());
-    verify(userRoleMapRepository, times(0)).insert(anyList());
+    verify(userRoleMapRepository, times(0)).deleteByUserIdAndRoleIdIn(anyLong(), anyList());
+    verify(userRoleMapRepository, times(0)).insertRoleIdIn(anyLong(), anyList());
   }
 
   @Test
   void bindRoleToUser_givenNotExistRoleId_shouldUnbindUsersRole() {
     Long stubUserId = 1L;
+    UserRoleMap userRoleMap = new UserRoleMap();
+    userRoleMap.setUserId(stubUserId);
+    userRoleMap.setRoleId(1L);
 
-    userRolePermissionService.bindRoleToUser(stubUserId, new ArrayList<>());
-    verify(userRoleMapRepository, times(1)).deleteByUserId(anyLong());
-    verify(userRoleMapRepository, times(0)).insert(anyList());
+    when(userRoleMapRepository.fetchByUserId(stubUserId)).thenReturn(List.of(userRoleMap));
+    BindingDelta delta = userRolePermissionService.bindRoleToUser(stubUserId, new ArrayList<>());
+    assertThat(delta.removed()).containsExactly(1L);
+    verify(userRoleMapRepository, times(1)).deleteByUserIdAndRoleIdIn(stubUserId, List.of(1L));
+    verify(userRoleMapRepository, times(1)).insertRoleIdIn(stubUserId, List.of());
   }
 
   @Test
@@ -447,15 +559,50 @@ class UserRolePermissionUnitTest {
     stubPermission.setId(1L);
     stubPermission.setCode("rfX60vSEwfYyMuu");
     stubPermission.setName("wl5xx78tqlIZo3JE");
+
+    when(permissionRepository.selectByPermissionIdIn(anyList()))
+        .thenReturn(List.of(stubPermission));
+    BindingDelta delta =
+        userRolePermissionService.bindPermissionToRole(stubRoleId, List.of(stubPermission.getId()));
+    assertThat(delta.added()).containsExactly(1L);
+    verify(rolePermissionMapRepository, times(1))
+        .deleteByRoleIdAndPermissionIdIn(stubRoleId, List.of());
+    verify(rolePermissionMapRepository, times(1)).insertPermissionIdIn(stubRoleId, List.of(1L));
+  }
+
+  @Test
+  void bindPermissionToRole_givenChangedPermissionIdList_shouldEvictRoleUsers() {
+    Long stubRoleId = 1L;
+    Permission stubPermission = new Permission();
+    stubPermission.setId(2L);
     RolePermissionMap rolePermissionMap = new RolePermissionMap();
     rolePermissionMap.setRoleId(stubRoleId);
-    rolePermissionMap.setPermissionId(stubPermission.getId());
+    rolePermissionMap.setPermissionId(1L);
+    UserRoleMap userRoleMap = new UserRoleMap();
+    userRoleMap.setUserId(5L);
+    userRoleMap.setRoleId(stubRoleId);
 
     when(permissionRepository.selectByPermissionIdIn(anyList()))
         .thenReturn(List.of(stubPermission));
-    userRolePermissionService.bindPermissionToRole(stubRoleId, List.of(stubPermission.getId()));
-    verify(rolePermissionMapRepository, times(1)).deleteByRoleId(anyLong());
-    verify(rolePermissionMapRepository, times(1)).insert(Mockito.eq(List.of(rolePermissionMap)));
+    when(rolePermissionMapRepository.fetchByRoleId(stubRoleId))
+        .thenReturn(List.of(rolePermissionMap));
+    when(userRoleMapRepository.fetchByRoleId(stubRoleId)).thenReturn(List.of(userRoleMap));
+    BindingDelta delta = userRolePermissionService.bindPermissionToRole(stubRoleId, List.of(2L));
+
+    assertThat(delta.added()).containsExactly(2L);
+    assertThat(delta.removed()).containsExactly(1L);
+    InOrder inOrder = inOrder(outboxEventRepository, rolePermissionMapRepository);
+    inOrder.verify(outboxEventRepository).lockAggregate(EAggregate.ROLE, List.of(stubRoleId));
+    inOrder.verify(rolePermissionMapRepository).fetchByRoleId(stubRoleId);
+    verify(rolePermissionMapRepository, times(1))
+        .deleteByRoleIdAndPermissionIdIn(stubRoleId, List.of(1L));
+    verify(rolePermissionMapRepository, times(1)).insertPermissionIdIn(stubRoleId, List.of(2L));
+    verify(authoritySnapshotCache, times(1)).evict(List.of(5L));
+    verify(outboxService, times(1))
+        .append(
+            EDomainEvent.ROLE_PERMISSIONS_CHANGED,
+            stubRoleId,
+            Map.of("added", List.of(2L), "removed", List.of(1L)));
   }
 
   @Test
@@ -473,16 +620,25 @@ class UserRolePermissionUnitTest {
                     stubRoleId, List.of(stubPermission.getId())))
         .isInstanceOf(BusinessException.class)
         .hasMessage("bind permission not exist");
-    verify(rolePermissionMapRepository, times(1)).deleteByRoleId(anyLong());
-    verify(rolePermissionMapRepository, times(0)).insert(Mockito.eq(new ArrayList<>()));
+    verify(rolePermissionMapRepository, times(0))
+        .deleteByRoleIdAndPermissionIdIn(anyLong(), anyList());
+    verify(rolePermissionMapRepository, times(0)).insertPermissionIdIn(anyLong(), anyList());
   }
 
   @Test
   void bindPermissionToRole_givenEmptyPermission_shouldUnbindRolesPermission() {
     Long stubRoleId = 1L;
-
-    userRolePermissionService.bindPermissionToRole(stubRoleId, new ArrayList<>());
-    verify(rolePermissionMapRepository, times(1)).deleteByRoleId(anyLong());
-    verify(rolePermissionMapRepository, times(0)).insert(Mockito.eq(new ArrayList<>()));
+    RolePermissionMap rolePermissionMap = new RolePermissionMap();
+    rolePermissionMap.setRoleId(stubRoleId);
+    rolePermissionMap.setPermissionId(1L);
+
+    when(rolePermissionMapRepository.fetchByRoleId(stubRoleId))
+        .thenReturn(List.of(rolePermissionMap));
+    BindingDelta delta =
+        userRolePermissionService.bindPermissionToRole(stubRoleId, new ArrayList<>());
+    assertThat(delta.removed()).containsExactly(1L);
+    verify(rolePermissionMapRepository, times(1))
+        .deleteByRoleIdAndPermissionIdIn(stubRoleId, List.of(1L));
+    verify(rolePermissionMapRepository, times(1)).insertPermissionIdIn(stubRoleId, List.of());
   }
 }
@@ -0,0 +1,19 @@
+-- 按编码查询角色与权限
+CREATE INDEX `idx_role_code` ON wuan.`role` (`code`);
+CREATE INDEX `idx_permission_code` ON wuan.`permission` (`code`);
+
+-- 清理重复授权, 保留最早的一条, 否则无法添加唯一键
+/* [jooq ignore start] */
+DELETE m1 FROM wuan.`user_role_map` m1
+    JOIN wuan.`user_role_map` m2
+    ON m1.`user_id` = m2.`user_id` AND m1.`role_id` = m2.`role_id` AND m1.`id` > m2.`id`;
+DELETE m1 FROM wuan.`role_permission_map` m1
+    JOIN wuan.`role_permission_map` m2
+    ON m1.`role_id` = m2.`role_id` AND m1.`permission_id` = m2.`permission_id` AND m1.`id` > m2.`id`;
+/* [jooq ignore stop] */
+
+-- 唯一键同时覆盖正向查询, 反向索引覆盖按角色/权限查询, 外键自动创建的单列索引随之被替换
+ALTER TABLE wuan.`user_role_map` ADD CONSTRAINT `uk_user_role` UNIQUE (`user_id`, `role_id`);
+CREATE INDEX `idx_user_role_map_role_user` ON wuan.`user_role_map` (`role_id`, `user_id`);
+ALTER TABLE wuan.`role_permission_map` ADD CONSTRAINT `uk_role_permission` UNIQUE (`role_id`, `permission_id`);
+CREATE INDEX `idx_role_permission_map_permission_role` ON wuan.`role_permission_map` (`permission_id`, `role_id`);